@@ -0,0 +1,59 @@
+package benchmarks;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying, comparing and hashing boards, which back caching and game updates
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @State(Scope.Thread)
+    public static class Boards {
+        List<ChessBoard> boards;
+        // equal but distinct boards, so equals can't short-circuit on identity
+        List<ChessBoard> copies;
+
+        @Setup(Level.Trial)
+        public void load(CorpusState corpus) {
+            boards = new ArrayList<>();
+            copies = new ArrayList<>();
+            for (ChessGame game : corpus.games) {
+                boards.add(game.getBoard());
+                copies.add(game.getBoard().clone());
+            }
+        }
+    }
+
+    @Benchmark
+    public void cloneBoard(Boards state, Blackhole bh) {
+        for (ChessBoard board : state.boards) {
+            bh.consume(board.clone());
+        }
+    }
+
+    @Benchmark
+    public void equalBoards(Boards state, Blackhole bh) {
+        for (int i = 0; i < state.boards.size(); i++) {
+            bh.consume(state.boards.get(i).equals(state.copies.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void hashBoard(Boards state, Blackhole bh) {
+        for (ChessBoard board : state.boards) {
+            bh.consume(board.hashCode());
+        }
+    }
+}
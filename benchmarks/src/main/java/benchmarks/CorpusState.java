@@ -0,0 +1,41 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads one phase of the {@link PositionCorpus} for a benchmark thread
+ */
+@State(Scope.Thread)
+public class CorpusState {
+
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+    public PositionCorpus phase;
+
+    public List<ChessGame> games;
+    // squares holding a piece of the team to move, per game
+    public List<List<ChessPosition>> movablePieces;
+
+    @Setup(Level.Trial)
+    public void load() {
+        games = phase.games();
+        movablePieces = new ArrayList<>();
+        for (ChessGame game : games) {
+            List<ChessPosition> pieces = new ArrayList<>();
+            for (int row = 1; row <= 8; row++) {
+                for (int col = 1; col <= 8; col++) {
+                    ChessPosition pos = ChessPosition.of(row, col);
+                    var piece = game.getBoard().getPiece(pos);
+                    if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                        pieces.add(pos);
+                    }
+                }
+            }
+            movablePieces.add(pieces);
+        }
+    }
+}
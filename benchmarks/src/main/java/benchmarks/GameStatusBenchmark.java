@@ -0,0 +1,33 @@
+package benchmarks;
+
+import chess.ChessGame;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkmate and stalemate detection for the team to move, which the server runs
+ * after every move
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStatusBenchmark {
+
+    @Benchmark
+    public void isInCheckmate(CorpusState corpus, Blackhole bh) {
+        for (ChessGame game : corpus.games) {
+            bh.consume(game.isInCheckmate(game.getTeamTurn()));
+        }
+    }
+
+    @Benchmark
+    public void isInStalemate(CorpusState corpus, Blackhole bh) {
+        for (ChessGame game : corpus.games) {
+            bh.consume(game.isInStalemate(game.getTeamTurn()));
+        }
+    }
+}
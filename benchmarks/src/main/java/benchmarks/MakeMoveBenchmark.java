@@ -0,0 +1,65 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChessGame.makeMove, including its validation, on the first legal move of each
+ * corpus position. The games are put back before every invocation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MakeMoveBenchmark {
+
+    @State(Scope.Thread)
+    public static class Moves {
+        List<ChessGame> originals;
+        List<ChessGame> games;
+        List<ChessMove> moves;
+
+        @Setup(Level.Trial)
+        public void pickMoves(CorpusState corpus) {
+            originals = corpus.games;
+            games = new ArrayList<>();
+            moves = new ArrayList<>();
+            for (int i = 0; i < originals.size(); i++) {
+                games.add(new ChessGame());
+                for (ChessPosition pos : corpus.movablePieces.get(i)) {
+                    var valid = originals.get(i).validMoves(pos);
+                    if (!valid.isEmpty()) {
+                        moves.add(valid.iterator().next());
+                        break;
+                    }
+                }
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void reset() {
+            for (int i = 0; i < games.size(); i++) {
+                ChessGame game = games.get(i);
+                game.setBoard(originals.get(i).getBoard());
+                game.setTeamTurn(originals.get(i).getTeamTurn());
+                game.gameOver = false;
+            }
+        }
+    }
+
+    @Benchmark
+    public List<ChessGame> makeMove(Moves state) throws InvalidMoveException {
+        for (int i = 0; i < state.games.size(); i++) {
+            state.games.get(i).makeMove(state.moves.get(i));
+        }
+        return state.games;
+    }
+}
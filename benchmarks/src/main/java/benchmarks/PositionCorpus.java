@@ -0,0 +1,56 @@
+package benchmarks;
+
+import chess.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The positions every benchmark suite runs over, grouped by game phase so a
+ * regression can be traced to openings, middlegames or endgames
+ */
+public enum PositionCorpus {
+    OPENING,
+    MIDDLEGAME,
+    ENDGAME;
+
+    /**
+     * @return new games set up at each position of this phase
+     */
+    public List<ChessGame> games() {
+        List<ChessGame> games = new ArrayList<>();
+        switch (this) {
+            case OPENING -> {
+                games.add(new ChessGame());
+                // Ruy Lopez and Nimzo-Indian starts
+                games.add(play("e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6"));
+                games.add(play("d2d4", "g8f6", "c2c4", "e7e6", "b1c3", "f8b4"));
+            }
+            case MIDDLEGAME -> {
+                games.add(Perft.ReferencePosition.MIDDLEGAME.newGame());
+                games.add(Perft.ReferencePosition.KIWIPETE.newGame());
+            }
+            case ENDGAME -> {
+                games.add(Perft.ReferencePosition.ENDGAME.newGame());
+                games.add(Fen.parse("8/6k1/6p1/3r4/R7/8/5PP1/6K1 w - - 0 1"));
+            }
+        }
+        return games;
+    }
+
+    private static ChessGame play(String... moves) {
+        ChessGame game = new ChessGame();
+        try {
+            for (String move : moves) {
+                game.makeMove(new ChessMove(square(move, 0), square(move, 2), null));
+            }
+        } catch (InvalidMoveException e) {
+            throw new IllegalStateException("Corpus move is illegal", e);
+        }
+        return game;
+    }
+
+    private static ChessPosition square(String move, int offset) {
+        return ChessPosition.of(move.charAt(offset + 1) - '0', move.charAt(offset) - 'a' + 1);
+    }
+}
@@ -0,0 +1,92 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.Fen;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gson round trips of ChessGame, the format games are stored and broadcast in, next to
+ * FEN, which only holds the position
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @State(Scope.Thread)
+    public static class Json {
+        final Gson gson = new Gson();
+        List<String> serialized;
+
+        @Setup(Level.Trial)
+        public void serialize(CorpusState corpus) {
+            serialized = new ArrayList<>();
+            for (ChessGame game : corpus.games) {
+                serialized.add(gson.toJson(game));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Text {
+        final ChessGame game = new ChessGame();
+        final StringBuilder out = new StringBuilder();
+        List<String> fens;
+
+        @Setup(Level.Trial)
+        public void format(CorpusState corpus) {
+            fens = new ArrayList<>();
+            for (ChessGame game : corpus.games) {
+                fens.add(Fen.format(game));
+            }
+        }
+    }
+
+    @Benchmark
+    public void toJson(CorpusState corpus, Json json, Blackhole bh) {
+        for (ChessGame game : corpus.games) {
+            bh.consume(json.gson.toJson(game));
+        }
+    }
+
+    @Benchmark
+    public void fromJson(Json json, Blackhole bh) {
+        for (String game : json.serialized) {
+            bh.consume(json.gson.fromJson(game, ChessGame.class));
+        }
+    }
+
+    @Benchmark
+    public void roundTrip(CorpusState corpus, Json json, Blackhole bh) {
+        for (ChessGame game : corpus.games) {
+            // reading the board forces the bitboards to be rebuilt, as the server would
+            ChessGame copy = json.gson.fromJson(json.gson.toJson(game), ChessGame.class);
+            bh.consume(copy.isInCheck(copy.getTeamTurn()));
+        }
+    }
+
+    @Benchmark
+    public void toFen(CorpusState corpus, Text text, Blackhole bh) {
+        for (ChessGame game : corpus.games) {
+            text.out.setLength(0);
+            bh.consume(Fen.appendTo(text.out, game));
+        }
+    }
+
+    @Benchmark
+    public void fromFen(Text text, Blackhole bh) {
+        for (String fen : text.fens) {
+            // parsed into one reused game, as a server reading positions off the wire could
+            Fen.parse(fen, text.game);
+            bh.consume(text.game.getPositionKey());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legal move generation for every piece of the team to move, the work behind
+ * highlighting and validating each move
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidMovesBenchmark {
+
+    @Benchmark
+    public void validMoves(CorpusState corpus, Blackhole bh) {
+        for (int i = 0; i < corpus.games.size(); i++) {
+            ChessGame game = corpus.games.get(i);
+            List<ChessPosition> pieces = corpus.movablePieces.get(i);
+            for (ChessPosition pos : pieces) {
+                bh.consume(game.validMoves(pos));
+            }
+        }
+    }
+}
@@ -100,7 +100,7 @@ public class BoardPrinter {
     }
 
     private void drawSquare(PrintStream out, ChessBoard board, int row, int col, Set<ChessPosition> highlightSet) {
-        ChessPosition pos = new ChessPosition(row, col);
+        ChessPosition pos = ChessPosition.of(row, col);
         ChessPiece piece = board.getPiece(pos);
 
         boolean darkSquare = (row + col) % 2 == 0;
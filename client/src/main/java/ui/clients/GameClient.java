@@ -38,6 +38,7 @@ public class GameClient {
                 case "m", "move" -> makeMove(params);
                 case "r", "redraw" -> drawBoard(color);
                 case "res", "resign" -> resign();
+                case "a", "analyze" -> analyze(params);
                 case "leave" -> leaveGame();
                 default -> help();
             };
@@ -103,7 +104,7 @@ public class GameClient {
                 throw new ResponseException(500, "Invalid chess position");
             }
             // create ChessPosition
-            return new ChessPosition(row, col);
+            return ChessPosition.of(row, col);
         } catch (Exception e) {
             throw new ResponseException(500, e.getMessage());
         }
@@ -119,6 +120,18 @@ public class GameClient {
         };
     }
 
+    private String analyze(String... params) throws ResponseException {
+        try {
+            // defaults to the best 3 moves at depth 6
+            int depth = params.length > 0 ? Integer.parseInt(params[0]) : 6;
+            int lines = params.length > 1 ? Integer.parseInt(params[1]) : 3;
+            websocket.analyzeGame(authData.authToken(), gameData.gameID(), depth, lines, websocket.session);
+            return "Analyzing...";
+        } catch (NumberFormatException e) {
+            throw new ResponseException(500, "Expected format: <OPTIONAL DEPTH> <OPTIONAL LINES> (e.g. 6 3)");
+        }
+    }
+
     private String resign() throws ResponseException {
         System.out.println(SET_TEXT_COLOR_RED + "To confirm resignation, enter 'RESIGN'");
         // take user input of RESIGN, otherwise cancel resignation
@@ -150,6 +163,7 @@ public class GameClient {
             Highlight legal moves: "hl", "highlight" <POSITION> (e.g. f5)
             Make a move: "m", "move" <SOURCE> <DESTINATION> <OPTIONAL PROMOTION> (e.g. f5 e4 q)
             Redraw board: "r", "redraw"
+            Analyze position: "a", "analyze" <OPTIONAL DEPTH> <OPTIONAL LINES> (e.g. 6 3)
             Resign from game: "res", "resign"
             Leave game: "leave"
             """;
@@ -1,7 +1,9 @@
 package ui.repls;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import chess.ChessGame.*;
+import chess.PackedMove;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -10,6 +12,7 @@ import model.*;
 import ui.clients.GameClient;
 import ui.websocket.GameHandler;
 import ui.websocket.WebsocketFacade;
+import websocket.messages.AnalysisServerMessage;
 import websocket.messages.ErrorServerMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationServerMessage;
@@ -58,12 +61,17 @@ public class GameUI implements GameHandler {
                     this.gameData = lgm.game;
                     client.gameData = lgm.game;
                     client.drawBoard(color);
+                    System.out.printf(SET_TEXT_COLOR_GREEN + "Evaluation: %+.2f%n", lgm.evaluation / 100.0);
                     printPrompt();
                 }
                 case NOTIFICATION -> {
                     NotificationServerMessage nsm = gson.fromJson(message, NotificationServerMessage.class);
                     printNotification(nsm);
                 }
+                case ANALYSIS -> {
+                    AnalysisServerMessage asm = gson.fromJson(message, AnalysisServerMessage.class);
+                    printAnalysis(asm);
+                }
                 case ERROR -> {
                     ErrorServerMessage esm = gson.fromJson(message, ErrorServerMessage.class);
                     printError(esm);
@@ -79,6 +87,25 @@ public class GameUI implements GameHandler {
         printPrompt();
     }
 
+    private void printAnalysis(AnalysisServerMessage message) {
+        for (AnalysisServerMessage.Line line : message.lines) {
+            String score;
+            if (line.bookWeight() != null) {
+                score = "book, weight " + line.bookWeight();
+            } else if (line.mateIn() != null) {
+                score = "mate " + line.mateIn() + " (depth " + line.depth() + ")";
+            } else {
+                score = String.format("%+.2f (depth %d)", line.score() / 100.0, line.depth());
+            }
+            StringBuilder moves = new StringBuilder();
+            for (ChessMove move : line.moves()) {
+                moves.append(' ').append(PackedMove.toString(PackedMove.of(move)));
+            }
+            System.out.println(SET_TEXT_COLOR_BLUE + score + ":" + moves);
+        }
+        printPrompt();
+    }
+
     private void printError(ErrorServerMessage message) {
         System.out.println(SET_TEXT_COLOR_RED + message.errorMessage);
         printPrompt();
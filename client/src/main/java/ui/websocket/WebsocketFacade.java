@@ -61,6 +61,11 @@ public class WebsocketFacade extends Endpoint {
         sendMessage(command, session);
     }
 
+    public void analyzeGame(String auth, int gameID, int depth, int lines, Session session) throws ResponseException {
+        AnalyzeGameCommand command = new AnalyzeGameCommand(auth, gameID, depth, lines);
+        sendMessage(command, session);
+    }
+
     private void sendMessage(UserGameCommand command, Session session) throws ResponseException {
         try {
             session.getBasicRemote().sendText(new Gson().toJson(command));
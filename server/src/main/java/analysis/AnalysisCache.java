@@ -0,0 +1,173 @@
+package analysis;
+
+import engine.AnalysisLine;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers finished analyses by position so the same position isn't searched twice,
+ * whoever asks for it: spectators through {@link AnalysisService} or the bot.
+ * <p>
+ * An entry answers any request for its position that is no deeper and wants no more
+ * lines than it has. The cache is split into segments by key, each an access-ordered
+ * map behind its own lock, so threads working on different positions rarely wait on
+ * each other. Each segment gets an equal share of the memory cap and drops its least
+ * recently used entries to stay under it. Sizes are estimates, not measurements.
+ */
+public class AnalysisCache {
+
+    /**
+     * Counters since the cache was made
+     *
+     * @param hits      lookups an entry answered
+     * @param misses    lookups with nothing deep or wide enough
+     * @param evictions entries dropped to stay under the memory cap
+     * @param entries   entries held now
+     * @param bytes     estimated memory held now
+     */
+    public record Stats(long hits, long misses, long evictions, long entries, long bytes) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    /**
+     * A finished analysis
+     *
+     * @param depth the depth every line finished
+     */
+    private record Entry(int depth, List<AnalysisLine> lines, long bytes) {
+    }
+
+    // rough object sizes with compressed pointers: the entry, map node and list, then each line and move
+    private static final int ENTRY_BYTES = 128;
+    private static final int LINE_BYTES = 96;
+    private static final int MOVE_BYTES = 24;
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxBytes about how much memory the cache may hold
+     */
+    public AnalysisCache(long maxBytes) {
+        if (maxBytes < SEGMENTS * (long) ENTRY_BYTES) {
+            throw new IllegalArgumentException("Analysis cache is too small: " + maxBytes + " bytes");
+        }
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxBytes / SEGMENTS);
+        }
+    }
+
+    /**
+     * @param positionKey the position's {@link chess.ChessGame#getPositionKey() key}
+     * @return the best lines known for the position from an analysis at least this deep,
+     * or null if there isn't one with enough lines
+     */
+    public List<AnalysisLine> get(long positionKey, int depth, int lines) {
+        Entry entry = segmentFor(positionKey).get(positionKey);
+        if (entry == null || entry.depth() < depth || entry.lines().size() < lines) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.lines().subList(0, lines);
+    }
+
+    /**
+     * @return the depth every line of an analysis finished, the shallowest of them
+     */
+    public static int completedDepth(List<AnalysisLine> lines) {
+        int depth = Integer.MAX_VALUE;
+        for (AnalysisLine line : lines) {
+            depth = Math.min(depth, line.depth());
+        }
+        return lines.isEmpty() ? 0 : depth;
+    }
+
+    /**
+     * Keeps a finished analysis, unless the position already has one at least as deep
+     * with at least as many lines
+     *
+     * @param depth the depth the analysis finished, see {@link #completedDepth}. A
+     *              time-capped search may stop short of the depth it was asked for
+     */
+    public void put(long positionKey, int depth, List<AnalysisLine> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        long bytes = ENTRY_BYTES;
+        for (AnalysisLine line : lines) {
+            bytes += LINE_BYTES + (long) MOVE_BYTES * line.principalVariation().size();
+        }
+        segmentFor(positionKey).put(positionKey, new Entry(depth, List.copyOf(lines), bytes));
+    }
+
+    public Stats stats() {
+        long entries = 0;
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                entries += segment.map.size();
+                bytes += segment.bytes;
+            }
+        }
+        return new Stats(hits.get(), misses.get(), evictions.get(), entries, bytes);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+                segment.bytes = 0;
+            }
+        }
+    }
+
+    private Segment segmentFor(long positionKey) {
+        // the low bits index the transposition tables, the high bits spread the segments
+        return segments[(int) (positionKey >>> 60)];
+    }
+
+    private final class Segment {
+        private final LinkedHashMap<Long, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        private Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized Entry get(long positionKey) {
+            return map.get(positionKey);
+        }
+
+        synchronized void put(long positionKey, Entry entry) {
+            Entry old = map.get(positionKey);
+            if (old != null) {
+                if (old.depth() >= entry.depth() && old.lines().size() >= entry.lines().size()) {
+                    return;
+                }
+                bytes -= old.bytes();
+            }
+            map.put(positionKey, entry);
+            bytes += entry.bytes();
+            // the newest entry is last in access order, so it is never the one dropped
+            Iterator<Map.Entry<Long, Entry>> eldest = map.entrySet().iterator();
+            while (bytes > maxBytes && map.size() > 1) {
+                bytes -= eldest.next().getValue().bytes();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+}
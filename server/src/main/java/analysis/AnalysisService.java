@@ -0,0 +1,256 @@
+package analysis;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import engine.AnalysisLine;
+import engine.OpeningBook;
+import engine.ParallelSearch;
+import engine.SearchLimits;
+import engine.TranspositionTable;
+import exception.ResponseException;
+import tablebase.Tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Analyzes positions for anyone watching or playing a game, on a pool of engine
+ * threads separate from the bot's. Each analysis can search with several threads at
+ * once, see {@link ParallelSearch}, so a deep one finishes sooner on a many-core host.
+ * <p>
+ * Positions in the {@link OpeningBook} are answered with its moves and never searched.
+ * Four more things keep a popular game from swamping the server:
+ * <ul>
+ *     <li>Finished analyses are kept in an {@link AnalysisCache} and answer later
+ *     requests for the same position without a search</li>
+ *     <li>Requests for a position that is already being analyzed to the same depth and
+ *     number of lines join that analysis instead of starting another</li>
+ *     <li>Each user may only have a few analyses of their own waiting or running</li>
+ *     <li>The queue is bounded, and shallow requests are taken before deep ones so a
+ *     few expensive requests can't hold everyone else up</li>
+ * </ul>
+ */
+public class AnalysisService implements AutoCloseable {
+
+    /**
+     * What makes two requests the same analysis
+     */
+    private record AnalysisKey(long positionKey, int depth, int lines) {
+    }
+
+    private final ThreadPoolExecutor workers;
+    private final ThreadLocal<ParallelSearch> searches;
+    // every worker's search, so their helper threads go when the service closes
+    private final ConcurrentLinkedQueue<ParallelSearch> allSearches = new ConcurrentLinkedQueue<>();
+    private final AnalysisCache cache;
+    private final OpeningBook book;
+    private final int queueCapacity;
+    private final int maxPerUser;
+    private final int maxDepth;
+    private final int maxLines;
+    private final long maxMillis;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentHashMap<AnalysisKey, CompletableFuture<List<AnalysisLine>>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> perUser = new ConcurrentHashMap<>();
+
+    /**
+     * @param threads        analyses that run at once
+     * @param searchThreads  threads each analysis searches with, so threads times this
+     *                       many engine threads in all
+     * @param queueCapacity  analyses that may wait for a free thread before requests are refused
+     * @param maxPerUser     analyses one user may have waiting or running at once
+     * @param maxDepth       deepest analysis anyone may ask for
+     * @param maxLines       most lines anyone may ask for
+     * @param maxMillis      wall-clock cap on any one analysis, however deep it was asked to go
+     * @param tableMegabytes memory for the transposition table the threads share
+     * @param cache          finished analyses, can be shared with the bot
+     * @param book           opening moves to answer with instead of searching
+     * @param tablebase      endings to look up instead of searching
+     */
+    public AnalysisService(int threads, int searchThreads, int queueCapacity, int maxPerUser, int maxDepth, int maxLines,
+                           long maxMillis, int tableMegabytes, AnalysisCache cache, OpeningBook book,
+                           Tablebase tablebase) {
+        this.cache = cache;
+        this.book = book;
+        this.queueCapacity = queueCapacity;
+        this.maxPerUser = maxPerUser;
+        this.maxDepth = maxDepth;
+        this.maxLines = maxLines;
+        this.maxMillis = maxMillis;
+        TranspositionTable table = new TranspositionTable(tableMegabytes);
+        this.searches = ThreadLocal.withInitial(() -> {
+            ParallelSearch search = new ParallelSearch(searchThreads, table, tablebase);
+            allSearches.add(search);
+            return search;
+        });
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "analysis-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues an analysis of the position a game is in. The board is copied before this
+     * returns, so the caller is free to change the game afterwards
+     *
+     * @param username who asked, for their quota
+     * @param depth    how deep to search, capped by the service's maximum
+     * @param lines    how many moves to report
+     * @return the lines best first, completed on an analysis thread
+     * @throws ResponseException 400 for a bad depth or line count, 429 once the user has
+     *                           too many analyses pending and 503 when the queue is full
+     */
+    public CompletableFuture<List<AnalysisLine>> analyze(String username, ChessGame game, int depth, int lines)
+            throws ResponseException {
+        if (depth < 1 || depth > maxDepth) {
+            throw new ResponseException(400, "Error: depth must be between 1 and " + maxDepth);
+        }
+        if (lines < 1 || lines > maxLines) {
+            throw new ResponseException(400, "Error: lines must be between 1 and " + maxLines);
+        }
+        List<OpeningBook.BookMove> bookMoves = book.legalMoves(game.getBoard(), game.getTeamTurn());
+        if (!bookMoves.isEmpty()) {
+            List<AnalysisLine> bookLines = new ArrayList<>();
+            for (OpeningBook.BookMove move : bookMoves.subList(0, Math.min(lines, bookMoves.size()))) {
+                bookLines.add(AnalysisLine.fromBook(move));
+            }
+            return CompletableFuture.completedFuture(bookLines);
+        }
+        long positionKey = game.getPositionKey();
+        List<AnalysisLine> cached = cache.get(positionKey, depth, lines);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        AnalysisKey key = new AnalysisKey(positionKey, depth, lines);
+        CompletableFuture<List<AnalysisLine>> running = inFlight.get(key);
+        if (running != null) {
+            // someone already asked for this exact analysis, it costs nothing to wait for it too
+            return running;
+        }
+
+        if (!acquire(username)) {
+            throw new ResponseException(429, "Error: too many analysis requests, wait for the last ones to finish");
+        }
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            release(username);
+            throw new ResponseException(503, "Error: analysis is busy, try again later");
+        }
+
+        CompletableFuture<List<AnalysisLine>> future = new CompletableFuture<>();
+        CompletableFuture<List<AnalysisLine>> raced = inFlight.putIfAbsent(key, future);
+        if (raced != null) {
+            queued.decrementAndGet();
+            release(username);
+            return raced;
+        }
+
+        ChessBoard board = game.getBoard().clone();
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        SearchLimits limits = SearchLimits.depth(depth).withTime(maxMillis);
+        try {
+            workers.execute(new Job(depth, sequence.getAndIncrement(), () -> {
+                queued.decrementAndGet();
+                List<AnalysisLine> result = null;
+                RuntimeException failure = null;
+                try {
+                    result = searches.get().analyze(board, toMove, limits, lines);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                if (result != null) {
+                    // cached before the request leaves inFlight, so a repeat never searches again. The
+                    // time cap may have stopped it short of the depth asked for, so it is kept at
+                    // the depth it reached
+                    cache.put(positionKey, AnalysisCache.completedDepth(result), result);
+                }
+                // off the books before anyone waiting hears back, so they can ask again right away
+                inFlight.remove(key);
+                release(username);
+                if (failure != null) {
+                    future.completeExceptionally(failure);
+                } else {
+                    future.complete(result);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            inFlight.remove(key);
+            release(username);
+            future.completeExceptionally(e);
+            throw new ResponseException(503, "Error: analysis is shutting down");
+        }
+        return future;
+    }
+
+    /**
+     * @return analyses waiting for a thread
+     */
+    public int queued() {
+        return queued.get();
+    }
+
+    public AnalysisCache cache() {
+        return cache;
+    }
+
+    // counts a request against the user unless they already have maxPerUser running. The
+    // check and the count happen together, so two requests can't both take the last slot
+    private boolean acquire(String username) {
+        boolean[] acquired = {false};
+        perUser.compute(username, (name, count) -> {
+            int running = count == null ? 0 : count;
+            if (running >= maxPerUser) {
+                return count;
+            }
+            acquired[0] = true;
+            return running + 1;
+        });
+        return acquired[0];
+    }
+
+    // the entry goes when the user's last request does, in the same step as the count
+    private void release(String username) {
+        perUser.computeIfPresent(username, (name, count) -> count > 1 ? count - 1 : null);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        for (ParallelSearch search : allSearches) {
+            search.close();
+        }
+    }
+
+    /**
+     * A queued analysis. Shallower analyses go first, then the one that asked first
+     */
+    private record Job(int depth, long sequence, Runnable work) implements Runnable, Comparable<Job> {
+
+        @Override
+        public void run() {
+            work.run();
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (depth != other.depth) {
+                return Integer.compare(depth, other.depth);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
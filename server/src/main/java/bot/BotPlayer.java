@@ -0,0 +1,168 @@
+package bot;
+
+import analysis.AnalysisCache;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PackedMove;
+import engine.AnalysisLine;
+import engine.OpeningBook;
+import engine.Search;
+import engine.SearchLimits;
+import engine.TranspositionTable;
+import tablebase.Tablebase;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A computer opponent that can sit in either seat of a game.
+ * <p>
+ * Moves are searched on a fixed pool of engine threads with a bounded queue, never
+ * on the thread that asked, so a thinking bot doesn't hold up message handling for
+ * any game. Each game has at most one search queued or running at a time, and every
+ * worker keeps its own {@link Search} over one shared transposition table.
+ * <p>
+ * Book positions are played from the {@link OpeningBook}, picking among its moves by
+ * weight so the bot doesn't open the same way every game. Positions found in the
+ * {@link AnalysisCache} deep enough are played from it without
+ * a search, and the bot's own searches go into it for spectators' analysis.
+ */
+public class BotPlayer implements AutoCloseable {
+
+    /**
+     * The username the bot plays under. Registration refuses it, so no person can
+     * take it over
+     */
+    public static final String USERNAME = "[computer]";
+
+    /**
+     * Called on an engine thread once a move is chosen, or choosing one failed
+     */
+    public interface MoveCallback {
+        /**
+         * @param positionKey the key of the position the move was searched for, to check
+         *                    the game hasn't moved on in the meantime
+         */
+        void onMove(int gameID, long positionKey, ChessMove move);
+
+        /**
+         * @param error why no move was chosen. The game has no search pending any more
+         */
+        void onFailure(int gameID, long positionKey, RuntimeException error);
+    }
+
+    private final ThreadPoolExecutor workers;
+    private final TranspositionTable table;
+    private final ThreadLocal<Search> searches;
+    private final long thinkMillis;
+    private final AnalysisCache cache;
+    private final int minCachedDepth;
+    private final OpeningBook book;
+    private final Set<Integer> pendingGames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param threads        engine threads, shared by every game with a bot in it
+     * @param queueCapacity  searches that may wait for a free thread before requests are refused
+     * @param thinkMillis    wall-clock budget for each move
+     * @param tableMegabytes memory for the shared transposition table
+     * @param cache          finished analyses, can be shared with spectators' analysis
+     * @param minCachedDepth shallowest cached analysis the bot will play from instead of searching
+     * @param book           opening moves to play without searching
+     * @param tablebase      endings to play perfectly without searching
+     */
+    public BotPlayer(int threads, int queueCapacity, long thinkMillis, int tableMegabytes,
+                     AnalysisCache cache, int minCachedDepth, OpeningBook book, Tablebase tablebase) {
+        this.book = book;
+        this.thinkMillis = thinkMillis;
+        this.cache = cache;
+        this.minCachedDepth = minCachedDepth;
+        this.table = new TranspositionTable(tableMegabytes);
+        this.searches = ThreadLocal.withInitial(() -> new Search(table, tablebase));
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "bot-engine-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public static boolean isBot(String username) {
+        return USERNAME.equals(username);
+    }
+
+    /**
+     * Queues a search for the team to move in a game. The board is copied before this
+     * returns, so the caller is free to change the game afterwards
+     *
+     * @return False if the game is over, already has a search pending or the bot has
+     * been closed
+     * @throws RejectedExecutionException if the queue is full. Nothing is queued, the
+     *                                    caller can ask again once the bot has caught up
+     */
+    public boolean requestMove(int gameID, ChessGame game, MoveCallback callback) {
+        if (game.gameOver || !pendingGames.add(gameID)) {
+            return false;
+        }
+        ChessBoard board = game.getBoard().clone();
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        long positionKey = game.getPositionKey();
+        try {
+            workers.execute(() -> {
+                ChessMove move = null;
+                RuntimeException failure = null;
+                try {
+                    move = chooseMove(board, toMove, positionKey);
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    // cleared before the move is played, so a bot in the other seat can be asked next
+                    pendingGames.remove(gameID);
+                }
+                if (failure != null) {
+                    callback.onFailure(gameID, positionKey, failure);
+                } else if (move != null) {
+                    callback.onMove(gameID, positionKey, move);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pendingGames.remove(gameID);
+            if (workers.isShutdown()) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private ChessMove chooseMove(ChessBoard board, ChessGame.TeamColor toMove, long positionKey) {
+        int bookMove = book.pick(board, toMove, ThreadLocalRandom.current());
+        if (bookMove != PackedMove.NONE) {
+            return PackedMove.toChessMove(bookMove);
+        }
+        List<AnalysisLine> cached = cache.get(positionKey, minCachedDepth, 1);
+        if (cached != null) {
+            return cached.get(0).result().bestChessMove();
+        }
+        List<AnalysisLine> lines = searches.get().analyze(board, toMove, SearchLimits.time(thinkMillis), 1);
+        if (lines.isEmpty()) {
+            return null;
+        }
+        // a timed search is only as good as the depth it finished
+        cache.put(positionKey, AnalysisCache.completedDepth(lines), lines);
+        return lines.get(0).result().bestChessMove();
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+}
@@ -1,24 +1,56 @@
 package server;
 
+import analysis.AnalysisCache;
+import analysis.AnalysisService;
+import bot.BotPlayer;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import dataaccess.DataAccess;
 import dataaccess.SqlDataAccess;
+import engine.OpeningBook;
 import exception.ResponseException;
 import handlers.JoinRequest;
 import model.*;
 import services.Service;
 import spark.*;
+import tablebase.Tablebase;
 import websocket.WebSocketHandler;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 
 public class Server {
 
+    private static final int ANALYSIS_SEARCH_THREADS = Math.max(1, Integer.getInteger("chess.analysisSearchThreads", 2));
+    // the engine shares the machine with the game server, so what it may hold is set at launch:
+    // a transposition table each for the bot and analysis and the cache of finished analyses,
+    // 64, 64 and 32 MB unless set
+    private static final int BOT_TABLE_MEGABYTES = Math.max(1, Integer.getInteger("chess.botTableMegabytes", 64));
+    private static final int ANALYSIS_TABLE_MEGABYTES = Math.max(1, Integer.getInteger("chess.analysisTableMegabytes", 64));
+    private static final int ANALYSIS_CACHE_MEGABYTES = Math.max(1, Integer.getInteger("chess.analysisCacheMegabytes", 32));
+
     Gson gson = new Gson();
     public DataAccess dataAccess = new SqlDataAccess();
     public Service service = new Service(dataAccess);
-    public WebSocketHandler wsHandler = new WebSocketHandler(service);
+    public OpeningBook book = loadBook();
+    public Tablebase tablebase = loadTablebase();
+    // finished searches from the bot and analysis alike
+    public AnalysisCache analysisCache = new AnalysisCache(ANALYSIS_CACHE_MEGABYTES * 1024L * 1024);
+    // half the cores think for bots, the rest stay free for requests
+    public BotPlayer botPlayer = new BotPlayer(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 64, 1000,
+            BOT_TABLE_MEGABYTES, analysisCache, 8, book, tablebase);
+    // analysis gets the other half, each analysis searching with chess.analysisSearchThreads of
+    // them (2 by default): depth 12 and 5 lines at most, 2 requests per user, 5 s per request
+    public AnalysisService analysisService = new AnalysisService(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2 / ANALYSIS_SEARCH_THREADS), ANALYSIS_SEARCH_THREADS,
+            256, 2, 12, 5, 5000, ANALYSIS_TABLE_MEGABYTES, analysisCache, book, tablebase);
+    public WebSocketHandler wsHandler = new WebSocketHandler(service, botPlayer, analysisService, tablebase);
 
     public int run(int desiredPort) {
         Spark.port(desiredPort);
@@ -36,6 +68,9 @@ public class Server {
         Spark.post("/game", this::createGame);
         Spark.get("/game", this::listGames);
         Spark.put("/game", this::joinGame);
+        Spark.put("/game/bot", this::addBot);
+        Spark.get("/game/:id/pgn", this::gamePgn);
+        Spark.get("/analysis/stats", this::analysisStats);
         Spark.exception(ResponseException.class, this::exceptionHandler);
 
         //This line initializes the server and can be removed once you have a functioning endpoint 
@@ -50,6 +85,45 @@ public class Server {
         Spark.awaitStop();
     }
 
+    /**
+     * Maps the opening book named by the chess.book system property, opening.book in the
+     * working directory by default. The server runs without a book if there isn't one
+     */
+    private static OpeningBook loadBook() {
+        Path path = Path.of(System.getProperty("chess.book", "opening.book"));
+        if (!Files.exists(path)) {
+            return OpeningBook.EMPTY;
+        }
+        try {
+            OpeningBook book = OpeningBook.open(path);
+            System.out.println("Loaded " + book.size() + " opening book moves from " + path);
+            return book;
+        } catch (IOException e) {
+            System.out.println("Unable to load opening book: " + e.getMessage());
+            return OpeningBook.EMPTY;
+        }
+    }
+
+    /**
+     * Maps the endgame tables in the directory named by the chess.tablebases system
+     * property, tablebases in the working directory by default. Without them endings are
+     * searched like any other position
+     */
+    private static Tablebase loadTablebase() {
+        Path directory = Path.of(System.getProperty("chess.tablebases", "tablebases"));
+        if (!Files.isDirectory(directory)) {
+            return Tablebase.EMPTY;
+        }
+        try {
+            Tablebase tablebase = Tablebase.open(directory);
+            System.out.println("Loaded endgame tables up to " + tablebase.maxPieces() + " pieces from " + directory);
+            return tablebase;
+        } catch (IOException e) {
+            System.out.println("Unable to load endgame tables: " + e.getMessage());
+            return Tablebase.EMPTY;
+        }
+    }
+
     private void exceptionHandler(ResponseException ex, Request req, Response res) {
         res.status(ex.statusCode());
         res.body(ex.toJson());
@@ -97,6 +171,39 @@ public class Server {
         return "";
     }
 
+    private Object addBot(Request req, Response res) throws ResponseException {
+        String authToken = req.headers("authorization");
+        JoinRequest joinRequest = gson.fromJson(req.body(), JoinRequest.class);
+        wsHandler.seatBot(authToken, joinRequest.playerColor(), joinRequest.gameID());
+        return "";
+    }
+
+    private Object analysisStats(Request req, Response res) throws ResponseException {
+        service.authorize(req.headers("authorization"));
+        return gson.toJson(analysisCache.stats());
+    }
+
+    private Object gamePgn(Request req, Response res) throws ResponseException {
+        String authToken = req.headers("authorization");
+        int gameID;
+        try {
+            gameID = Integer.parseInt(req.params(":id"));
+        } catch (NumberFormatException e) {
+            throw new ResponseException(400, "Error: bad request");
+        }
+        GameData gameData = service.getGame(authToken, gameID);
+        res.type("application/x-chess-pgn");
+        // written straight to the response as the moves are replayed, not built up as JSON first
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8));
+            service.writePgn(gameData, out);
+            out.flush();
+        } catch (IOException e) {
+            throw new ResponseException(500, "Error: " + e.getMessage());
+        }
+        return "";
+    }
+
     private Object listGames(Request req, Response res) throws ResponseException {
         String authToken = req.headers("authorization");
         return gson.toJson(Map.of("games", service.listGames(authToken)));
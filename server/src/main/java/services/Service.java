@@ -1,13 +1,19 @@
 package services;
 
+import bot.BotPlayer;
 import chess.ChessGame.TeamColor;
 import dataaccess.DataAccess;
 import exception.ResponseException;
 import model.*;
 import org.mindrot.jbcrypt.BCrypt;
+import pgn.PgnWriter;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
 
 public class Service {
 
@@ -22,6 +28,10 @@ public class Service {
     }
 
      public AuthData registerUser(UserData userData) throws ResponseException {
+         // the bot's name is reserved even before the bot has played anywhere
+         if (BotPlayer.isBot(userData.username())) {
+             throw new ResponseException(403, "Error: already taken");
+         }
          dataAccess.createUser(userData);
          String authToken = dataAccess.createAuth(userData.username());
          return dataAccess.getAuth(authToken);
@@ -95,6 +105,65 @@ public class Service {
         }
     }
 
+    /**
+     * Seats the computer player in an open seat of a game
+     */
+    public void addBot(String authToken, TeamColor playerColor, int gameID) throws ResponseException {
+        try {
+            GameData gameData = dataAccess.getGame(gameID);
+            if (authToken == null || gameData == null || playerColor == null) {
+                throw new ResponseException(400, "Error: bad request");
+            }
+            validateAuthData(authToken);
+            if (gameData.username(playerColor) != null) {
+                throw new ResponseException(403, "Error: already taken");
+            }
+            // games reference their players in the users table, so the bot needs a row of its own
+            if (dataAccess.getUser(BotPlayer.USERNAME) == null) {
+                dataAccess.createUser(new UserData(BotPlayer.USERNAME, UUID.randomUUID().toString(), BotPlayer.USERNAME));
+            }
+            gameData = playerColor == TeamColor.WHITE ? gameData.withWhiteUser(BotPlayer.USERNAME) : gameData.withBlackUser(BotPlayer.USERNAME);
+            dataAccess.updateGame(gameData);
+        } catch (ResponseException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseException(500, "Error: " + e.getMessage());
+        }
+    }
+
+    public GameData getGame(String authToken, int gameID) throws ResponseException {
+        validateAuthData(authToken);
+        GameData gameData = dataAccess.getGame(gameID);
+        if (gameData == null) {
+            throw new ResponseException(400, "Error: bad request");
+        }
+        return gameData;
+    }
+
+    /**
+     * Writes a game as PGN, its moves so far in SAN, whether it is finished or still
+     * being played
+     */
+    public void writePgn(GameData gameData, Appendable out) throws ResponseException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", gameData.gameName());
+        tags.put("White", gameData.whiteUsername());
+        tags.put("Black", gameData.blackUsername());
+        try {
+            new PgnWriter().write(tags, gameData.game(), out);
+        } catch (IOException e) {
+            throw new ResponseException(500, "Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks the token belongs to someone signed in, for routes that read nothing else
+     * through the service
+     */
+    public void authorize(String authToken) throws ResponseException {
+        validateAuthData(authToken);
+    }
+
     private void validateAuthData(String authToken) throws ResponseException {
         if (dataAccess.getAuth(authToken) == null) {
             throw new ResponseException(401, "Error: unauthorized");
@@ -1,8 +1,12 @@
 package websocket;
 
+import analysis.AnalysisService;
+import bot.BotPlayer;
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPiece;
+import chess.GameStatus;
+import chess.InvalidMoveException;
 import chess.ChessGame.TeamColor;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -12,27 +16,61 @@ import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.*;
 import services.Service;
+import tablebase.Tablebase;
+import tablebase.TablebaseResult;
 import websocket.commands.*;
+import websocket.messages.AnalysisServerMessage;
 import websocket.messages.ErrorServerMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationServerMessage;
 import websocket.messages.ServerMessage;
 
-import javax.websocket.MessageHandler;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @WebSocket
 public class WebSocketHandler {
 
+    // bot moves turned away by a full engine queue are asked for again after this long
+    private static final long BOT_RETRY_MILLIS = 1000;
+
     WebSocketSessions wss = new WebSocketSessions();
     Gson gson = new Gson();
     Service service;
+    BotPlayer bot;
+    AnalysisService analysis;
+    Tablebase tablebase;
+    // moves in one game are applied one at a time, whether they come from a player or the bot
+    private final ConcurrentHashMap<Integer, Object> gameLocks = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService botRetries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bot-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final BotPlayer.MoveCallback botCallback = new BotPlayer.MoveCallback() {
+        @Override
+        public void onMove(int gameID, long positionKey, ChessMove move) {
+            botMoved(gameID, positionKey, move);
+        }
 
-    public WebSocketHandler(Service service) {
+        @Override
+        public void onFailure(int gameID, long positionKey, RuntimeException error) {
+            botFailed(gameID, error);
+        }
+    };
+
+    public WebSocketHandler(Service service, BotPlayer bot, AnalysisService analysis, Tablebase tablebase) {
         this.service = service;
+        this.bot = bot;
+        this.analysis = analysis;
+        this.tablebase = tablebase;
     }
 
     @OnWebSocketError
@@ -64,6 +102,10 @@ public class WebSocketHandler {
                     ResignGameCommand rgc = gson.fromJson(message, ResignGameCommand.class);
                     resignGame(rgc, session);
                 }
+                case ANALYZE -> {
+                    AnalyzeGameCommand agc = gson.fromJson(message, AnalyzeGameCommand.class);
+                    analyzeGame(agc, session);
+                }
             }
         } catch (Exception e) {
             ErrorServerMessage esm = new ErrorServerMessage("Error: " + e.getMessage());
@@ -89,87 +131,187 @@ public class WebSocketHandler {
         // broadcast notification
         NotificationServerMessage broadcast = new NotificationServerMessage(message);
         broadcastMessage(command.getGameID(), broadcast, session);
+        // picks a bot game back up if it was the bot's turn when the server last stopped
+        scheduleBotMove(command.getGameID());
+    }
+
+    /**
+     * Seats the bot under the game's lock, so a move being applied can't be written over,
+     * then lets it start thinking if it was seated on the side to move
+     */
+    public void seatBot(String authToken, TeamColor playerColor, int gameID) throws ResponseException {
+        synchronized (lockFor(gameID)) {
+            service.addBot(authToken, playerColor, gameID);
+        }
+        scheduleBotMove(gameID);
     }
 
     private void makeMove(MakeMoveGameCommand command, Session session) throws ResponseException {
         try {
-            // retrieve move and game
-            ChessMove move = command.getMove();
-            GameData gameData = retrieveGameData(command);
-            ChessGame game = gameData.game();
-            String userName = getUsername(command);
-
-            TeamColor color;
-            TeamColor opponentColor;
-            if (Objects.equals(getUsername(command), gameData.whiteUsername())) {
-                color = TeamColor.WHITE;
-                opponentColor = TeamColor.BLACK;
-            } else {
-                color = TeamColor.BLACK;
-                opponentColor = TeamColor.WHITE;
-            }
+            synchronized (lockFor(command.getGameID())) {
+                // retrieve move and game
+                ChessMove move = command.getMove();
+                GameData gameData = retrieveGameData(command);
 
-            String opponentUsername = color == TeamColor.WHITE ? gameData.blackUsername() : gameData.whiteUsername();
+                if (gameData.game().gameOver) {
+                    throw new ResponseException(500, "Invalid move, game is over");
+                }
 
-            if (game.gameOver) {
-                throw new ResponseException(500, "Invalid move, game is over");
+                // retrieve player data and confirm the right player is making the move
+                checkCorrectPlayer(command, gameData, move);
+                applyMove(gameData, move, getUsername(command), session);
             }
+        } catch (Exception e) {
+            throw new ResponseException(500, e.getMessage());
+        }
+        scheduleBotMove(command.getGameID());
+    }
 
-            // retrieve player data and confirm the right player is making the move
-            checkCorrectPlayer(command, gameData, move);
-            ChessPiece movedPiece = gameData.game().getBoard().getPiece(move.getStartPosition());
+    // whether the endgame tables have the position drawn with best play, so the game can end before the rules say so
+    private boolean isTablebaseDraw(ChessGame game, TeamColor toMove) {
+        TablebaseResult result = tablebase.probe(game.getBoard(), toMove);
+        return result != null && result.outcome() == TablebaseResult.Outcome.DRAW;
+    }
 
-            // if a valid move
-            if (game.validMoves(move.getStartPosition()).contains(move)) {
-                // make the move
-                game.makeMove(move);
+    /**
+     * Plays a move that has already been checked as coming from the right player, saves
+     * the game and tells everyone in it. Callers hold the game's lock
+     *
+     * @param moverSession the mover's connection, left out of the move notification.
+     *                     Null when the bot moved
+     */
+    private void applyMove(GameData gameData, ChessMove move, String moverName, Session moverSession) throws ResponseException {
+        ChessGame game = gameData.game();
+        int gameID = gameData.gameID();
+        TeamColor opponentColor = game.getTeamTurn() == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        String opponentUsername = gameData.username(opponentColor);
 
-                // check if checkmate or stalemate
-                if (game.isInCheckmate(opponentColor) || game.isInStalemate(opponentColor)) {
-                    game.gameOver = true;
-                }
+        // make the move if it's valid
+        try {
+            game.makeMove(move);
+        } catch (InvalidMoveException e) {
+            throw new ResponseException(500, "Invalid move");
+        }
 
-                // update database
-                updateGame(gameData.withUpdatedGame(game));
-                // tell everyone to update their game
-                LoadGameMessage lgm = new LoadGameMessage(gameData);
-                broadcastMessage(command.getGameID(), lgm, null);
-                // tell everyone but root client what move was made
-                NotificationServerMessage nsm = new NotificationServerMessage(getUsername(command) + " made move: " + move);
-                broadcastMessage(command.getGameID(), nsm, session);
-
-
-                // check if checkmate or stalemate
-                if (game.isInCheckmate(opponentColor)) {
-                    NotificationServerMessage checkMate = new NotificationServerMessage(opponentUsername + " is in checkmate");
-                    broadcastMessage(command.getGameID(), checkMate, null);
-                } else if (game.isInCheck(opponentColor)) {
-                        NotificationServerMessage check = new NotificationServerMessage(opponentUsername + " is in check");
-                        broadcastMessage(command.getGameID(), check, null);
-                    }
-                if (game.isInStalemate(opponentColor)) {
-                    NotificationServerMessage staleMate = new NotificationServerMessage(opponentUsername + " is in stalemate");
-                    broadcastMessage(command.getGameID(), staleMate, null);
-                }
+        // worked out once by the move, every check below reads the same status
+        GameStatus status = game.getStatus();
+        // endings the tablebase knows neither side can win are called as draws right away
+        boolean drawn = status == GameStatus.INSUFFICIENT_MATERIAL
+                || (!status.isGameOver() && isTablebaseDraw(game, opponentColor));
+        if (status.isGameOver() || drawn) {
+            game.gameOver = true;
+        }
+
+        // update database
+        updateGame(gameData.withUpdatedGame(game));
+        // tell everyone to update their game
+        LoadGameMessage lgm = new LoadGameMessage(gameData);
+        broadcastMessage(gameID, lgm, null);
+        // tell everyone but root client what move was made
+        NotificationServerMessage nsm = new NotificationServerMessage(moverName + " made move: " + move);
+        broadcastMessage(gameID, nsm, moverSession);
+
+        if (status == GameStatus.CHECKMATE) {
+            NotificationServerMessage checkMate = new NotificationServerMessage(opponentUsername + " is in checkmate");
+            broadcastMessage(gameID, checkMate, null);
+        } else if (status == GameStatus.STALEMATE) {
+            NotificationServerMessage staleMate = new NotificationServerMessage(opponentUsername + " is in stalemate");
+            broadcastMessage(gameID, staleMate, null);
+        } else if (status == GameStatus.THREEFOLD_REPETITION) {
+            NotificationServerMessage draw = new NotificationServerMessage("The game is a draw by threefold repetition");
+            broadcastMessage(gameID, draw, null);
+        } else if (status == GameStatus.FIFTY_MOVE_RULE) {
+            NotificationServerMessage draw = new NotificationServerMessage("The game is a draw by the fifty-move rule");
+            broadcastMessage(gameID, draw, null);
+        } else if (drawn) {
+            NotificationServerMessage draw = new NotificationServerMessage("The game is a draw, neither side can force checkmate");
+            broadcastMessage(gameID, draw, null);
+        } else if (status == GameStatus.CHECK) {
+            NotificationServerMessage check = new NotificationServerMessage(opponentUsername + " is in check");
+            broadcastMessage(gameID, check, null);
+        }
+    }
 
-            // if not a valid move
-            } else {
-                throw new ResponseException(500, "Invalid move");
+    /**
+     * Asks the bot for a move if it holds the seat whose turn it is. The search runs on
+     * the bot's own threads and the reply comes back through {@link #botMoved}, or
+     * {@link #botFailed} if no move could be chosen. When the engine's queue is full the
+     * players are told and the bot is asked again shortly
+     */
+    private void scheduleBotMove(int gameID) throws ResponseException {
+        if (bot == null) {
+            return;
+        }
+        GameData gameData = service.dataAccess.getGame(gameID);
+        if (gameData == null || gameData.game().gameOver) {
+            return;
+        }
+        if (BotPlayer.isBot(gameData.username(gameData.game().getTeamTurn()))) {
+            try {
+                bot.requestMove(gameID, gameData.game(), botCallback);
+            } catch (RejectedExecutionException e) {
+                NotificationServerMessage busy = new NotificationServerMessage("The computer player is busy, it will move shortly");
+                broadcastMessage(gameID, busy, null);
+                botRetries.schedule(() -> retryBotMove(gameID), BOT_RETRY_MILLIS, TimeUnit.MILLISECONDS);
             }
-        } catch (Exception e) {
-            throw new ResponseException(500, e.getMessage());
         }
     }
 
+    private void retryBotMove(int gameID) {
+        try {
+            scheduleBotMove(gameID);
+        } catch (ResponseException e) {
+            System.out.println("Error asking for bot move in game " + gameID + ": " + e.getMessage());
+        }
+    }
+
+    // the search threw, so the bot won't move in this position unless asked again
+    private void botFailed(int gameID, RuntimeException error) {
+        System.out.println("Error choosing bot move in game " + gameID + ": " + error);
+        try {
+            NotificationServerMessage failed = new NotificationServerMessage("The computer player couldn't choose a move: "
+                    + error.getMessage());
+            broadcastMessage(gameID, failed, null);
+        } catch (ResponseException e) {
+            System.out.println("Error reporting bot failure in game " + gameID + ": " + e.getMessage());
+        }
+    }
+
+    private void botMoved(int gameID, long positionKey, ChessMove move) {
+        try {
+            synchronized (lockFor(gameID)) {
+                GameData gameData = service.dataAccess.getGame(gameID);
+                // drop the move if the game ended or the bot lost its seat while it was thinking
+                if (gameData == null || gameData.game().gameOver
+                        || gameData.game().getPositionKey() != positionKey
+                        || !BotPlayer.isBot(gameData.username(gameData.game().getTeamTurn()))) {
+                    return;
+                }
+                applyMove(gameData, move, BotPlayer.USERNAME, null);
+            }
+            // the other seat may hold the bot too
+            scheduleBotMove(gameID);
+        } catch (ResponseException e) {
+            System.out.println("Error playing bot move in game " + gameID + ": " + e.getMessage());
+        }
+    }
+
+    private Object lockFor(int gameID) {
+        return gameLocks.computeIfAbsent(gameID, id -> new Object());
+    }
+
     private void leaveGame(LeaveGameCommand command, Session session) throws ResponseException {
-        // if player, set corresponding user to null
-        GameData gameData = retrieveGameData(command);
-        TeamColor color = getPlayerColor(command, gameData);
-        if (color != null) {
-            updateGame(switch (color) {
-                case WHITE -> gameData.withWhiteUser(null);
-                case BLACK -> gameData.withBlackUser(null);
-            });
+        // under the game's lock, so a bot move in flight can't write the seat back
+        synchronized (lockFor(command.getGameID())) {
+            // if player, set corresponding user to null
+            GameData gameData = retrieveGameData(command);
+            TeamColor color = getPlayerColor(command, gameData);
+            if (color != null) {
+                updateGame(switch (color) {
+                    case WHITE -> gameData.withWhiteUser(null);
+                    case BLACK -> gameData.withBlackUser(null);
+                });
+            }
         }
         // broadcast to all other participants
         String user = getUsername(command);
@@ -180,41 +322,74 @@ public class WebSocketHandler {
     }
 
     private void resignGame(ResignGameCommand command, Session session) throws ResponseException {
-        GameData gameData = retrieveGameData(command);
-        // check if player
-        if (getPlayerColor(command, gameData) == null) {
-            throw new ResponseException(500, "Only players can resign");
-        }
-        // check if game is already over
-        if (gameData.game().gameOver) {
-            throw new ResponseException(500, "Cannot resign, game is already over");
+        // under the game's lock, so a bot move in flight can't overwrite the resignation
+        synchronized (lockFor(command.getGameID())) {
+            GameData gameData = retrieveGameData(command);
+            // check if player
+            TeamColor color = getPlayerColor(command, gameData);
+            if (color == null) {
+                throw new ResponseException(500, "Only players can resign");
+            }
+            // check if game is already over
+            if (gameData.game().gameOver) {
+                throw new ResponseException(500, "Cannot resign, game is already over");
+            }
+            // end the game
+            gameData.game().resign(color);
+            updateGame(gameData);
         }
-        // end the game
-        gameData.game().gameOver = true;
-        updateGame(gameData);
         // broadcast who forfeited
         String user = getUsername(command);
         NotificationServerMessage message = new NotificationServerMessage(user + " resigned\nGame over");
         broadcastMessage(command.getGameID(), message,null);
     }
 
+    private void analyzeGame(AnalyzeGameCommand command, Session session) throws ResponseException {
+        if (analysis == null) {
+            throw new ResponseException(500, "Analysis is not available");
+        }
+        GameData gameData = retrieveGameData(command);
+        ChessGame game = gameData.game();
+        TeamColor toMove = game.getTeamTurn();
+        // the analysis copies the board, so the game can move on while it runs
+        analysis.analyze(getUsername(command), game, command.getDepth(), command.getLines())
+                .whenComplete((lines, error) -> {
+                    // only the one who asked gets the answer, and only if they're still connected
+                    if (!session.isOpen()) {
+                        return;
+                    }
+                    try {
+                        if (error != null) {
+                            sendMessage(new ErrorServerMessage("Error: analysis failed"), session);
+                        } else {
+                            sendMessage(new AnalysisServerMessage(command.getGameID(), toMove, lines), session);
+                        }
+                    } catch (ResponseException | RuntimeException e) {
+                        System.out.println("Error sending analysis: " + e.getMessage());
+                    }
+                });
+    }
+
     public void sendMessage(ServerMessage message, Session session) throws ResponseException {
-        try {
-            session.getRemote().sendString(new Gson().toJson(message));
-        } catch (IOException e) {
-            throw new ResponseException(500, e.getMessage());
+        // analyses answer from their own threads, and Jetty refuses a blocking send to a
+        // session that is still busy with another, so each session sends one at a time
+        synchronized (session) {
+            try {
+                session.getRemote().sendString(new Gson().toJson(message));
+            } catch (IOException e) {
+                throw new ResponseException(500, e.getMessage());
+            }
         }
     }
 
     public void broadcastMessage(Integer gameID, ServerMessage message, Session excludedSession) throws ResponseException {
         Set<Session> sessions = wss.getSessions(gameID);
+        if (sessions == null) {
+            return;
+        }
         for (Session session : sessions) {
             if (!session.equals(excludedSession)) {
-                try {
-                    session.getRemote().sendString(new Gson().toJson(message));
-                } catch (IOException e) {
-                    throw new ResponseException(500, e.getMessage());
-                }
+                sendMessage(message, session);
             }
         }
     }
@@ -0,0 +1,83 @@
+package analysis;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.PackedMove;
+import engine.AnalysisLine;
+import engine.SearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisCacheTests {
+
+    @Test
+    void getMissThenHit() {
+        AnalysisCache cache = new AnalysisCache(1024 * 1024);
+        assertNull(cache.get(42L, 4, 1));
+        cache.put(42L, 4, lines(2, 4));
+        assertEquals(2, cache.get(42L, 4, 2).size());
+
+        AnalysisCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.entries());
+    }
+
+    @Test
+    void getNeedsDepthAndLines() {
+        AnalysisCache cache = new AnalysisCache(1024 * 1024);
+        cache.put(42L, 6, lines(2, 6));
+        // deeper entries answer shallower requests, but not the other way around
+        assertEquals(1, cache.get(42L, 3, 1).size());
+        assertNull(cache.get(42L, 7, 1));
+        assertNull(cache.get(42L, 6, 3));
+    }
+
+    @Test
+    void putKeepsBetterEntry() {
+        AnalysisCache cache = new AnalysisCache(1024 * 1024);
+        cache.put(42L, 8, lines(3, 8));
+        cache.put(42L, 4, lines(1, 4));
+        assertNotNull(cache.get(42L, 8, 3));
+    }
+
+    @Test
+    void putEvictsLeastRecentlyUsed() {
+        // room for about one small entry per segment
+        AnalysisCache cache = new AnalysisCache(16 * 512);
+        // keys that differ only in their low bits share a segment
+        cache.put(1L, 4, lines(1, 4));
+        cache.put(2L, 4, lines(1, 4));
+        cache.get(1L, 4, 1);
+        cache.put(3L, 4, lines(1, 4));
+        cache.put(4L, 4, lines(1, 4));
+
+        AnalysisCache.Stats stats = cache.stats();
+        assertTrue(stats.evictions() > 0);
+        assertTrue(stats.bytes() <= 512);
+        assertNotNull(cache.get(4L, 4, 1));
+        assertNull(cache.get(2L, 4, 1));
+    }
+
+    @Test
+    void completedDepthIsShallowestLine() {
+        List<AnalysisLine> lines = new ArrayList<>(lines(1, 7));
+        lines.addAll(lines(1, 5));
+        assertEquals(5, AnalysisCache.completedDepth(lines));
+        assertEquals(0, AnalysisCache.completedDepth(List.of()));
+    }
+
+    private static List<AnalysisLine> lines(int count, int depth) {
+        List<AnalysisLine> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int move = PackedMove.of(8 + i, 16 + i);
+            ChessMove chessMove = new ChessMove(ChessPosition.of(2, i + 1), ChessPosition.of(3, i + 1), null);
+            lines.add(new AnalysisLine(new SearchResult(move, -i, depth, 100, 1000), List.of(chessMove)));
+        }
+        return lines;
+    }
+}
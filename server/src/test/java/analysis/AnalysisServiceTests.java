@@ -0,0 +1,98 @@
+package analysis;
+
+import chess.ChessGame;
+import engine.AnalysisLine;
+import engine.OpeningBook;
+import exception.ResponseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tablebase.Tablebase;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisServiceTests {
+    private AnalysisService analysis;
+
+    @BeforeEach
+    void setUp() {
+        // one analysis at a time and a short queue, so requests pile up behind each other
+        analysis = new AnalysisService(1, 2, 2, 2, 8, 3, 2000, 8, new AnalysisCache(1024 * 1024), OpeningBook.EMPTY,
+                Tablebase.EMPTY);
+    }
+
+    @AfterEach
+    void tearDown() {
+        analysis.close();
+    }
+
+    @Test
+    void analyzeSuccess() throws Exception {
+        List<AnalysisLine> lines = analysis.analyze("testUser", new ChessGame(), 3, 3).get(10, TimeUnit.SECONDS);
+        assertEquals(3, lines.size());
+        assertNotEquals(lines.get(0).principalVariation().get(0), lines.get(1).principalVariation().get(0));
+    }
+
+    @Test
+    void analyzeBadRequest() {
+        ResponseException depth = assertThrows(ResponseException.class,
+                () -> analysis.analyze("testUser", new ChessGame(), 9, 1));
+        assertEquals(400, depth.statusCode());
+        ResponseException lines = assertThrows(ResponseException.class,
+                () -> analysis.analyze("testUser", new ChessGame(), 3, 0));
+        assertEquals(400, lines.statusCode());
+    }
+
+    @Test
+    void analyzeSharesIdenticalRequests() throws Exception {
+        ChessGame game = new ChessGame();
+        // keeps the only thread busy so the identical requests below are still queued
+        CompletableFuture<List<AnalysisLine>> busy = analysis.analyze("otherUser", new ChessGame(), 8, 2);
+        CompletableFuture<List<AnalysisLine>> first = analysis.analyze("firstUser", game, 6, 1);
+        CompletableFuture<List<AnalysisLine>> second = analysis.analyze("secondUser", game, 6, 1);
+        assertSame(first, second);
+        busy.get(10, TimeUnit.SECONDS);
+        first.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void analyzeAnsweredFromCache() throws Exception {
+        List<AnalysisLine> searched = analysis.analyze("testUser", new ChessGame(), 5, 3).get(10, TimeUnit.SECONDS);
+        CompletableFuture<List<AnalysisLine>> cached = analysis.analyze("testUser", new ChessGame(), 4, 2);
+        assertTrue(cached.isDone());
+        assertEquals(searched.subList(0, 2), cached.get());
+        assertEquals(1, analysis.cache().stats().hits());
+    }
+
+    @Test
+    void analyzeUserQuota() throws Exception {
+        CompletableFuture<List<AnalysisLine>> first = analysis.analyze("testUser", new ChessGame(), 8, 1);
+        CompletableFuture<List<AnalysisLine>> second = analysis.analyze("testUser", new ChessGame(), 7, 1);
+        // a third distinct request is over the quota of two
+        ResponseException exception = assertThrows(ResponseException.class,
+                () -> analysis.analyze("testUser", new ChessGame(), 6, 1));
+        assertEquals(429, exception.statusCode());
+
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        assertDoesNotThrow(() -> analysis.analyze("testUser", new ChessGame(), 6, 1).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void analyzeCachesDepthReached() throws Exception {
+        // a millisecond is nowhere near enough for depth 8, the cap stops the search early
+        try (AnalysisService capped = new AnalysisService(1, 2, 2, 2, 8, 3, 1, 8, new AnalysisCache(1024 * 1024),
+                OpeningBook.EMPTY, Tablebase.EMPTY)) {
+            ChessGame game = new ChessGame();
+            List<AnalysisLine> lines = capped.analyze("testUser", game, 8, 1).get(10, TimeUnit.SECONDS);
+            int reached = lines.get(0).depth();
+            assertTrue(reached < 8);
+            assertNull(capped.cache().get(game.getPositionKey(), 8, 1));
+            assertNotNull(capped.cache().get(game.getPositionKey(), reached, 1));
+        }
+    }
+}
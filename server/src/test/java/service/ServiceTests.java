@@ -1,7 +1,13 @@
 package service;
 
+import bot.BotPlayer;
+import chess.ChessGame;
 import chess.ChessGame.TeamColor;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
 import dataaccess.DataAccess;
+import dataaccess.DataAccessException;
 import dataaccess.MemoryDataAccess;
 import exception.ResponseException;
 import model.*;
@@ -201,4 +207,95 @@ class ServiceTests {
         ResponseException exception = assertThrows(ResponseException.class, () -> service.joinGame(auth.authToken(), null, gameId));
         assertEquals(400, exception.statusCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void registerUserBotName() {
+        UserData user = new UserData(BotPlayer.USERNAME, "password", "email@test.com");
+        ResponseException exception = assertThrows(ResponseException.class, () -> service.registerUser(user));
+        assertEquals(403, exception.statusCode());
+    }
+
+    @Test
+    void addBotSuccess() throws ResponseException {
+        UserData user = new UserData("testUser", "password", "email@test.com");
+        AuthData auth = service.registerUser(user);
+        Integer gameId = service.createGame(auth.authToken(), "Chess Match");
+        service.joinGame(auth.authToken(), TeamColor.WHITE, gameId);
+        service.addBot(auth.authToken(), TeamColor.BLACK, gameId);
+        assertEquals(BotPlayer.USERNAME, dataAccess.getGame(gameId).blackUsername());
+        assertNotNull(dataAccess.getUser(BotPlayer.USERNAME));
+    }
+
+    @Test
+    void addBotAlreadyTakenColor() throws ResponseException {
+        UserData user = new UserData("testUser", "password", "email@test.com");
+        AuthData auth = service.registerUser(user);
+        Integer gameId = service.createGame(auth.authToken(), "Chess Match");
+        service.joinGame(auth.authToken(), TeamColor.WHITE, gameId);
+        ResponseException exception = assertThrows(ResponseException.class, () -> service.addBot(auth.authToken(), TeamColor.WHITE, gameId));
+        assertEquals(403, exception.statusCode());
+    }
+
+    @Test
+    void addBotInvalidGameID() throws ResponseException {
+        UserData user = new UserData("testUser", "password", "email@test.com");
+        AuthData auth = service.registerUser(user);
+        ResponseException exception = assertThrows(ResponseException.class, () -> service.addBot(auth.authToken(), TeamColor.BLACK, 999));
+        assertEquals(400, exception.statusCode());
+    }
+
+    @Test
+    void addBotInvalidToken() throws ResponseException {
+        UserData user = new UserData("testUser", "password", "email@test.com");
+        AuthData auth = service.registerUser(user);
+        Integer gameId = service.createGame(auth.authToken(), "Chess Match");
+        ResponseException exception = assertThrows(ResponseException.class, () -> service.addBot("invalidToken", TeamColor.BLACK, gameId));
+        assertEquals(401, exception.statusCode());
+    }
+
+    @Test
+    void gamePgnSuccess() throws ResponseException, InvalidMoveException, DataAccessException {
+        UserData user = new UserData("testUser", "password", "email@test.com");
+        AuthData auth = service.registerUser(user);
+        Integer gameId = service.createGame(auth.authToken(), "Chess Match");
+        service.joinGame(auth.authToken(), TeamColor.WHITE, gameId);
+        GameData gameData = dataAccess.getGame(gameId);
+        ChessGame game = gameData.game();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        game.makeMove(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        dataAccess.updateGame(gameData.withUpdatedGame(game));
+
+        StringBuilder pgn = new StringBuilder();
+        service.writePgn(service.getGame(auth.authToken(), gameId), pgn);
+        assertTrue(pgn.toString().contains("[Event \"Chess Match\"]\n"));
+        assertTrue(pgn.toString().contains("[White \"testUser\"]\n[Black \"?\"]\n[Result \"*\"]\n"));
+        assertTrue(pgn.toString().endsWith("\n1. e4 e5 *\n\n"));
+    }
+
+    @Test
+    void gamePgnInvalidToken() {
+        ResponseException exception = assertThrows(ResponseException.class, () -> service.getGame("invalidToken", 1));
+        assertEquals(401, exception.statusCode());
+    }
+
+    @Test
+    void gamePgnInvalidGameID() throws ResponseException {
+        UserData user = new UserData("testUser", "password", "email@test.com");
+        AuthData auth = service.registerUser(user);
+        ResponseException exception = assertThrows(ResponseException.class, () -> service.getGame(auth.authToken(), 999));
+        assertEquals(400, exception.statusCode());
+    }
+
+    @Test
+    void authorizeSuccess() throws ResponseException {
+        UserData user = new UserData("testUser", "password", "email@test.com");
+        AuthData auth = service.registerUser(user);
+        assertDoesNotThrow(() -> service.authorize(auth.authToken()));
+    }
+
+    @Test
+    void authorizeInvalidToken() {
+        ResponseException exception = assertThrows(ResponseException.class, () -> service.authorize("invalidToken"));
+        assertEquals(401, exception.statusCode());
+    }
+}
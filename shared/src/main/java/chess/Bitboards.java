@@ -0,0 +1,153 @@
+package chess;
+
+/**
+ * Square indexing, precomputed attack masks and bit helpers for the 64-bit
+ * board representation that backs {@link ChessBoard}.
+ * <p>
+ * Squares are numbered 0-63 with a1 = 0, h1 = 7 and h8 = 63, so bit n of a
+ * bitboard is set when square n is occupied.
+ */
+final class Bitboards {
+
+    static final long FILE_A = 0x0101010101010101L;
+    static final long FILE_H = FILE_A << 7;
+    static final long RANK_1 = 0xFFL;
+    static final long RANK_8 = RANK_1 << 56;
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    // indexed by team color ordinal, then square
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // ray directions, the first four step towards higher square numbers
+    static final int NORTH = 0;
+    static final int NORTH_EAST = 1;
+    static final int EAST = 2;
+    static final int NORTH_WEST = 3;
+    static final int SOUTH = 4;
+    static final int SOUTH_WEST = 5;
+    static final int WEST = 6;
+    static final int SOUTH_EAST = 7;
+    private static final int[] RAY_ROW_STEP = {1, 1, 0, 1, -1, -1, 0, -1};
+    private static final int[] RAY_COL_STEP = {0, 1, 1, -1, 0, -1, -1, 1};
+    static final long[][] RAYS = new long[8][64];
+    // squares strictly between two aligned squares, and the whole board line through them (0 if not aligned)
+    static final long[][] BETWEEN = new long[64][64];
+    static final long[][] LINE = new long[64][64];
+
+    static {
+        int[] knightRows = {1, 1, -1, -1, 2, 2, -2, -2};
+        int[] knightCols = {2, -2, 2, -2, 1, -1, 1, -1};
+        int[] kingRows = {1, 1, 1, 0, 0, -1, -1, -1};
+        int[] kingCols = {-1, 0, 1, -1, 1, -1, 0, 1};
+        for (int sq = 0; sq < 64; sq++) {
+            int row = row(sq);
+            int col = column(sq);
+            KNIGHT_ATTACKS[sq] = leaperMask(row, col, knightRows, knightCols);
+            KING_ATTACKS[sq] = leaperMask(row, col, kingRows, kingCols);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][sq] = leaperMask(row, col, new int[]{1, 1}, new int[]{-1, 1});
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][sq] = leaperMask(row, col, new int[]{-1, -1}, new int[]{-1, 1});
+            for (int dir = 0; dir < 8; dir++) {
+                long ray = 0L;
+                int r = row + RAY_ROW_STEP[dir];
+                int c = col + RAY_COL_STEP[dir];
+                while (inBounds(r, c)) {
+                    ray |= bit(square(r, c));
+                    r += RAY_ROW_STEP[dir];
+                    c += RAY_COL_STEP[dir];
+                }
+                RAYS[dir][sq] = ray;
+            }
+        }
+        for (int from = 0; from < 64; from++) {
+            for (int dir = 0; dir < 8; dir++) {
+                long ray = RAYS[dir][from];
+                // the opposite direction is always four entries away
+                long line = ray | RAYS[(dir + 4) & 7][from] | bit(from);
+                while (ray != 0) {
+                    int to = Long.numberOfTrailingZeros(ray);
+                    ray &= ray - 1;
+                    BETWEEN[from][to] = RAYS[dir][from] & ~RAYS[dir][to] & ~bit(to);
+                    LINE[from][to] = line;
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    private static boolean inBounds(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    private static long leaperMask(int row, int col, int[] rowSteps, int[] colSteps) {
+        long mask = 0L;
+        for (int i = 0; i < rowSteps.length; i++) {
+            if (inBounds(row + rowSteps[i], col + colSteps[i])) {
+                mask |= bit(square(row + rowSteps[i], col + colSteps[i]));
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return the square index of a 1-based row and column
+     */
+    static int square(int row, int col) {
+        return ((row - 1) << 3) + (col - 1);
+    }
+
+    static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * @return the 1-based row of a square index
+     */
+    static int row(int sq) {
+        return (sq >>> 3) + 1;
+    }
+
+    /**
+     * @return the 1-based column of a square index
+     */
+    static int column(int sq) {
+        return (sq & 7) + 1;
+    }
+
+    static long bit(int sq) {
+        return 1L << sq;
+    }
+
+    static ChessPosition position(int sq) {
+        return ChessPosition.ofSquare(sq);
+    }
+
+    /**
+     * Index of a piece in the per-piece bitboard array: white pieces come first,
+     * then black, each ordered by {@link ChessPiece.PieceType}
+     */
+    static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    static int pieceIndex(ChessPiece piece) {
+        return pieceIndex(piece.getTeamColor(), piece.getPieceType());
+    }
+
+    /**
+     * Attacks of a slider along one ray, stopping at (and including) the first
+     * occupied square
+     */
+    static long rayAttacks(int dir, int sq, long occupied) {
+        long ray = RAYS[dir][sq];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            // rays towards higher squares are blocked by their lowest bit, the rest by their highest
+            int blocker = dir < 4 ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+            ray ^= RAYS[dir][blocker];
+        }
+        return ray;
+    }
+}
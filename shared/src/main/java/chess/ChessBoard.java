@@ -2,8 +2,6 @@ package chess;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
@@ -13,9 +11,58 @@ import java.util.Objects;
  */
 public class ChessBoard implements Cloneable{
 
+    /**
+     * Castling right bits, see {@link #getCastlingRights()}
+     */
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = 15;
+    /**
+     * The en passant square when there isn't one
+     */
+    public static final int NO_SQUARE = -1;
+
     ChessPiece[][] squares = new ChessPiece[9][9];
-    ChessPosition whiteKingPos = null;
-    ChessPosition blackKingPos = null;
+    // saved with the squares, a game can't go on correctly without them
+    private int castlingRights = 0;
+    private int enPassantSquare = NO_SQUARE;
+
+    // bitboard view of squares: one board per piece (see Bitboards.pieceIndex), one per team and the occupancy.
+    // these aren't serialized and are rebuilt whenever squares is replaced, e.g. by Gson
+    private transient long[] pieceBoards = new long[12];
+    private transient long[] teamBoards = new long[2];
+    private transient long occupied = 0L;
+    // Zobrist key of the piece placement, kept up to date with every piece added or removed
+    private transient long pieceKey = 0L;
+    // running piece-square sums and phase, see PieceSquareTables
+    private transient int middlegameScore = 0;
+    private transient int endgameScore = 0;
+    private transient int phase = 0;
+    private transient ChessPiece[][] indexedSquares = squares;
+
+    // the packed undo keeps the move and its castle and en passant flags in its low bits, then the
+    // captured piece index + 1, and the castling rights and en passant file + 1 from before the move
+    private static final int UNDO_MOVE_MASK = (1 << 15) - 1 | PackedMove.CASTLE | PackedMove.EN_PASSANT;
+    private static final int UNDO_CAPTURE_SHIFT = 19;
+    private static final int UNDO_RIGHTS_SHIFT = 23;
+    private static final int UNDO_EN_PASSANT_SHIFT = 27;
+    private static final int UNDO_FIELD_MASK = 0xF;
+
+    // castling rights kept by a move from or to each square: a king or rook leaving its
+    // starting square, or a rook being captured on it, loses the rights that need it
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[Bitboards.square(1, 5)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[Bitboards.square(1, 8)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(1, 1)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[Bitboards.square(8, 5)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[Bitboards.square(8, 8)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(8, 1)] &= ~BLACK_QUEENSIDE;
+    }
 
     public ChessBoard() {
     }
@@ -26,12 +73,17 @@ public class ChessBoard implements Cloneable{
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(squares, that.squares);
+        // only the pieces are compared, castling rights and en passant are left out
+        ensureBitboards();
+        that.ensureBitboards();
+        // different keys always mean different boards, equal keys still need the pieces compared
+        return pieceKey == that.pieceKey && Arrays.equals(pieceBoards, that.pieceBoards);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        ensureBitboards();
+        return Long.hashCode(pieceKey);
     }
 
     @Override
@@ -61,7 +113,201 @@ public class ChessBoard implements Cloneable{
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow()][position.getColumn()] = piece;
+        ensureBitboards();
+        setSquare(Bitboards.square(position), piece);
+    }
+
+    private void setSquare(int sq, ChessPiece piece) {
+        ChessPiece[] row = squares[Bitboards.row(sq)];
+        int col = Bitboards.column(sq);
+        // remove whatever was there before from the bitboards
+        if (row[col] != null) {
+            toggleBits(row[col], sq);
+        }
+        row[col] = piece;
+        if (piece != null) {
+            toggleBits(piece, sq);
+        }
+    }
+
+    private void toggleBits(ChessPiece piece, int sq) {
+        long bit = Bitboards.bit(sq);
+        int index = Bitboards.pieceIndex(piece);
+        pieceBoards[index] ^= bit;
+        teamBoards[piece.getTeamColor().ordinal()] ^= bit;
+        occupied ^= bit;
+        pieceKey ^= Zobrist.PIECE_KEYS[index][sq];
+        // the bit is set now if the piece was just added, clear if it was just removed
+        int sign = (pieceBoards[index] & bit) != 0 ? 1 : -1;
+        middlegameScore += sign * PieceSquareTables.MIDDLEGAME[index][sq];
+        endgameScore += sign * PieceSquareTables.ENDGAME[index][sq];
+        phase += sign * PieceSquareTables.PHASE[index];
+    }
+
+    // rebuilds the bitboards if squares was swapped out from under them
+    private void ensureBitboards() {
+        if (indexedSquares == squares) {
+            return;
+        }
+        pieceBoards = new long[12];
+        teamBoards = new long[2];
+        occupied = 0L;
+        pieceKey = 0L;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                if (squares[row][col] != null) {
+                    toggleBits(squares[row][col], Bitboards.square(row, col));
+                }
+            }
+        }
+        indexedSquares = squares;
+    }
+
+    /**
+     * Gets the 64-bit Zobrist key of this board, which is updated incrementally as pieces
+     * move. Equal boards always have equal keys, so it can key position caches and
+     * spot repeated positions. It covers only the pieces, not the side to move, castling
+     * rights or en passant, see {@link #getZobristKey(ChessGame.TeamColor)}
+     *
+     * @return the Zobrist key of the board
+     */
+    public long getZobristKey() {
+        ensureBitboards();
+        return pieceKey;
+    }
+
+    /**
+     * Gets the Zobrist key of this board with a team to move, its castling rights and
+     * en passant square, the key searches and position caches use when they only have a
+     * board and the side to move
+     *
+     * @param toMove the team whose turn it is
+     * @return the 64-bit position key, equal to {@link ChessGame#getPositionKey()} for a
+     * game on this board with the same turn
+     */
+    public long getZobristKey(ChessGame.TeamColor toMove) {
+        long key = getZobristKey() ^ Zobrist.sideKey(toMove) ^ Zobrist.CASTLING_KEYS[castlingRights];
+        return enPassantSquare == NO_SQUARE ? key : key ^ Zobrist.EN_PASSANT_KEYS[Bitboards.column(enPassantSquare) - 1];
+    }
+
+    /**
+     * @return the castling rights still held, any of {@link #WHITE_KINGSIDE},
+     * {@link #WHITE_QUEENSIDE}, {@link #BLACK_KINGSIDE} and {@link #BLACK_QUEENSIDE}.
+     * A right only says the king and that rook haven't moved, castling can still be
+     * blocked or through check
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        if ((castlingRights & ~ALL_CASTLING) != 0) {
+            throw new IllegalArgumentException("Not a set of castling rights: " + castlingRights);
+        }
+        this.castlingRights = castlingRights;
+    }
+
+    /**
+     * Grants every castling right whose king and rook are on their starting squares, for
+     * boards whose pieces were set up by hand rather than moved there
+     */
+    public void inferCastlingRights() {
+        int rights = 0;
+        ChessPiece.PieceType king = ChessPiece.PieceType.KING;
+        ChessPiece.PieceType rook = ChessPiece.PieceType.ROOK;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            int row = color == ChessGame.TeamColor.WHITE ? 1 : 8;
+            int shift = color == ChessGame.TeamColor.WHITE ? 0 : 2;
+            if (!isPiece(row, 5, color, king)) {
+                continue;
+            }
+            if (isPiece(row, 8, color, rook)) {
+                rights |= WHITE_KINGSIDE << shift;
+            }
+            if (isPiece(row, 1, color, rook)) {
+                rights |= WHITE_QUEENSIDE << shift;
+            }
+        }
+        castlingRights = rights;
+    }
+
+    private boolean isPiece(int row, int col, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ChessPiece piece = squares[row][col];
+        return piece != null && piece.getTeamColor() == color && piece.getPieceType() == type;
+    }
+
+    /**
+     * @return the square a pawn just skipped with a two square move, from 0 (a1) to 63
+     * (h8), or {@link #NO_SQUARE}. It is only set when an enemy pawn stands beside the
+     * pawn, ready to take it en passant
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public void setEnPassantSquare(int enPassantSquare) {
+        int row = enPassantSquare == NO_SQUARE ? 3 : Bitboards.row(enPassantSquare);
+        if (enPassantSquare < NO_SQUARE || enPassantSquare > 63 || (row != 3 && row != 6)) {
+            throw new IllegalArgumentException("Not an en passant square: " + enPassantSquare);
+        }
+        this.enPassantSquare = enPassantSquare;
+    }
+
+    /**
+     * Gets the material and piece-square score of this board, kept up to date as pieces
+     * move so reading it costs nothing. {@link PieceSquareTables#score(ChessBoard)}
+     * computes the same number from scratch
+     *
+     * @return the tapered score in centipawns, positive when white is ahead
+     */
+    public int getScore() {
+        ensureBitboards();
+        return PieceSquareTables.taper(middlegameScore, endgameScore, phase);
+    }
+
+    /**
+     * @return how much material is left, from 0 with only pawns and kings up to
+     * {@link PieceSquareTables#MAX_PHASE} at the start
+     */
+    public int getPhase() {
+        ensureBitboards();
+        return phase;
+    }
+
+    /**
+     * @return bitboard of every piece of the given team and type, bit n set for square n
+     * with a1 = 0 and h8 = 63
+     */
+    public long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ensureBitboards();
+        return pieceBoards[Bitboards.pieceIndex(color, type)];
+    }
+
+    /**
+     * @return bitboard of every piece on the given team
+     */
+    public long teamPieces(ChessGame.TeamColor color) {
+        ensureBitboards();
+        return teamBoards[color.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    public long occupancy() {
+        ensureBitboards();
+        return occupied;
+    }
+
+    /**
+     * @return where the given team's king is, or null if it has no king on the board
+     */
+    ChessPosition kingPosition(ChessGame.TeamColor color) {
+        long king = pieces(color, ChessPiece.PieceType.KING);
+        return king == 0 ? null : Bitboards.position(Long.numberOfTrailingZeros(king));
     }
 
     /**
@@ -76,60 +322,221 @@ public class ChessBoard implements Cloneable{
     }
 
     public void movePiece(ChessMove move) {
-        ChessPosition startPos = move.getStartPosition();
-        ChessPiece piece = getPiece(startPos);
-        // add the piece to the end position
-
-        // if it's a pawn, add the promotion piece instead
-        if (move.getPromotionPiece() != null) {
-            ChessPiece newPiece = new ChessPiece(piece.getTeamColor(), move.getPromotionPiece());
-            this.addPiece(move.getEndPosition(), newPiece);
-        // if it's a king, update the king position
-        } else if (piece.getPieceType() == ChessPiece.PieceType.KING) {
-            if (piece.getTeamColor() == ChessGame.TeamColor.BLACK) {
-                blackKingPos = move.getEndPosition();
-            } else {
-                whiteKingPos = move.getEndPosition();
+        makeMove(move);
+    }
+
+    /**
+     * Moves a piece without checking the move is valid, remembering what is needed to take it back.
+     * A king moving two squares castles and a pawn moving diagonally onto the en passant
+     * square takes en passant
+     *
+     * @param move the move to make
+     * @return the record to pass to {@link #unmakeMove(MoveUndo)}
+     */
+    public MoveUndo makeMove(ChessMove move) {
+        return new MoveUndo(move, makeMove(withFlags(PackedMove.of(move))));
+    }
+
+    /**
+     * Adds the flags a packed move read from a {@link ChessMove} is missing, worked out
+     * from the pieces on this board
+     */
+    int withFlags(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece piece = pieceAt(from);
+        if (pieceAt(to) != null) {
+            move |= PackedMove.CAPTURE;
+        }
+        if (piece == null) {
+            return move;
+        }
+        int distance = Math.abs(to - from);
+        if (piece.getPieceType() == ChessPiece.PieceType.KING && distance == 2) {
+            move |= PackedMove.CASTLE;
+        } else if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            if (distance == 16) {
+                move |= PackedMove.DOUBLE_PUSH;
+            } else if (to == enPassantSquare && distance != 8) {
+                move |= PackedMove.EN_PASSANT | PackedMove.CAPTURE;
             }
-            this.addPiece(move.getEndPosition(), piece);
+        }
+        return move;
+    }
+
+    /**
+     * Takes back the last move made with {@link #makeMove(ChessMove)}. Moves have to be
+     * taken back in the reverse order they were made
+     *
+     * @param undo the record returned when the move was made
+     */
+    public void unmakeMove(MoveUndo undo) {
+        unmakeMove(undo.undo());
+    }
+
+    /**
+     * Moves a piece given as a {@link PackedMove} without checking the move is valid.
+     * Unlike {@link #makeMove(ChessMove)} nothing is allocated, the captured piece,
+     * castling rights and en passant square are packed into the returned int alongside
+     * the move. Castling and en passant need their {@link PackedMove} flags set
+     *
+     * @param move the packed move to make
+     * @return the value to pass to {@link #unmakeMove(int)}
+     */
+    public int makeMove(int move) {
+        ensureBitboards();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece piece = pieceAt(from);
+        int capturedSq = PackedMove.isEnPassant(move) ? enPassantVictim(to, piece.getTeamColor()) : to;
+        ChessPiece captured = pieceAt(capturedSq);
+        int undo = (move & UNDO_MOVE_MASK)
+                | (captured == null ? 0 : Bitboards.pieceIndex(captured) + 1) << UNDO_CAPTURE_SHIFT
+                | castlingRights << UNDO_RIGHTS_SHIFT
+                | (enPassantSquare == NO_SQUARE ? 0 : Bitboards.column(enPassantSquare)) << UNDO_EN_PASSANT_SHIFT;
+
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        if (promotion != null) {
+            piece = ChessPiece.of(piece.getTeamColor(), promotion);
+        }
+        if (capturedSq != to) {
+            setSquare(capturedSq, null);
+        }
+        setSquare(to, piece);
+        setSquare(from, null);
+        if (PackedMove.isCastle(move)) {
+            moveCastlingRook(from, to, false);
+        }
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        enPassantSquare = (move & PackedMove.DOUBLE_PUSH) != 0
+                ? enPassantTarget((from + to) / 2, piece.getTeamColor()) : NO_SQUARE;
+        return undo;
+    }
+
+    /**
+     * Takes back the last move made with {@link #makeMove(int)}. Moves have to be taken
+     * back in the reverse order they were made
+     *
+     * @param undo the value returned when the move was made
+     */
+    public void unmakeMove(int undo) {
+        int from = PackedMove.from(undo);
+        int to = PackedMove.to(undo);
+        ChessPiece piece = pieceAt(to);
+        if (PackedMove.isPromotion(undo)) {
+            piece = ChessPiece.of(piece.getTeamColor(), ChessPiece.PieceType.PAWN);
+        }
+        int captured = (undo >>> UNDO_CAPTURE_SHIFT) & UNDO_FIELD_MASK;
+        ChessPiece capturedPiece = captured == 0 ? null : ChessPiece.ofIndex(captured - 1);
+        if (PackedMove.isEnPassant(undo)) {
+            setSquare(to, null);
+            setSquare(enPassantVictim(to, piece.getTeamColor()), capturedPiece);
         } else {
-            // otherwise just add the original piece
-            this.addPiece(move.getEndPosition(), piece);
+            setSquare(to, capturedPiece);
+        }
+        setSquare(from, piece);
+        if (PackedMove.isCastle(undo)) {
+            moveCastlingRook(from, to, true);
         }
-        // remove the piece from starting position
-        this.addPiece(startPos, null);
+        castlingRights = (undo >>> UNDO_RIGHTS_SHIFT) & UNDO_FIELD_MASK;
+        // the square the opponent's pawn skipped is on the mover's sixth rank
+        int file = (undo >>> UNDO_EN_PASSANT_SHIFT) & UNDO_FIELD_MASK;
+        int row = piece.getTeamColor() == ChessGame.TeamColor.WHITE ? 6 : 3;
+        enPassantSquare = file == 0 ? NO_SQUARE : Bitboards.square(row, file);
+    }
+
+    // the rook castling with a king moving from kingFrom to kingTo, or back again
+    private void moveCastlingRook(int kingFrom, int kingTo, boolean back) {
+        int rookHome = kingTo > kingFrom ? kingFrom + 3 : kingFrom - 4;
+        int rookCastled = (kingFrom + kingTo) / 2;
+        int from = back ? rookCastled : rookHome;
+        ChessPiece rook = pieceAt(from);
+        setSquare(from, null);
+        setSquare(back ? rookHome : rookCastled, rook);
+    }
+
+    // where the pawn taken en passant stands, just behind the square the capture lands on
+    private static int enPassantVictim(int to, ChessGame.TeamColor mover) {
+        return mover == ChessGame.TeamColor.WHITE ? to - 8 : to + 8;
+    }
+
+    // the skipped square if an enemy pawn is there to take the pawn en passant
+    private int enPassantTarget(int skipped, ChessGame.TeamColor mover) {
+        // as in isSquareAttacked, an enemy pawn attacks the square if one of ours there would attack it
+        long enemyPawns = pieces(mover.opponent(), ChessPiece.PieceType.PAWN);
+        return (Bitboards.PAWN_ATTACKS[mover.ordinal()][skipped] & enemyPawns) != 0 ? skipped : NO_SQUARE;
+    }
+
+    /**
+     * @return the piece on a square index from 0 (a1) to 63 (h8), or null if it is empty
+     */
+    public ChessPiece pieceAt(int sq) {
+        return squares[Bitboards.row(sq)][Bitboards.column(sq)];
+    }
+
+    /**
+     * Gets the squares a piece would attack from a square given the pieces on this
+     * board, whether or not it is actually there. Pawns attack diagonally forward only,
+     * their pushes aren't attacks
+     *
+     * @param sq square index from 0 (a1) to 63 (h8)
+     * @return bitboard of the attacked squares, bit n set for square n
+     */
+    public long attacks(ChessPiece piece, int sq) {
+        return switch (piece.getPieceType()) {
+            case KING -> Bitboards.KING_ATTACKS[sq];
+            case QUEEN -> MagicAttacks.queenAttacks(sq, occupancy());
+            case BISHOP -> MagicAttacks.bishopAttacks(sq, occupancy());
+            case KNIGHT -> Bitboards.KNIGHT_ATTACKS[sq];
+            case ROOK -> MagicAttacks.rookAttacks(sq, occupancy());
+            case PAWN -> Bitboards.PAWN_ATTACKS[piece.getTeamColor().ordinal()][sq];
+        };
     }
 
     public boolean isInCheck(ChessGame.TeamColor teamColor) {
-        // store king position
-        ChessPosition kingPos = teamColor == ChessGame.TeamColor.WHITE ? whiteKingPos : blackKingPos;
-
-        // iterate over whole board
-        for (int row = 1; row < 9; row++) {
-            for (int col = 1; col < 9; col++) {
-                if (isInCheckHelper(row, col, teamColor, kingPos)) {
-                    return true;
-                }
-            }
+        long king = pieces(teamColor, ChessPiece.PieceType.KING);
+        // a board without a king can't be in check
+        if (king == 0) {
+            return false;
         }
-        return false;
+        return isSquareAttacked(Long.numberOfTrailingZeros(king), teamColor.opponent(), occupancy());
     }
 
-    private boolean isInCheckHelper(int row, int col, ChessGame.TeamColor teamColor, ChessPosition kingPos) {
-        ChessPosition pos = new ChessPosition(row, col);
-        ChessPiece piece = getPiece(pos);
-        // if there is a piece
-        if (piece != null && piece.getTeamColor() != teamColor) {
-            // calculate valid moves
-            Collection<ChessMove> moves = piece.pieceMoves(this, pos);
-            // check if a piece is threatening the king
-            for (ChessMove move : moves) {
-                if (move.getEndPosition().getRow() == kingPos.getRow() && move.getEndPosition().getColumn() == kingPos.getColumn()) {
-                    return true;
-                }
-            }
+    /**
+     * Determines if any piece of the given team attacks a square, whether or not the
+     * square is occupied
+     *
+     * @param position the square to test
+     * @param byColor  the attacking team
+     * @return True if a piece of byColor could capture on the square
+     */
+    public boolean isSquareAttacked(ChessPosition position, ChessGame.TeamColor byColor) {
+        return isSquareAttacked(Bitboards.square(position), byColor, occupancy());
+    }
+
+    /**
+     * Looks outward from the target square along pawn, knight, king and slider lines and
+     * stops at the first attacker found. The occupancy is passed in so callers can test
+     * the board with pieces lifted off it, e.g. a king stepping along a checking ray
+     */
+    boolean isSquareAttacked(int sq, ChessGame.TeamColor byColor, long occupancy) {
+        // an enemy pawn attacks the square if a friendly pawn on the square would attack it
+        if ((Bitboards.PAWN_ATTACKS[byColor.opponent().ordinal()][sq] & pieces(byColor, ChessPiece.PieceType.PAWN)) != 0) {
+            return true;
         }
-        return false;
+        if ((Bitboards.KNIGHT_ATTACKS[sq] & pieces(byColor, ChessPiece.PieceType.KNIGHT)) != 0) {
+            return true;
+        }
+        if ((Bitboards.KING_ATTACKS[sq] & pieces(byColor, ChessPiece.PieceType.KING)) != 0) {
+            return true;
+        }
+        long queens = pieces(byColor, ChessPiece.PieceType.QUEEN);
+        long diagonals = pieces(byColor, ChessPiece.PieceType.BISHOP) | queens;
+        if ((MagicAttacks.bishopAttacks(sq, occupancy) & diagonals) != 0) {
+            return true;
+        }
+        long orthogonals = pieces(byColor, ChessPiece.PieceType.ROOK) | queens;
+        return (MagicAttacks.rookAttacks(sq, occupancy) & orthogonals) != 0;
     }
 
     /**
@@ -140,7 +547,7 @@ public class ChessBoard implements Cloneable{
         // empty initial squares
         for (int row = 3; row < 7; row++) {
             for (int col = 1; col<=8; col++) {
-                squares[row][col] = null;
+                addPiece(ChessPosition.of(row, col), null);
             }
         }
 
@@ -159,43 +566,39 @@ public class ChessBoard implements Cloneable{
         // add white pieces
         for(int col=1; col<=8; col++) {
             // add back row piece and the pawn
-            squares[1][col] = new ChessPiece(ChessGame.TeamColor.WHITE, backRow.get(col));
-            squares[2][col] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+            addPiece(ChessPosition.of(1, col), ChessPiece.of(ChessGame.TeamColor.WHITE, backRow.get(col)));
+            addPiece(ChessPosition.of(2, col), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
         }
-        whiteKingPos = new ChessPosition(1, 5);
 
         // add black pieces
         for(int col=1; col<=8; col++) {
             // add back row piece and the pawn
-            squares[8][col] = new ChessPiece(ChessGame.TeamColor.BLACK, backRow.get(col));
-            squares[7][col] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+            addPiece(ChessPosition.of(8, col), ChessPiece.of(ChessGame.TeamColor.BLACK, backRow.get(col)));
+            addPiece(ChessPosition.of(7, col), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
-        blackKingPos = new ChessPosition(8, 5);
 
         backRow.add(ChessPiece.PieceType.ROOK);
+        castlingRights = ALL_CASTLING;
+        enPassantSquare = NO_SQUARE;
     }
 
     @Override
     public ChessBoard clone() {
         try {
+            ensureBitboards();
             ChessBoard clone = (ChessBoard) super.clone();
 
-            // make deepCopy of squares
-            ChessPiece[][] cloneSquares = new ChessPiece[9][9];
-            for (int row = 1; row <= 8; row++) {
-                for (int col = 1; col<=8; col++) {
-                    ChessPiece ogPiece = squares[row][col];
-                    cloneSquares[row][col] = (ogPiece != null) ? ogPiece.clone() : null;
-                }
+            // copy the rows of squares, pieces never change so the copy can share them
+            ChessPiece[][] cloneSquares = new ChessPiece[9][];
+            for (int row = 0; row < 9; row++) {
+                cloneSquares[row] = squares[row].clone();
             }
             clone.squares = cloneSquares;
 
-            // make deep copy of king positions
-            ChessPosition cloneWKP = whiteKingPos != null ? new ChessPosition(whiteKingPos.getRow(), whiteKingPos.getColumn()) : null;
-            ChessPosition cloneBKP = blackKingPos != null ? new ChessPosition(blackKingPos.getRow(), blackKingPos.getColumn()) : null;
-            // update clone king positions
-            clone.whiteKingPos = cloneWKP;
-            clone.blackKingPos = cloneBKP;
+            // copy the bitboards so they stay in sync with the copied squares
+            clone.pieceBoards = pieceBoards.clone();
+            clone.teamBoards = teamBoards.clone();
+            clone.indexedSquares = cloneSquares;
 
             return clone;
         } catch (CloneNotSupportedException e) {
@@ -1,6 +1,9 @@
 package chess;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -14,9 +17,33 @@ public class ChessGame {
     private TeamColor turn = TeamColor.WHITE;
     private final ChessBoard chessBoard = new ChessBoard();
     public boolean gameOver = false;
+    // the status of the position with statusKey, worked out again once the position changes
+    private transient GameStatus status;
+    private transient long statusKey;
+    // position keys since the last capture or pawn move, the current position last. Only
+    // these can repeat, since captures and pawn moves can't be undone
+    private long[] history = new long[16];
+    // moves since the last capture or pawn move
+    private int halfmoveClock = 0;
+    // how many of those moves came before the game was set up, so their keys aren't in
+    // history. history holds the other halfmoveClock - untracked keys plus one
+    private int untracked = 0;
+    // starts at 1 and goes up after each black move
+    private int fullmoveNumber = 1;
+    // how often each key in history occurs, rebuilt from history when the game is loaded
+    private transient Map<Long, Integer> repetitions;
+    // every move made since startFen as a PackedMove, the first moveCount entries used
+    private int[] moves = new int[32];
+    private int moveCount = 0;
+    // where the moves start, null for the usual starting position
+    private String startFen;
+    // the team that resigned, if one did
+    private TeamColor resigned;
 
     public ChessGame() {
         chessBoard.resetBoard();
+        // straight from the board, a subclass's getPositionKey can't run before it is set up
+        history[0] = chessBoard.getZobristKey(turn);
     }
 
     /**
@@ -49,12 +76,223 @@ public class ChessGame {
         return Objects.hash(turn, chessBoard);
     }
 
+    /**
+     * Gets the Zobrist key of the current position: the board's pieces, castling rights
+     * and en passant square combined with the team whose turn it is. Positions with the same key are, barring a hash
+     * collision, the same position
+     *
+     * @return the 64-bit position key
+     */
+    public long getPositionKey() {
+        return chessBoard.getZobristKey(turn);
+    }
+
+    /**
+     * Gets where the game stands for the team whose turn it is. The status is worked out
+     * once per position, after each move or the first time it is asked for, and
+     * returned as is until the board or the turn changes
+     *
+     * @return the status of the current position
+     */
+    public GameStatus getStatus() {
+        syncHistory();
+        long key = getPositionKey();
+        if (status == null || statusKey != key) {
+            status = computeStatus();
+            statusKey = key;
+        }
+        return status;
+    }
+
+    private GameStatus computeStatus() {
+        LegalMoveGenerator generator = new LegalMoveGenerator(chessBoard, turn);
+        boolean inCheck = generator.inCheck();
+        if (!generator.hasLegalMove(true)) {
+            return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        if (getRepetitionCount() >= 3) {
+            return GameStatus.THREEFOLD_REPETITION;
+        }
+        // a mate on the hundredth move still counts, it was checked for above
+        if (halfmoveClock >= 100) {
+            return GameStatus.FIFTY_MOVE_RULE;
+        }
+        if (isInsufficientMaterial()) {
+            return GameStatus.INSUFFICIENT_MATERIAL;
+        }
+        return inCheck ? GameStatus.CHECK : GameStatus.NORMAL;
+    }
+
+    /**
+     * @return moves made by either team since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        syncHistory();
+        return halfmoveClock;
+    }
+
+    /**
+     * @return the number of the current move, starting at 1 and going up once black has moved
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Starts the history over at the current position with clocks read from somewhere
+     * else, e.g. a FEN. The positions before it aren't known, so they only count
+     * towards the clock and nothing is kept for them
+     */
+    void setClocks(int halfmoveClock, int fullmoveNumber) {
+        this.halfmoveClock = halfmoveClock;
+        untracked = halfmoveClock;
+        history[0] = getPositionKey();
+        this.fullmoveNumber = fullmoveNumber;
+        repetitions = null;
+        status = null;
+        resigned = null;
+        startRecord();
+    }
+
+    /**
+     * @return how many moves have been made since {@link #getStartFen() the start}
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * @return the moves made since {@link #getStartFen() the start}, in order, as
+     * {@link PackedMove}s with their flags
+     */
+    public int[] getMoves() {
+        return Arrays.copyOf(moves, moveCount);
+    }
+
+    /**
+     * Gets the position the moves were made from: the usual starting position unless the
+     * game was set up from a FEN, or its pieces were moved by hand, since then
+     *
+     * @return the starting position as FEN
+     */
+    public String getStartFen() {
+        syncHistory();
+        return startFen != null ? startFen : Fen.START;
+    }
+
+    /**
+     * Ends the game with one team giving up
+     *
+     * @param team the team that resigned
+     */
+    public void resign(TeamColor team) {
+        resigned = team;
+        gameOver = true;
+    }
+
+    /**
+     * @return the team that resigned, or null if neither has
+     */
+    public TeamColor getResigned() {
+        return resigned;
+    }
+
+    // the moves from here on are recorded from the current position
+    private void startRecord() {
+        moveCount = 0;
+        startFen = Fen.format(this);
+    }
+
+    private void recordMove(int move) {
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount++] = move;
+    }
+
+    /**
+     * @return how many times the current position has come up, with the same team to
+     * move, counting this time
+     */
+    public int getRepetitionCount() {
+        syncHistory();
+        return repetitions().getOrDefault(history[halfmoveClock - untracked], 0);
+    }
+
+    private Map<Long, Integer> repetitions() {
+        if (repetitions == null) {
+            repetitions = new HashMap<>();
+            for (int i = 0; i <= halfmoveClock - untracked; i++) {
+                repetitions.merge(history[i], 1, Integer::sum);
+            }
+        }
+        return repetitions;
+    }
+
+    // records the position reached by a move, starting over after a capture or pawn move
+    private void recordPosition(boolean irreversible) {
+        long key = getPositionKey();
+        if (irreversible) {
+            startHistory(key);
+            return;
+        }
+        halfmoveClock++;
+        int index = halfmoveClock - untracked;
+        if (index == history.length) {
+            history = Arrays.copyOf(history, history.length * 2);
+        }
+        history[index] = key;
+        repetitions().merge(key, 1, Integer::sum);
+        status = null;
+    }
+
+    private void startHistory(long key) {
+        halfmoveClock = 0;
+        untracked = 0;
+        history[0] = key;
+        repetitions = null;
+        status = null;
+    }
+
+    // a position set up with setBoard or setTeamTurn, or pieces put straight on the
+    // board, starts a new history
+    private void syncHistory() {
+        long key = getPositionKey();
+        if (history[halfmoveClock - untracked] != key) {
+            startHistory(key);
+            // the recorded moves no longer lead here either
+            startRecord();
+        }
+    }
+
+    // bare kings, or kings and a single bishop or knight, can never give mate
+    private boolean isInsufficientMaterial() {
+        long occupied = chessBoard.occupancy();
+        if (Long.bitCount(occupied) > 3) {
+            return false;
+        }
+        long minors = 0L;
+        for (TeamColor color : TeamColor.values()) {
+            minors |= chessBoard.pieces(color, ChessPiece.PieceType.BISHOP) | chessBoard.pieces(color, ChessPiece.PieceType.KNIGHT);
+        }
+        long kings = chessBoard.pieces(TeamColor.WHITE, ChessPiece.PieceType.KING)
+                | chessBoard.pieces(TeamColor.BLACK, ChessPiece.PieceType.KING);
+        return (occupied & ~kings) == minors;
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
     public enum TeamColor {
         WHITE,
-        BLACK
+        BLACK;
+
+        /**
+         * @return the team playing against this one
+         */
+        public TeamColor opponent() {
+            return this == WHITE ? BLACK : WHITE;
+        }
     }
 
     /**
@@ -69,10 +307,8 @@ public class ChessGame {
         if (piece == null) {
             return null;
         }
-        Collection<ChessMove> movesToTest = piece.pieceMoves(chessBoard, startPosition);
-        // check each move if it moves
-        movesToTest.removeIf(move -> testIntoCheck(move, piece.getTeamColor()));
-        return movesToTest;
+        // the legal generator already leaves out moves that expose the king
+        return new LegalMoveGenerator(chessBoard, piece.getTeamColor()).movesFrom(startPosition);
     }
 
     /**
@@ -92,19 +328,26 @@ public class ChessGame {
         // if it's the right team's turn
         if (piece.getTeamColor() == getTeamTurn()) {
 
-            // Otherwise just return the regular list of valid moves
-            Collection<ChessMove> moves = validMoves(move.getStartPosition());
-            // check if it's a valid move
-            if (moves.contains(move)) {
-                // make the move
-                chessBoard.movePiece(move);
-            }
-            // otherwise throw an error
-            else {
-                throw new InvalidMoveException("Invalid move: move= " + move + ", validMoves: " + moves);
+            // check it against the packed legal moves of the piece, without building ChessMove objects
+            MoveList moves = new MoveList();
+            new LegalMoveGenerator(chessBoard, turn).generateFrom(Bitboards.square(move.getStartPosition()), moves);
+            int legalMove = moves.find(PackedMove.of(move));
+            if (legalMove == PackedMove.NONE) {
+                throw new InvalidMoveException("Invalid move: move= " + move + ", validMoves: " + moves.toChessMoves());
             }
+            syncHistory();
+            // make the move
+            chessBoard.makeMove(legalMove);
+            recordMove(legalMove);
             // update team turn
-            setTeamTurn(getTeamTurn() == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE );
+            setTeamTurn(getTeamTurn().opponent());
+            if (turn == TeamColor.WHITE) {
+                fullmoveNumber++;
+            }
+            // captures and pawn moves start the history over
+            recordPosition(PackedMove.isCapture(legalMove) || piece.getPieceType() == ChessPiece.PieceType.PAWN);
+            // settle the new position's status now, callers ask for it after every move
+            getStatus();
         }
         // otherwise throw an error
         else {
@@ -129,38 +372,26 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        // first check if king in check
-        if (isInCheck(teamColor)) {
-            // check if any piece can move so the king isn't in check
-            for (int row=0; row<9; row++) {
-                for (int col = 0; col < 9; col++) {
-                    // if that piece can move out of check, not in checkmate
-                    if (canMoveOutOfCheck(teamColor, row, col)) {
-                        return false;
-                    }
-                }
+        if (teamColor == turn) {
+            if (getStatus() == GameStatus.CHECKMATE) {
+                gameOver = true;
+                return true;
             }
-            // if no piece can move so that the king isn't in check, you're in checkmate
+            return false;
+        }
+        LegalMoveGenerator generator = new LegalMoveGenerator(chessBoard, teamColor);
+        // in check with no move that gets out of it
+        if (generator.inCheck() && !canMoveOutOfCheck(generator)) {
             gameOver = true;
             return true;
         }
         return false;
     }
 
-    // Determines if a piece can move so that the king is not in check
-    private boolean canMoveOutOfCheck(TeamColor teamColor, int row, int col) {
-        // checks if a piece can move so that the king isn't in check
-        ChessPosition pos = new ChessPosition(row, col);
-        ChessPiece piece = chessBoard.getPiece(pos);
-        if (piece != null && piece.getTeamColor() == teamColor) {
-            for (ChessMove move : validMoves(pos)) {
-                // if it can move so that the king isn't in check, return true
-                if (!testIntoCheck(move, teamColor)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    // Determines if any piece can move so that the king is not in check
+    private boolean canMoveOutOfCheck(LegalMoveGenerator generator) {
+        // every generated move already gets the king out of check
+        return generator.hasLegalMove(true);
     }
 
     /**
@@ -171,39 +402,26 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        ChessPosition kingPos = teamColor == TeamColor.WHITE ? chessBoard.whiteKingPos : chessBoard.blackKingPos;
-        // check if current turn, if not in checkmate, and if the king can't move
-        if (getTeamTurn() == teamColor && !isInCheck(teamColor) && validMoves(kingPos).isEmpty()) {
-            // if any pieces of that team have moves, you're not in stalemate
-            if (!doPiecesHaveMoves(teamColor)) {
-                gameOver = true;
-                return true;
-            }
+        // check if current turn and if not in check
+        if (getTeamTurn() != teamColor) {
+            return false;
+        }
+        if (getStatus() == GameStatus.STALEMATE) {
+            gameOver = true;
+            return true;
         }
         return false;
     }
 
-    // Determines if any piece has moves
+    // Determines if any piece other than the king has moves
     public boolean doPiecesHaveMoves(TeamColor teamColor) {
-        for (int row = 1; row < 9; row++) {
-            for (int col = 1; col < 9; col++) {
-                ChessPosition pos = new ChessPosition(row, col);
-                ChessPiece piece = chessBoard.getPiece(pos);
-                // if piece exists, is same color, and isn't the king
-                if (piece != null && piece.getTeamColor() == teamColor && piece.getPieceType() != ChessPiece.PieceType.KING) {
-                    // if it has possible moves return true
-                    if (!validMoves(pos).isEmpty()) {
-                        return true;
-                    }
-                }
-            }
-        }
-        // if no pieces have moves return false
-        return false;
+        return new LegalMoveGenerator(chessBoard, teamColor).hasLegalMove(false);
     }
 
     /**
-     * Sets this game's chessboard with a given board
+     * Sets this game's chessboard with a given board. Its pieces are taken as set up by
+     * hand: every king and rook still on its starting square may castle, and there is
+     * no en passant capture
      *
      * @param board the new board to use
      */
@@ -215,25 +433,14 @@ public class ChessGame {
                 setBoardHelper(board, row, col);
             }
         }
+        chessBoard.inferCastlingRights();
+        chessBoard.setEnPassantSquare(ChessBoard.NO_SQUARE);
     }
 
     private void setBoardHelper(ChessBoard board, int row, int col) {
-        ChessPosition pos = new ChessPosition(row, col);
-        // if there is a piece
-        if (board.getPiece(pos) != null) {
-            ChessPiece piece = board.getPiece(pos);
-            chessBoard.addPiece(pos, piece);
-            // update king location if it's a king
-            if (piece.getPieceType() == ChessPiece.PieceType.KING) {
-                if (piece.getTeamColor() == TeamColor.WHITE) {
-                    chessBoard.whiteKingPos = pos;
-                } else {
-                    chessBoard.blackKingPos = pos;
-                }
-            }
-        } else {
-            chessBoard.addPiece(pos, null);
-        }
+        ChessPosition pos = ChessPosition.of(row, col);
+        // copy the piece or empty square, the board keeps track of its kings
+        chessBoard.addPiece(pos, board.getPiece(pos));
     }
 
     /**
@@ -245,26 +452,19 @@ public class ChessGame {
         return chessBoard;
     }
 
+    /**
+     * Determines if making a move would leave the given team in check. The move is made
+     * and taken back on this game's board, so the board must not be read concurrently
+     *
+     * @param move      the move to test
+     * @param teamColor the team whose king is tested
+     * @return True if the team would be in check after the move
+     */
     public boolean testIntoCheck(ChessMove move, ChessGame.TeamColor teamColor) {
-        // copy the chessboard and move the piece
-        ChessBoard cloneBoard = chessBoard.clone();
-
-        ChessPosition startPos = move.getStartPosition();
-        ChessPosition endPos = move.getEndPosition();
-        ChessPiece piece = cloneBoard.getPiece(startPos);
-
-        cloneBoard.movePiece(move);
-
-        // update king position if king was moved
-        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
-            if (piece.getTeamColor() == ChessGame.TeamColor.WHITE) {
-                cloneBoard.whiteKingPos = endPos;
-            } else {
-                cloneBoard.blackKingPos = endPos;
-            }
-        }
-        return cloneBoard.isInCheck(teamColor);
+        // make the move in place and take it back instead of copying the board
+        MoveUndo undo = chessBoard.makeMove(move);
+        boolean inCheck = chessBoard.isInCheck(teamColor);
+        chessBoard.unmakeMove(undo);
+        return inCheck;
     }
 }
-
-
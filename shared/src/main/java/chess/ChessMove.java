@@ -35,7 +35,10 @@ public class ChessMove {
 
     @Override
     public int hashCode() {
-        return Objects.hash(startPosition, endPosition, promotionPiece);
+        // spelled out so hashing a move doesn't box and allocate a varargs array
+        int result = Objects.hashCode(startPosition);
+        result = 31 * result + Objects.hashCode(endPosition);
+        return 31 * result + Objects.hashCode(promotionPiece);
     }
 
     @Override
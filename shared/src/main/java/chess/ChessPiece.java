@@ -1,5 +1,11 @@
 package chess;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
@@ -10,8 +16,20 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPiece.Adapter.class)
 public class ChessPiece implements Cloneable{
 
+    // one shared instance per color and type, indexed like the board's piece bitboards
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[Bitboards.pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
 
@@ -20,6 +38,21 @@ public class ChessPiece implements Cloneable{
         this.type = type;
     }
 
+    /**
+     * Gets the shared instance for a piece instead of creating a new one. Pieces
+     * never change, so one instance can sit on any number of squares and boards
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return PIECES[Bitboards.pieceIndex(pieceColor, type)];
+    }
+
+    /**
+     * @return the shared instance for an index from {@link Bitboards#pieceIndex}
+     */
+    static ChessPiece ofIndex(int index) {
+        return PIECES[index];
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -31,7 +64,7 @@ public class ChessPiece implements Cloneable{
 
     @Override
     public int hashCode() {
-        return Objects.hash(pieceColor, type);
+        return 31 * Objects.hashCode(pieceColor) + Objects.hashCode(type);
     }
 
     @Override
@@ -105,6 +138,38 @@ public class ChessPiece implements Cloneable{
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition position) {
         return CalcPieceMoves.calcMoves(board, position);
     }
+
+    /**
+     * Reads and writes the usual {"pieceColor":..,"type":..} form, handing back shared instances
+     */
+    static final class Adapter extends TypeAdapter<ChessPiece> {
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            out.beginObject();
+            out.name("pieceColor").value(piece.pieceColor.name());
+            out.name("type").value(piece.type.name());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            ChessGame.TeamColor color = null;
+            PieceType type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieceColor" -> color = ChessGame.TeamColor.valueOf(in.nextString());
+                    case "type" -> type = PieceType.valueOf(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (color == null || type == null) {
+                throw new IOException("Chess piece needs both a pieceColor and a type");
+            }
+            return of(color, type);
+        }
+    }
 }
 
 class CalcPieceMoves {
@@ -125,50 +190,36 @@ class PawnMovesCalc {
         Collection<ChessMove> validMoves = new ArrayList<>();
 
         int row = position.getRow();
-        int col = position.getColumn();
-        // determines which direction the pawn is moving
-        int step = 1;
+        int sq = Bitboards.square(position);
         ChessGame.TeamColor color = board.getPiece(position).getTeamColor();
-        // if black, change the direction
-        if (color == ChessGame.TeamColor.BLACK) {
-            step = -1;
-        }
+        long empty = ~board.occupancy();
+        // determines which direction the pawn is moving, black moves towards lower squares
+        int step = color == ChessGame.TeamColor.WHITE ? 8 : -8;
 
-        ChessPosition endPos = new ChessPosition(row+step, col);
+        int endSq = sq + step;
         // if the space in front is on the board and isn't blocked
-        if (DetermineInBounds.inBounds(row+step, col) && board.getPiece(endPos) == null) {
+        if (endSq >= 0 && endSq < 64 && (empty & Bitboards.bit(endSq)) != 0) {
+            ChessPosition endPos = Bitboards.position(endSq);
 
             // check if it's the initial move
             if ((row == 2 && color == ChessGame.TeamColor.WHITE) || (row == 7 && color == ChessGame.TeamColor.BLACK)) {
-                // add en passant move if two spaces in front is empty
-                ChessPosition enPassant = new ChessPosition(row + (2 * step), col);
-                if (board.getPiece(enPassant) == null) {
-                    validMoves.add(new ChessMove(position, enPassant, null));
+                // add double move if two spaces in front is empty
+                int doubleSq = endSq + step;
+                if ((empty & Bitboards.bit(doubleSq)) != 0) {
+                    validMoves.add(new ChessMove(position, Bitboards.position(doubleSq), null));
                 }
             }
             // handle if it needs to be promoted, otherwise just add the space in front;
-            validMoves.addAll(HandlePawnPromotion.promotionMoves(row,color,position,endPos));
+            HandlePawnPromotion.addMoves(validMoves, row, color, position, endPos);
         }
 
-        // calculate pawn attacks
-
-        // calculate left attack
-        if(DetermineInBounds.inBounds(row+step, col-1)) {
-            ChessPosition leftAttack = new ChessPosition(row+step, col-1);
-            // if the position is occupied by an enemy piece
-            if(board.getPiece(leftAttack) != null && DetermineCanAttack.canAttack(board, position, leftAttack)) {
-                // check if it can be promoted
-                validMoves.addAll(HandlePawnPromotion.promotionMoves(row, color, position, leftAttack));
-            }
-        }
-        // calculate the right attack
-        if(DetermineInBounds.inBounds(row+step, col+1)) {
-            ChessPosition rightAttack = new ChessPosition(row+step, col+1);
-            // if the position is occupied by an enemy piece, add the move
-            if(board.getPiece(rightAttack) != null && DetermineCanAttack.canAttack(board, position, rightAttack)) {
-                // check if it can be promoted
-                validMoves.addAll(HandlePawnPromotion.promotionMoves(row, color, position, rightAttack));
-            }
+        // calculate pawn attacks on enemy pieces
+        long attacks = Bitboards.PAWN_ATTACKS[color.ordinal()][sq] & board.teamPieces(color.opponent());
+        while (attacks != 0) {
+            int attackSq = Long.numberOfTrailingZeros(attacks);
+            attacks &= attacks - 1;
+            // check if it can be promoted
+            HandlePawnPromotion.addMoves(validMoves, row, color, position, Bitboards.position(attackSq));
         }
         return validMoves;
     }
@@ -176,126 +227,58 @@ class PawnMovesCalc {
 
 class KingMovesCalc {
     static Collection<ChessMove> calcMoves(ChessBoard board, ChessPosition position) {
-        return CircularMovesCalc.calcMoves(new int[]{1, 1, 1, 0, 0, -1, -1, -1}, new int[]{-1, 0, 1, -1, 1, -1, 0, 1}, board, position);
+        return CircularMovesCalc.calcMoves(Bitboards.KING_ATTACKS, board, position);
     }
 }
 
 class KnightMovesCalc {
     static Collection<ChessMove> calcMoves(ChessBoard board, ChessPosition position) {
-        return CircularMovesCalc.calcMoves(new int[]{1, 1, -1, -1, 2, 2, -2, -2}, new int[]{2, -2, 2, -2, 1, -1, 1, -1}, board, position);
+        return CircularMovesCalc.calcMoves(Bitboards.KNIGHT_ATTACKS, board, position);
     }
 }
 
 class QueenMovesCalc {
     static Collection<ChessMove> calcMoves(ChessBoard board, ChessPosition position) {
-        // calculates orthogonal moves
-        Collection<ChessMove> validMoves = DirectionMovesCalc.calcMoves(new int[]{1, -1, 0, 0}, new int[]{0, 0, -1, 1}, board, position);
-        // calculates diagonal moves
-        validMoves.addAll(DirectionMovesCalc.calcMoves(new int[]{1, 1, -1, -1}, new int[]{-1, 1, -1, 1}, board, position));
-        return validMoves;
+        // calculates orthogonal and diagonal moves with one table lookup each
+        return TargetMovesCalc.calcMoves(MagicAttacks.queenAttacks(Bitboards.square(position), board.occupancy()), board, position);
     }
 }
 
 class RookMovesCalc {
     static Collection<ChessMove> calcMoves(ChessBoard board, ChessPosition position) {
-        return DirectionMovesCalc.calcMoves(new int[]{1, -1, 0, 0}, new int[]{0, 0, -1, 1}, board, position);
+        return TargetMovesCalc.calcMoves(MagicAttacks.rookAttacks(Bitboards.square(position), board.occupancy()), board, position);
     }
 }
 
 class BishopMovesCalc {
     static Collection<ChessMove> calcMoves(ChessBoard board, ChessPosition position) {
-        return DirectionMovesCalc.calcMoves(new int[]{1, 1, -1, -1}, new int[]{-1, 1, -1, 1}, board, position);
+        return TargetMovesCalc.calcMoves(MagicAttacks.bishopAttacks(Bitboards.square(position), board.occupancy()), board, position);
     }
 }
 
-class DirectionMovesCalc {
-    static Collection<ChessMove> calcMoves(int[] rowDir, int[] colDir, ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> validMoves = new ArrayList<>();
-
-        for (int i=0;i<4;i++) {
-
-            int row = position.getRow();
-            int col = position.getColumn();
-            // while it's on the board
-            while (DetermineInBounds.inBounds(row,col)) {
-                // increment in given direction
-                row += rowDir[i];
-                col += colDir[i];
-
-                // catch if it is now off of the board
-                if(!DetermineInBounds.inBounds(row,col)) {
-                    break;
-                }
-
-                ChessPosition endPos = new ChessPosition(row, col);
-
-                // if the space isn't empty
-                if(board.getPiece(endPos) != null) {
-                    // if it can attack it
-                    if(DetermineCanAttack.canAttack(board, position, endPos)) {
-                        validMoves.add(new ChessMove(position, endPos, null));
-                    }
-                    // ignore rest of direction
-                    break;
-                }
-                // otherwise, add the move
-                validMoves.add(new ChessMove(position, endPos, null));
-            }
-        }
-        return validMoves;
+class CircularMovesCalc {
+    static Collection<ChessMove> calcMoves(long[] attackTable, ChessBoard board, ChessPosition position) {
+        return TargetMovesCalc.calcMoves(attackTable[Bitboards.square(position)], board, position);
     }
 }
 
-class CircularMovesCalc {
-    static Collection<ChessMove> calcMoves(int[] rowDir, int[] colDir, ChessBoard board, ChessPosition position) {
+class TargetMovesCalc {
+    static Collection<ChessMove> calcMoves(long attacks, ChessBoard board, ChessPosition position) {
         Collection<ChessMove> validMoves = new ArrayList<>();
 
-        for (int i=0; i<8; i++) {
-            int row = position.getRow();
-            int col = position.getColumn();
-
-            row += rowDir[i];
-            col += colDir[i];
-
-
-            // catch if it is now off of the board
-            if(!DetermineInBounds.inBounds(row,col)) {
-                continue;
-            }
-
-            ChessPosition endPos = new ChessPosition(row, col);
-
-            // if the space isn't empty
-            if(board.getPiece(endPos) != null) {
-                // if it can attack it
-                if(DetermineCanAttack.canAttack(board, position, endPos)) {
-                    validMoves.add(new ChessMove(position, endPos, null));
-                }
-            }
-            // otherwise, add the move
-            else {
-                validMoves.add(new ChessMove(position, endPos, null));
-            }
+        // a piece can move to any attacked square not held by its own team
+        long targets = attacks & ~board.teamPieces(board.getPiece(position).getTeamColor());
+        while (targets != 0) {
+            int endSq = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            validMoves.add(new ChessMove(position, Bitboards.position(endSq), null));
         }
         return validMoves;
     }
 }
 
-class DetermineCanAttack {
-    static boolean canAttack(ChessBoard board, ChessPosition position1, ChessPosition position2) {
-        return (board.getPiece(position1).getTeamColor() != board.getPiece(position2).getTeamColor());
-    }
-}
-
-class DetermineInBounds {
-    static boolean inBounds(int row, int col) {
-        return(row>=1 && row<=8 && col>=1 && col<=8);
-    }
-}
-
 class HandlePawnPromotion {
-    static Collection<ChessMove> promotionMoves(int row, ChessGame.TeamColor color, ChessPosition position1, ChessPosition position2) {
-        Collection<ChessMove> validMoves = new ArrayList<>();
+    static void addMoves(Collection<ChessMove> validMoves, int row, ChessGame.TeamColor color, ChessPosition position1, ChessPosition position2) {
         // if it needs to be promoted
         if ((row == 7 && color == ChessGame.TeamColor.WHITE) || (row == 2 && color == ChessGame.TeamColor.BLACK)) {
             validMoves.add(new ChessMove(position1, position2, ChessPiece.PieceType.QUEEN));
@@ -307,7 +290,5 @@ class HandlePawnPromotion {
         else {
             validMoves.add(new ChessMove(position1, position2, null));
         }
-
-        return validMoves;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,11 @@
 package chess;
 
-import java.util.Objects;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 
 /**
  * Represents a single square position on a chess board
@@ -8,8 +13,18 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPosition.Adapter.class)
 public class ChessPosition {
 
+    // one shared instance per board square, indexed like Bitboards squares (a1 = 0)
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            SQUARES[sq] = new ChessPosition((sq >>> 3) + 1, (sq & 7) + 1);
+        }
+    }
+
     private final int row;
     private final int col;
 
@@ -18,6 +33,27 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Gets the shared instance for a square instead of creating a new one. Positions
+     * off the board aren't shared and are created as usual
+     *
+     * @param row 1-based row, 1 codes for the bottom row
+     * @param col 1-based column, 1 codes for the left column
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return SQUARES[((row - 1) << 3) + (col - 1)];
+    }
+
+    /**
+     * @return the shared instance for a square index from 0 (a1) to 63 (h8)
+     */
+    static ChessPosition ofSquare(int sq) {
+        return SQUARES[sq];
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -29,7 +65,7 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        return 31 * row + col;
     }
 
     @Override
@@ -54,4 +90,33 @@ public class ChessPosition {
     public int getColumn() {
         return col;
     }
+
+    /**
+     * Reads and writes the usual {"row":..,"col":..} form, handing back shared instances
+     */
+    static final class Adapter extends TypeAdapter<ChessPosition> {
+        @Override
+        public void write(JsonWriter out, ChessPosition position) throws IOException {
+            out.beginObject();
+            out.name("row").value(position.row);
+            out.name("col").value(position.col);
+            out.endObject();
+        }
+
+        @Override
+        public ChessPosition read(JsonReader in) throws IOException {
+            int row = 0;
+            int col = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "row" -> row = in.nextInt();
+                    case "col" -> col = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return of(row, col);
+        }
+    }
 }
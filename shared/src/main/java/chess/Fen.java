@@ -0,0 +1,290 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, e.g. the starting position
+ * <pre>
+ * rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1
+ * </pre>
+ * The fields are the pieces rank by rank from a8 to h1, the team to move, the castling
+ * rights, the en passant square, the halfmove clock and the fullmove number. The two
+ * clocks may be left off, as in EPD, and are then 0 and 1.
+ * <p>
+ * Parsing walks the text once per pass with no regular expressions or substrings and
+ * writes straight into an existing game, so reading a position allocates nothing. The
+ * text is checked in full before the game is touched, a game is never left half set up.
+ * <p>
+ * Castling rights are only kept when the king and rook are on their starting squares,
+ * and the en passant square only when a pawn can take there, the same as
+ * {@link ChessBoard} keeps them after a move. Positions that differ only in rights or
+ * squares nobody can use therefore read in the same, and may not write out as they read.
+ */
+public final class Fen {
+
+    /**
+     * The starting position
+     */
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // indexed by Bitboards.pieceIndex
+    private static final String LETTERS = "KQBNRPkqbnrp";
+    private static final String CASTLING_LETTERS = "KQkq";
+    // longer clocks would only come from broken text, and could overflow an int
+    private static final int MAX_DIGITS = 6;
+
+    private Fen() {
+    }
+
+    /**
+     * @return a new game set up at the position
+     * @throws IllegalArgumentException if the text isn't a valid FEN
+     */
+    public static ChessGame parse(CharSequence fen) {
+        ChessGame game = new ChessGame();
+        parse(fen, game);
+        return game;
+    }
+
+    /**
+     * Sets a game up at the position, replacing its pieces, turn, castling rights, en
+     * passant square and clocks, and starting its history over
+     *
+     * @throws IllegalArgumentException if the text isn't a valid FEN, the game is left as it was
+     */
+    public static void parse(CharSequence fen, ChessGame game) {
+        int length = fen.length();
+        int i = placement(fen, null);
+
+        i = skipSpace(fen, i);
+        char side = i < length ? fen.charAt(i) : ' ';
+        if (side != 'w' && side != 'b') {
+            throw error(fen, i, "expected w or b for the team to move");
+        }
+        ChessGame.TeamColor turn = side == 'w' ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        i++;
+
+        i = skipSpace(fen, i);
+        int rights = 0;
+        if (i < length && fen.charAt(i) == '-') {
+            i++;
+        } else {
+            int start = i;
+            for (; i < length && fen.charAt(i) != ' '; i++) {
+                int right = CASTLING_LETTERS.indexOf(fen.charAt(i));
+                if (right < 0 || (rights & (1 << right)) != 0) {
+                    throw error(fen, i, "expected castling rights from KQkq");
+                }
+                rights |= 1 << right;
+            }
+            if (i == start) {
+                throw error(fen, i, "expected castling rights or -");
+            }
+        }
+
+        i = skipSpace(fen, i);
+        int enPassant = ChessBoard.NO_SQUARE;
+        if (i < length && fen.charAt(i) == '-') {
+            i++;
+        } else {
+            // the square a pawn of the team that just moved skipped, on the mover's sixth rank
+            char file = i < length ? fen.charAt(i) : ' ';
+            char rank = i + 1 < length ? fen.charAt(i + 1) : ' ';
+            if (file < 'a' || file > 'h' || rank != (turn == ChessGame.TeamColor.WHITE ? '6' : '3')) {
+                throw error(fen, i, "expected an en passant square behind the pawn that just moved, or -");
+            }
+            enPassant = Bitboards.square(rank - '0', file - 'a' + 1);
+            i += 2;
+        }
+
+        int halfmoveClock = 0;
+        int fullmoveNumber = 1;
+        int end = skipTrailingSpace(fen, i);
+        if (end != length) {
+            i = skipSpace(fen, i);
+            end = numberEnd(fen, i);
+            halfmoveClock = number(fen, i, end);
+            i = skipSpace(fen, end);
+            end = numberEnd(fen, i);
+            fullmoveNumber = number(fen, i, end);
+            if (fullmoveNumber < 1) {
+                throw error(fen, i, "the fullmove number starts at 1");
+            }
+            i = skipTrailingSpace(fen, end);
+            if (i != length) {
+                throw error(fen, i, "unexpected text after the fullmove number");
+            }
+        }
+
+        // the text is good, now set the game up
+        ChessBoard board = game.getBoard();
+        placement(fen, board);
+        game.setTeamTurn(turn);
+        game.gameOver = false;
+        board.inferCastlingRights();
+        board.setCastlingRights(board.getCastlingRights() & rights);
+        board.setEnPassantSquare(canTakeEnPassant(board, turn, enPassant) ? enPassant : ChessBoard.NO_SQUARE);
+        game.setClocks(halfmoveClock, fullmoveNumber);
+    }
+
+    /**
+     * Reads the piece placement field, putting the pieces on the board unless it is null
+     *
+     * @return the index just past the field
+     */
+    private static int placement(CharSequence fen, ChessBoard board) {
+        int row = 8;
+        int col = 1;
+        int i = 0;
+        for (; i < fen.length() && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (col != 9 || row == 1) {
+                    throw error(fen, i, "expected 8 ranks of 8 squares");
+                }
+                row--;
+                col = 1;
+            } else if (c >= '1' && c <= '8') {
+                int empty = c - '0';
+                if (col + empty > 9) {
+                    throw error(fen, i, "rank " + row + " has more than 8 squares");
+                }
+                for (int end = col + empty; col < end; col++) {
+                    if (board != null) {
+                        board.addPiece(ChessPosition.of(row, col), null);
+                    }
+                }
+            } else {
+                int index = LETTERS.indexOf(c);
+                if (index < 0) {
+                    throw error(fen, i, "unknown piece '" + c + "'");
+                }
+                if (col > 8) {
+                    throw error(fen, i, "rank " + row + " has more than 8 squares");
+                }
+                ChessPiece piece = ChessPiece.ofIndex(index);
+                if (piece.getPieceType() == ChessPiece.PieceType.PAWN && (row == 1 || row == 8)) {
+                    throw error(fen, i, "a pawn can't stand on the first or last rank");
+                }
+                if (board != null) {
+                    board.addPiece(ChessPosition.of(row, col), piece);
+                }
+                col++;
+            }
+        }
+        if (row != 1 || col != 9) {
+            throw error(fen, i, "expected 8 ranks of 8 squares");
+        }
+        return i;
+    }
+
+    // the pawn that skipped the square is there and a pawn of the team to move attacks it
+    private static boolean canTakeEnPassant(ChessBoard board, ChessGame.TeamColor turn, int enPassant) {
+        if (enPassant == ChessBoard.NO_SQUARE) {
+            return false;
+        }
+        ChessGame.TeamColor mover = turn.opponent();
+        int pawnSq = mover == ChessGame.TeamColor.WHITE ? enPassant + 8 : enPassant - 8;
+        ChessPiece pawn = board.pieceAt(pawnSq);
+        return board.pieceAt(enPassant) == null
+                && pawn != null && pawn.getTeamColor() == mover && pawn.getPieceType() == ChessPiece.PieceType.PAWN
+                && (Bitboards.PAWN_ATTACKS[mover.ordinal()][enPassant] & board.pieces(turn, ChessPiece.PieceType.PAWN)) != 0;
+    }
+
+    // skips the spaces between two fields, there has to be at least one
+    private static int skipSpace(CharSequence fen, int i) {
+        if (i >= fen.length() || fen.charAt(i) != ' ') {
+            throw error(fen, i, "expected a space");
+        }
+        while (i < fen.length() && fen.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipTrailingSpace(CharSequence fen, int i) {
+        while (i < fen.length() && Character.isWhitespace(fen.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int numberEnd(CharSequence fen, int i) {
+        int end = i;
+        while (end < fen.length() && fen.charAt(end) >= '0' && fen.charAt(end) <= '9') {
+            end++;
+        }
+        if (end == i || end - i > MAX_DIGITS) {
+            throw error(fen, i, "expected a number");
+        }
+        return end;
+    }
+
+    private static int number(CharSequence fen, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + fen.charAt(i) - '0';
+        }
+        return value;
+    }
+
+    private static IllegalArgumentException error(CharSequence fen, int index, String problem) {
+        return new IllegalArgumentException("Bad FEN at character " + index + ", " + problem + ": " + fen);
+    }
+
+    /**
+     * @return the game's position as FEN
+     */
+    public static String format(ChessGame game) {
+        return appendTo(new StringBuilder(90), game).toString();
+    }
+
+    /**
+     * Writes the game's position as FEN onto the end of a builder, so a caller writing
+     * many positions can reuse one
+     *
+     * @return the builder
+     */
+    public static StringBuilder appendTo(StringBuilder out, ChessGame game) {
+        ChessBoard board = game.getBoard();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(ChessPosition.of(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                out.append(LETTERS.charAt(Bitboards.pieceIndex(piece)));
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                out.append('/');
+            }
+        }
+
+        out.append(' ').append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? 'w' : 'b').append(' ');
+        int rights = board.getCastlingRights();
+        if (rights == 0) {
+            out.append('-');
+        }
+        for (int right = 0; right < CASTLING_LETTERS.length(); right++) {
+            if ((rights & (1 << right)) != 0) {
+                out.append(CASTLING_LETTERS.charAt(right));
+            }
+        }
+
+        out.append(' ');
+        int enPassant = board.getEnPassantSquare();
+        if (enPassant == ChessBoard.NO_SQUARE) {
+            out.append('-');
+        } else {
+            out.append((char) ('a' + Bitboards.column(enPassant) - 1)).append((char) ('0' + Bitboards.row(enPassant)));
+        }
+        return out.append(' ').append(game.getHalfmoveClock()).append(' ').append(game.getFullmoveNumber());
+    }
+}
@@ -0,0 +1,49 @@
+package chess;
+
+/**
+ * Where a game stands for the team whose turn it is, see {@link ChessGame#getStatus()}
+ */
+public enum GameStatus {
+    /**
+     * The team to move has moves and isn't in check
+     */
+    NORMAL,
+    /**
+     * The team to move is in check but can get out of it
+     */
+    CHECK,
+    /**
+     * The team to move is in check and has no move, the other team won
+     */
+    CHECKMATE,
+    /**
+     * The team to move has no move but isn't in check, a draw
+     */
+    STALEMATE,
+    /**
+     * Neither team has enough pieces left to ever checkmate, a draw
+     */
+    INSUFFICIENT_MATERIAL,
+    /**
+     * The same position has come up three times with the same team to move, a draw
+     */
+    THREEFOLD_REPETITION,
+    /**
+     * Fifty moves each have gone by without a capture or a pawn move, a draw
+     */
+    FIFTY_MOVE_RULE;
+
+    /**
+     * @return True if no more moves should be played
+     */
+    public boolean isGameOver() {
+        return this != NORMAL && this != CHECK;
+    }
+
+    /**
+     * @return True if the game ended without a winner
+     */
+    public boolean isDraw() {
+        return isGameOver() && this != CHECKMATE;
+    }
+}
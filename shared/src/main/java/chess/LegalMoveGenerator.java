@@ -0,0 +1,345 @@
+package chess;
+
+import java.util.Collection;
+
+/**
+ * Generates only legal moves for one team on a board.
+ * <p>
+ * The pieces checking the king, the squares that block or capture a single checker
+ * (the check mask) and the pieces pinned to the king are worked out once when the
+ * generator is created. Every non-king move is then legal exactly when it lands in the
+ * check mask and, for a pinned piece, stays on the line through its king, so no move
+ * has to be tried on the board to see whether it leaves the king in check. En passant
+ * is the one exception: it lifts two pieces off the same rank, which can uncover a
+ * check no pin shows, so it is tried on the board. Castling needs the board's castling
+ * right, an empty path and no attacked square from the king's start to its end.
+ * <p>
+ * The generator reads the board as it was when created or last {@link #reset reset} and
+ * must be reset after the board changes.
+ */
+public final class LegalMoveGenerator {
+
+    private static final long ALL_SQUARES = -1L;
+
+    private ChessBoard board;
+    private ChessGame.TeamColor color;
+    private ChessGame.TeamColor enemy;
+    private long own;
+    private long occupied;
+    // -1 when the team has no king, in which case nothing can be checked or pinned
+    private int kingSq;
+    private long checkers;
+    private long checkMask;
+    private long pinned;
+    // the square this team could take en passant on, ChessBoard.NO_SQUARE if none
+    private int enPassantSq;
+
+    public LegalMoveGenerator(ChessBoard board, ChessGame.TeamColor color) {
+        reset(board, color);
+    }
+
+    /**
+     * Creates a generator to be pointed at a board with {@link #reset} before use
+     */
+    public LegalMoveGenerator() {
+    }
+
+    /**
+     * Points the generator at a board position, so one generator can serve a whole
+     * search or perft run instead of being created at every node
+     *
+     * @return this generator
+     */
+    public LegalMoveGenerator reset(ChessBoard board, ChessGame.TeamColor color) {
+        this.board = board;
+        this.color = color;
+        this.enemy = color.opponent();
+        this.own = board.teamPieces(color);
+        this.occupied = board.occupancy();
+        this.checkers = 0L;
+        this.checkMask = ALL_SQUARES;
+        this.pinned = 0L;
+        // the board's square only belongs to this team if it is on the opponent's side
+        int epSq = board.getEnPassantSquare();
+        int epRow = color == ChessGame.TeamColor.WHITE ? 6 : 3;
+        this.enPassantSq = epSq != ChessBoard.NO_SQUARE && Bitboards.row(epSq) == epRow ? epSq : ChessBoard.NO_SQUARE;
+        long king = board.pieces(color, ChessPiece.PieceType.KING);
+        this.kingSq = king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+        if (kingSq >= 0) {
+            findChecksAndPins();
+        }
+        return this;
+    }
+
+    private void findChecksAndPins() {
+        long enemyQueens = board.pieces(enemy, ChessPiece.PieceType.QUEEN);
+        long enemyDiagonals = board.pieces(enemy, ChessPiece.PieceType.BISHOP) | enemyQueens;
+        long enemyOrthogonals = board.pieces(enemy, ChessPiece.PieceType.ROOK) | enemyQueens;
+
+        // leapers can only check, never pin
+        checkers = (Bitboards.PAWN_ATTACKS[color.ordinal()][kingSq] & board.pieces(enemy, ChessPiece.PieceType.PAWN))
+                | (Bitboards.KNIGHT_ATTACKS[kingSq] & board.pieces(enemy, ChessPiece.PieceType.KNIGHT));
+
+        // sliders aimed at the king on an empty board either check it, pin one friendly piece or are blocked
+        long snipers = (MagicAttacks.bishopAttacks(kingSq, 0L) & enemyDiagonals)
+                | (MagicAttacks.rookAttacks(kingSq, 0L) & enemyOrthogonals);
+        while (snipers != 0) {
+            int sniperSq = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.BETWEEN[kingSq][sniperSq] & occupied;
+            if (blockers == 0) {
+                checkers |= Bitboards.bit(sniperSq);
+            } else if ((blockers & (blockers - 1)) == 0 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+        }
+
+        int checkCount = Long.bitCount(checkers);
+        if (checkCount == 1) {
+            // a single check can be answered by capturing the checker or blocking its ray
+            int checkerSq = Long.numberOfTrailingZeros(checkers);
+            checkMask = checkers | Bitboards.BETWEEN[kingSq][checkerSq];
+        } else if (checkCount > 1) {
+            // only the king can answer a double check
+            checkMask = 0L;
+        }
+    }
+
+    /**
+     * @return True if the team's king is attacked
+     */
+    public boolean inCheck() {
+        return checkers != 0;
+    }
+
+    /**
+     * Every legal destination of the piece on a square. Promotions share a single
+     * destination bit
+     */
+    long targets(int sq) {
+        long bit = Bitboards.bit(sq);
+        if ((own & bit) == 0) {
+            return 0L;
+        }
+        if (sq == kingSq) {
+            return kingTargets();
+        }
+        ChessPiece.PieceType type = board.pieceAt(sq).getPieceType();
+        long targets = pseudoTargets(sq, type) & checkMask;
+        if ((pinned & bit) != 0) {
+            targets &= Bitboards.LINE[kingSq][sq];
+        }
+        if (type == ChessPiece.PieceType.PAWN && enPassantSq != ChessBoard.NO_SQUARE
+                && (Bitboards.PAWN_ATTACKS[color.ordinal()][sq] & Bitboards.bit(enPassantSq)) != 0
+                && enPassantIsLegal(sq)) {
+            targets |= Bitboards.bit(enPassantSq);
+        }
+        return targets;
+    }
+
+    private boolean enPassantIsLegal(int from) {
+        int undo = board.makeMove(PackedMove.of(from, enPassantSq) | PackedMove.EN_PASSANT | PackedMove.CAPTURE);
+        boolean legal = !board.isInCheck(color);
+        board.unmakeMove(undo);
+        return legal;
+    }
+
+    private long pseudoTargets(int sq, ChessPiece.PieceType type) {
+        return switch (type) {
+            case PAWN -> pawnTargets(sq);
+            case KNIGHT -> Bitboards.KNIGHT_ATTACKS[sq] & ~own;
+            case BISHOP -> MagicAttacks.bishopAttacks(sq, occupied) & ~own;
+            case ROOK -> MagicAttacks.rookAttacks(sq, occupied) & ~own;
+            case QUEEN -> MagicAttacks.queenAttacks(sq, occupied) & ~own;
+            // only reached for extra kings on hand-built boards, which are never checked
+            case KING -> Bitboards.KING_ATTACKS[sq] & ~own;
+        };
+    }
+
+    private long pawnTargets(int sq) {
+        long targets = Bitboards.PAWN_ATTACKS[color.ordinal()][sq] & board.teamPieces(enemy);
+        int step = color == ChessGame.TeamColor.WHITE ? 8 : -8;
+        int oneSq = sq + step;
+        // pawns placed on the last rank of a hand-built board have nowhere to go
+        if (oneSq < 0 || oneSq > 63 || (occupied & Bitboards.bit(oneSq)) != 0) {
+            return targets;
+        }
+        targets |= Bitboards.bit(oneSq);
+        int row = Bitboards.row(sq);
+        if ((row == 2 && color == ChessGame.TeamColor.WHITE) || (row == 7 && color == ChessGame.TeamColor.BLACK)) {
+            int twoSq = oneSq + step;
+            if ((occupied & Bitboards.bit(twoSq)) == 0) {
+                targets |= Bitboards.bit(twoSq);
+            }
+        }
+        return targets;
+    }
+
+    private long kingTargets() {
+        long targets = Bitboards.KING_ATTACKS[kingSq] & ~own;
+        // lift the king off the board so it can't hide behind itself on a checking ray
+        long withoutKing = occupied ^ Bitboards.bit(kingSq);
+        long safe = 0L;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (!board.isSquareAttacked(to, enemy, withoutKing)) {
+                safe |= Bitboards.bit(to);
+            }
+        }
+        return safe | castlingTargets();
+    }
+
+    private long castlingTargets() {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int rights = board.getCastlingRights() >> (white ? 0 : 2);
+        int home = white ? Bitboards.square(1, 5) : Bitboards.square(8, 5);
+        if ((rights & (ChessBoard.WHITE_KINGSIDE | ChessBoard.WHITE_QUEENSIDE)) == 0 || kingSq != home || checkers != 0) {
+            return 0L;
+        }
+        long targets = 0L;
+        if ((rights & ChessBoard.WHITE_KINGSIDE) != 0 && canCastle(home, home + 3, 1)) {
+            targets |= Bitboards.bit(home + 2);
+        }
+        if ((rights & ChessBoard.WHITE_QUEENSIDE) != 0 && canCastle(home, home - 4, -1)) {
+            targets |= Bitboards.bit(home - 2);
+        }
+        return targets;
+    }
+
+    // the rook is home, nothing stands between it and the king, and the two squares the king crosses are safe
+    private boolean canCastle(int home, int rookSq, int direction) {
+        return (board.pieces(color, ChessPiece.PieceType.ROOK) & Bitboards.bit(rookSq)) != 0
+                && (Bitboards.BETWEEN[home][rookSq] & occupied) == 0
+                && !board.isSquareAttacked(home + direction, enemy, occupied)
+                && !board.isSquareAttacked(home + 2 * direction, enemy, occupied);
+    }
+
+    /**
+     * @return every legal move of the piece at the position, empty if it isn't one of this team's pieces
+     */
+    Collection<ChessMove> movesFrom(ChessPosition position) {
+        MoveList moves = new MoveList();
+        generateFrom(Bitboards.square(position), moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * @return every legal move of the team
+     */
+    Collection<ChessMove> allMoves() {
+        MoveList moves = new MoveList();
+        generate(moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Appends every legal move of the team to the list
+     */
+    public void generate(MoveList moves) {
+        long pieces = own;
+        while (pieces != 0) {
+            int sq = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            generateFrom(sq, moves);
+        }
+    }
+
+    /**
+     * Appends every legal move of the piece on a square to the list, nothing if it
+     * isn't one of this team's pieces
+     */
+    public void generateFrom(int sq, MoveList moves) {
+        addMoves(sq, targets(sq), moves);
+    }
+
+    /**
+     * Appends every legal capture and promotion of the team to the list, the moves a
+     * quiescence search looks at
+     */
+    public void generateNoisy(MoveList moves) {
+        long enemies = board.teamPieces(enemy);
+        long pawns = board.pieces(color, ChessPiece.PieceType.PAWN);
+        long pieces = own;
+        while (pieces != 0) {
+            int sq = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            // only pawns promote or take en passant, everything else is noisy only when it captures
+            long noisy = (pawns & Bitboards.bit(sq)) != 0 ? enemies | enPassantBit() | Bitboards.RANK_1 | Bitboards.RANK_8 : enemies;
+            addMoves(sq, targets(sq) & noisy, moves);
+        }
+    }
+
+    private long enPassantBit() {
+        return enPassantSq == ChessBoard.NO_SQUARE ? 0L : Bitboards.bit(enPassantSq);
+    }
+
+    private void addMoves(int sq, long targets, MoveList moves) {
+        if (targets == 0) {
+            return;
+        }
+        long enemies = board.teamPieces(enemy);
+        boolean pawn = (board.pieces(color, ChessPiece.PieceType.PAWN) & Bitboards.bit(sq)) != 0;
+        boolean king = sq == kingSq;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = (enemies & Bitboards.bit(to)) != 0 ? PackedMove.CAPTURE : 0;
+            if (pawn && (to < 8 || to > 55)) {
+                moves.add(PackedMove.of(sq, to, ChessPiece.PieceType.QUEEN, flags));
+                moves.add(PackedMove.of(sq, to, ChessPiece.PieceType.BISHOP, flags));
+                moves.add(PackedMove.of(sq, to, ChessPiece.PieceType.ROOK, flags));
+                moves.add(PackedMove.of(sq, to, ChessPiece.PieceType.KNIGHT, flags));
+            } else {
+                if (pawn && Math.abs(to - sq) == 16) {
+                    flags |= PackedMove.DOUBLE_PUSH;
+                } else if (pawn && to == enPassantSq) {
+                    flags |= PackedMove.EN_PASSANT | PackedMove.CAPTURE;
+                } else if (king && Math.abs(to - sq) == 2) {
+                    flags |= PackedMove.CASTLE;
+                }
+                moves.add(PackedMove.of(sq, to) | flags);
+            }
+        }
+    }
+
+    /**
+     * Counts the team's legal moves without creating them, each promotion piece counting once
+     */
+    public int countMoves() {
+        int count = 0;
+        long promotionRanks = Bitboards.RANK_1 | Bitboards.RANK_8;
+        long pawns = board.pieces(color, ChessPiece.PieceType.PAWN);
+        long pieces = own;
+        while (pieces != 0) {
+            int sq = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long targets = targets(sq);
+            count += Long.bitCount(targets);
+            if ((pawns & Bitboards.bit(sq)) != 0) {
+                // the other three promotion pieces
+                count += 3 * Long.bitCount(targets & promotionRanks);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param includeKing whether king moves count
+     * @return True if the team has at least one legal move
+     */
+    public boolean hasLegalMove(boolean includeKing) {
+        if (includeKing && kingSq >= 0 && kingTargets() != 0) {
+            return true;
+        }
+        long pieces = own & ~board.pieces(color, ChessPiece.PieceType.KING);
+        while (pieces != 0) {
+            int sq = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            if (targets(sq) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
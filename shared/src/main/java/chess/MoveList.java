@@ -0,0 +1,104 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A reusable buffer of {@link PackedMove packed moves}. Move generators append to it,
+ * and callers clear and refill the same list instead of creating a collection for
+ * every position.
+ */
+public final class MoveList {
+
+    /**
+     * Enough room for every legal move of any reachable position (the most known is 218)
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size = 0;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    public void add(int move) {
+        // only hand-built boards with extra pieces can outgrow the default capacity
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public void swap(int i, int j) {
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the matching move in the list with its flags, or {@link PackedMove#NONE}
+     * if no move matches
+     * @see PackedMove#sameMove(int, int)
+     */
+    public int find(int move) {
+        for (int i = 0; i < size; i++) {
+            if (PackedMove.sameMove(moves[i], move)) {
+                return moves[i];
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    public boolean contains(int move) {
+        return find(move) != PackedMove.NONE;
+    }
+
+    /**
+     * @return the moves as {@link ChessMove} objects, in list order
+     */
+    public List<ChessMove> toChessMoves() {
+        List<ChessMove> chessMoves = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            chessMoves.add(PackedMove.toChessMove(moves[i]));
+        }
+        return chessMoves;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(PackedMove.toString(moves[i]));
+        }
+        return sb.append(']').toString();
+    }
+}
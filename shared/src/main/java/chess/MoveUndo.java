@@ -0,0 +1,11 @@
+package chess;
+
+/**
+ * Everything {@link ChessBoard#unmakeMove(MoveUndo)} needs to put a board back
+ * the way it was before {@link ChessBoard#makeMove(ChessMove)}
+ *
+ * @param move the move that was made
+ * @param undo the value {@link ChessBoard#makeMove(int)} returned for it, which holds
+ *             the captured piece and the castling rights and en passant square before it
+ */
+public record MoveUndo(ChessMove move, int undo) {}
@@ -0,0 +1,167 @@
+package chess;
+
+/**
+ * Encodes a move in a single int so move lists, search tables and make/unmake can
+ * work without creating {@link ChessMove} or {@link ChessPosition} objects.
+ * <p>
+ * Squares are numbered 0-63 with a1 = 0 and h8 = 63. The low 15 bits hold the move
+ * itself and the bits above them hold flags the generator already knows for free:
+ * <pre>
+ * bits  0-5   start square
+ * bits  6-11  end square
+ * bits 12-14  promotion piece, 0 for none, otherwise its PieceType ordinal + 1
+ * bit  15     the move captures a piece
+ * bit  16     a pawn moving two squares
+ * bit  17     the king castling, the rook's move is implied
+ * bit  18     a pawn capturing en passant, the captured pawn is beside the start square
+ * </pre>
+ * Moves read from a {@link ChessMove} carry no flags, so compare moves with
+ * {@link #sameMove(int, int)} rather than ==.
+ */
+public final class PackedMove {
+
+    /**
+     * Never a legal move, since a1 to a1 goes nowhere
+     */
+    public static final int NONE = 0;
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PUSH = 1 << 16;
+    public static final int CASTLE = 1 << 17;
+    public static final int EN_PASSANT = 1 << 18;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_MASK = 0x7;
+    private static final int MOVE_MASK = (1 << 15) - 1;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << TO_SHIFT);
+    }
+
+    /**
+     * @param promotion the piece a pawn promotes to, or null
+     * @param flags     any of {@link #CAPTURE}, {@link #DOUBLE_PUSH}, {@link #CASTLE}
+     *                  and {@link #EN_PASSANT}
+     */
+    public static int of(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int move = of(from, to) | flags;
+        if (promotion != null) {
+            move |= (promotion.ordinal() + 1) << PROMOTION_SHIFT;
+        }
+        return move;
+    }
+
+    /**
+     * @return the packed form of a move, without flags
+     */
+    public static int of(ChessMove move) {
+        return of(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece(), 0);
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * @return the piece a pawn promotes to, or null if the move isn't a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotion = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+        return promotion == 0 ? null : TYPES[promotion - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return ((move >>> PROMOTION_SHIFT) & PROMOTION_MASK) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    /**
+     * @return True if both moves go between the same squares with the same promotion,
+     * whatever their flags
+     */
+    public static boolean sameMove(int a, int b) {
+        return ((a ^ b) & MOVE_MASK) == 0;
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(Bitboards.position(from(move)), Bitboards.position(to(move)), promotion(move));
+    }
+
+    /**
+     * @return the move in coordinate notation, e.g. e2e4 or e7e8q
+     */
+    public static String toString(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        appendSquare(sb, from(move));
+        appendSquare(sb, to(move));
+        ChessPiece.PieceType promotion = promotion(move);
+        if (promotion != null) {
+            sb.append(ChessPiece.of(ChessGame.TeamColor.BLACK, promotion));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads a move in coordinate notation, the reverse of {@link #toString(int)}
+     *
+     * @return the move without flags
+     * @throws IllegalArgumentException if the text isn't a move in coordinate notation
+     */
+    public static int parse(String text) {
+        if (text.length() != 4 && text.length() != 5) {
+            throw new IllegalArgumentException("Not a move in coordinate notation: " + text);
+        }
+        ChessPiece.PieceType promotion = null;
+        if (text.length() == 5) {
+            promotion = switch (text.charAt(4)) {
+                case 'q' -> ChessPiece.PieceType.QUEEN;
+                case 'r' -> ChessPiece.PieceType.ROOK;
+                case 'b' -> ChessPiece.PieceType.BISHOP;
+                case 'n' -> ChessPiece.PieceType.KNIGHT;
+                default -> throw new IllegalArgumentException("Not a promotion piece: " + text);
+            };
+        }
+        return of(parseSquare(text, 0), parseSquare(text, 2), promotion, 0);
+    }
+
+    /**
+     * @return the move with its flags cleared, as it would be read from a {@link ChessMove}
+     */
+    public static int withoutFlags(int move) {
+        return move & MOVE_MASK;
+    }
+
+    private static int parseSquare(String text, int index) {
+        int file = text.charAt(index) - 'a';
+        int rank = text.charAt(index + 1) - '1';
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) {
+            throw new IllegalArgumentException("Not a square: " + text.substring(index, index + 2));
+        }
+        return rank * 8 + file;
+    }
+
+    private static void appendSquare(StringBuilder sb, int sq) {
+        sb.append((char) ('a' + (sq & 7))).append((char) ('1' + (sq >>> 3)));
+    }
+}
@@ -0,0 +1,261 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth ("perft").
+ * <p>
+ * Comparing the counts against published reference values is the standard way to
+ * prove a move generator correct, and the nodes per second it reaches is a direct
+ * measure of move generation speed. Run it from the command line with
+ * <pre>
+ * java -cp shared.jar chess.Perft &lt;position&gt; &lt;depth&gt; [divide] [threads=N]
+ * </pre>
+ * where the position is one of the {@link ReferencePosition}s or a quoted FEN.
+ */
+public final class Perft {
+
+    /**
+     * Well known positions with their published node counts, starting at depth 1
+     */
+    public enum ReferencePosition {
+        START(Fen.START, 20L, 400L, 8_902L, 197_281L, 4_865_609L, 119_060_324L),
+        KIWIPETE("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                48L, 2_039L, 97_862L, 4_085_603L, 193_690_690L),
+        ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                14L, 191L, 2_812L, 43_238L, 674_624L, 11_030_083L),
+        MIDDLEGAME("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                46L, 2_079L, 89_890L, 3_894_594L, 164_075_551L),
+        PROMOTIONS("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+                24L, 496L, 9_483L, 182_838L, 3_605_103L, 71_179_139L);
+
+        private final String fen;
+        private final long[] expectedNodes;
+
+        ReferencePosition(String fen, long... expectedNodes) {
+            this.fen = fen;
+            this.expectedNodes = expectedNodes;
+        }
+
+        /**
+         * @return this position as FEN
+         */
+        public String fen() {
+            return fen;
+        }
+
+        /**
+         * @return a new game set up at this position
+         */
+        public ChessGame newGame() {
+            return Fen.parse(fen);
+        }
+
+        /**
+         * @return the published node count at a depth, starting at 1
+         */
+        public long expectedNodes(int depth) {
+            return expectedNodes[depth - 1];
+        }
+
+        public int maxDepth() {
+            return expectedNodes.length;
+        }
+    }
+
+    /**
+     * @param nodes       leaf nodes counted
+     * @param nanoseconds how long counting took
+     */
+    public record Result(long nodes, long nanoseconds) {
+        public long nodesPerSecond() {
+            return nanoseconds == 0 ? 0 : nodes * 1_000_000_000L / nanoseconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d nodes in %.3f s (%d nodes/s)", nodes, nanoseconds / 1e9, nodesPerSecond());
+        }
+    }
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the leaf nodes below the game's current position, with the team whose
+     * turn it is moving first
+     *
+     * @param game  the game to count from, its board is left as it was
+     * @param depth how many moves deep to count
+     * @return the number of leaf nodes
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(game.getBoard(), game.getTeamTurn(), depth);
+    }
+
+    /**
+     * Counts the leaf nodes below a board position
+     *
+     * @param board  the board to count from, it is left as it was
+     * @param toMove the team moving first
+     * @param depth  how many moves deep to count
+     * @return the number of leaf nodes
+     */
+    public static long perft(ChessBoard board, ChessGame.TeamColor toMove, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        return new Counter(depth).count(board, toMove, depth);
+    }
+
+    // one generator and one move list per ply, reused for the whole count so it allocates nothing per node
+    private static final class Counter {
+        private final LegalMoveGenerator generator = new LegalMoveGenerator();
+        private final MoveList[] lists;
+
+        Counter(int depth) {
+            lists = new MoveList[depth + 1];
+            for (int i = 0; i <= depth; i++) {
+                lists[i] = new MoveList();
+            }
+        }
+
+        long count(ChessBoard board, ChessGame.TeamColor toMove, int depth) {
+            generator.reset(board, toMove);
+            // bulk count the last ply instead of making every move
+            if (depth == 1) {
+                return generator.countMoves();
+            }
+            MoveList moves = lists[depth];
+            moves.clear();
+            generator.generate(moves);
+            long nodes = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                int undo = board.makeMove(moves.get(i));
+                nodes += count(board, toMove.opponent(), depth - 1);
+                board.unmakeMove(undo);
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * Counts the leaf nodes below each root move separately, which narrows a wrong
+     * total down to the move that causes it
+     *
+     * @return node counts by root move, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        for (ChessMove move : new LegalMoveGenerator(board, toMove).allMoves()) {
+            MoveUndo undo = board.makeMove(move);
+            counts.put(move, perft(board, toMove.opponent(), depth - 1));
+            board.unmakeMove(undo);
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the leaf nodes with the root moves split across threads, each working on
+     * its own copy of the board
+     *
+     * @param threads how many threads to count with
+     */
+    public static long perftParallel(ChessGame game, int depth, int threads) {
+        if (depth <= 1 || threads <= 1) {
+            return perft(game, depth);
+        }
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> subtrees = new ArrayList<>();
+            for (ChessMove move : new LegalMoveGenerator(board, toMove).allMoves()) {
+                ChessBoard copy = board.clone();
+                subtrees.add(pool.submit(() -> {
+                    copy.makeMove(move);
+                    return perft(copy, toMove.opponent(), depth - 1);
+                }));
+            }
+            long nodes = 0;
+            for (Future<Long> subtree : subtrees) {
+                nodes += subtree.get();
+            }
+            return nodes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Perft was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Perft failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Times a perft run, using the parallel counter when more than one thread is asked for
+     */
+    public static Result timed(ChessGame game, int depth, int threads) {
+        long start = System.nanoTime();
+        long nodes = perftParallel(game, depth, threads);
+        return new Result(nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * @return the move in coordinate notation, e.g. e2e4 or e7e8q
+     */
+    static String coordinateNotation(ChessMove move) {
+        return PackedMove.toString(PackedMove.of(move));
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: chess.Perft <" + String.join("|", positionNames()) + "|fen> <depth> [divide] [threads=N]");
+            return;
+        }
+        // only FEN has slashes in it
+        ReferencePosition position = args[0].indexOf('/') < 0 ? ReferencePosition.valueOf(args[0].toUpperCase()) : null;
+        int depth = Integer.parseInt(args[1]);
+        boolean divide = false;
+        int threads = 1;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("divide")) {
+                divide = true;
+            } else if (args[i].startsWith("threads=")) {
+                threads = Integer.parseInt(args[i].substring("threads=".length()));
+            }
+        }
+
+        ChessGame game = position != null ? position.newGame() : Fen.parse(args[0]);
+        if (divide) {
+            long total = 0;
+            for (Map.Entry<ChessMove, Long> entry : divide(game, depth).entrySet()) {
+                System.out.println(coordinateNotation(entry.getKey()) + ": " + entry.getValue());
+                total += entry.getValue();
+            }
+            System.out.println("Total: " + total);
+        }
+        Result result = timed(game, depth, threads);
+        System.out.println((position != null ? position : Fen.format(game)) + " depth " + depth + ": " + result);
+        if (position != null && depth <= position.maxDepth() && result.nodes() != position.expectedNodes(depth)) {
+            System.out.println("MISMATCH, expected " + position.expectedNodes(depth));
+        }
+    }
+
+    private static List<String> positionNames() {
+        List<String> names = new ArrayList<>();
+        for (ReferencePosition position : ReferencePosition.values()) {
+            names.add(position.name().toLowerCase());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,167 @@
+package chess;
+
+/**
+ * Material plus piece-square values in centipawns, with a middlegame and an endgame
+ * value for every piece on every square. A position's score blends the two by how
+ * much material is left (its phase), so the king hides in the middlegame and walks to
+ * the centre once the queens are off.
+ * <p>
+ * {@link ChessBoard} keeps the sums up to date as pieces are added and removed, the
+ * same way it keeps its Zobrist key, so reading the score never scans the board.
+ * {@link #score(ChessBoard)} adds everything up from scratch to check those sums.
+ */
+public final class PieceSquareTables {
+
+    /**
+     * The phase of a board with every piece but the pawns and kings still on it
+     */
+    public static final int MAX_PHASE = 24;
+
+    // indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] MIDDLEGAME_VALUES = {0, 900, 330, 320, 500, 100};
+    private static final int[] ENDGAME_VALUES = {0, 900, 330, 320, 500, 120};
+    private static final int[] PHASE_WEIGHTS = {0, 4, 1, 1, 2, 0};
+
+    // written from white's side with rank 8 on the first line, so a1 is the first
+    // square of the last line
+    private static final int[] KING_MIDDLEGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20,
+    };
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50,
+    };
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20,
+    };
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20,
+    };
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50,
+    };
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0,
+    };
+    private static final int[] PAWN_MIDDLEGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0,
+    };
+    private static final int[] PAWN_ENDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            20, 20, 20, 20, 20, 20, 20, 20,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    // indexed by Bitboards.pieceIndex, then square. Black's values are white's mirrored
+    // and negated, so a sum over the board is white's score
+    static final int[][] MIDDLEGAME = new int[12][64];
+    static final int[][] ENDGAME = new int[12][64];
+    static final int[] PHASE = new int[12];
+
+    static {
+        int[][] middlegameTables = {KING_MIDDLEGAME, QUEEN, BISHOP, KNIGHT, ROOK, PAWN_MIDDLEGAME};
+        int[][] endgameTables = {KING_ENDGAME, QUEEN, BISHOP, KNIGHT, ROOK, PAWN_ENDGAME};
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            int t = type.ordinal();
+            int white = Bitboards.pieceIndex(ChessGame.TeamColor.WHITE, type);
+            int black = Bitboards.pieceIndex(ChessGame.TeamColor.BLACK, type);
+            for (int sq = 0; sq < 64; sq++) {
+                // the tables are laid out rank 8 first, flipping the rank finds white's entry
+                MIDDLEGAME[white][sq] = MIDDLEGAME_VALUES[t] + middlegameTables[t][sq ^ 56];
+                ENDGAME[white][sq] = ENDGAME_VALUES[t] + endgameTables[t][sq ^ 56];
+                MIDDLEGAME[black][sq] = -(MIDDLEGAME_VALUES[t] + middlegameTables[t][sq]);
+                ENDGAME[black][sq] = -(ENDGAME_VALUES[t] + endgameTables[t][sq]);
+            }
+            PHASE[white] = PHASE_WEIGHTS[t];
+            PHASE[black] = PHASE_WEIGHTS[t];
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    /**
+     * Blends a middlegame and an endgame score by phase
+     *
+     * @param phase how much material is left, from 0 up to {@link #MAX_PHASE}. Boards
+     *              with extra promoted pieces can go over and count as middlegames
+     */
+    public static int taper(int middlegame, int endgame, int phase) {
+        int clamped = Math.min(phase, MAX_PHASE);
+        return (middlegame * clamped + endgame * (MAX_PHASE - clamped)) / MAX_PHASE;
+    }
+
+    /**
+     * Adds up the score of a board square by square without the board's running sums
+     *
+     * @return the tapered score in centipawns, positive when white is ahead
+     */
+    public static int score(ChessBoard board) {
+        int middlegame = 0;
+        int endgame = 0;
+        int phase = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            ChessPiece piece = board.pieceAt(sq);
+            if (piece != null) {
+                int index = Bitboards.pieceIndex(piece);
+                middlegame += MIDDLEGAME[index][sq];
+                endgame += ENDGAME[index][sq];
+                phase += PHASE[index];
+            }
+        }
+        return taper(middlegame, endgame, phase);
+    }
+}
@@ -0,0 +1,257 @@
+package chess;
+
+/**
+ * Reads and writes moves in Standard Algebraic Notation, the notation of PGN and of
+ * most chess writing: the piece letter, just enough of the start square to tell two
+ * candidates apart, and the destination, e.g. Nf3, exd5, Rae1, e8=Q or O-O.
+ * <p>
+ * A SAN move only makes sense on the board it is played on. The candidates come
+ * straight from the {@link LegalMoveGenerator}'s destinations for each piece of the
+ * right type, so a move that reads is always legal, and no move list is built.
+ * When reading, check, mate and annotation marks at the end (+ # ! ?) are ignored, as
+ * is whether a capture is marked with x.
+ */
+public final class San {
+
+    // in PieceType order, which values() would copy on every call
+    private static final String PIECE_LETTERS = "KQBNR";
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private San() {
+    }
+
+    /**
+     * @return the legal move the text names, as a {@link PackedMove} with its flags set
+     * @throws IllegalArgumentException if the text isn't SAN, or names no legal move or
+     *                                  more than one
+     */
+    public static int parse(CharSequence san, ChessBoard board, ChessGame.TeamColor toMove) {
+        return parse(san, 0, san.length(), board, toMove, new LegalMoveGenerator());
+    }
+
+    /**
+     * Reads the SAN move between start and end of a longer text, e.g. a game's moves,
+     * using a generator the caller keeps so reading a game allocates nothing per move
+     *
+     * @param generator any generator, it is reset to the board
+     * @see #parse(CharSequence, ChessBoard, ChessGame.TeamColor)
+     */
+    public static int parse(CharSequence text, int start, int end, ChessBoard board, ChessGame.TeamColor toMove,
+                            LegalMoveGenerator generator) {
+        int last = end;
+        while (last > start && "+#!?".indexOf(text.charAt(last - 1)) >= 0) {
+            last--;
+        }
+        if (last - start < 2) {
+            throw notSan(text, start, end);
+        }
+        generator.reset(board, toMove);
+        char first = text.charAt(start);
+        if (first == 'O' || first == '0') {
+            return castle(text, start, last, end, board, toMove, generator);
+        }
+
+        int i = start;
+        int typeIndex = PIECE_LETTERS.indexOf(first);
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        if (typeIndex >= 0) {
+            type = TYPES[typeIndex];
+            i++;
+        }
+
+        ChessPiece.PieceType promotion = null;
+        if (type == ChessPiece.PieceType.PAWN) {
+            int promotionIndex = PIECE_LETTERS.indexOf(text.charAt(last - 1));
+            // a king isn't something to promote to
+            if (promotionIndex > 0) {
+                promotion = TYPES[promotionIndex];
+                last--;
+                if (last > i && text.charAt(last - 1) == '=') {
+                    last--;
+                }
+            }
+        }
+
+        if (last - i < 2) {
+            throw notSan(text, start, end);
+        }
+        int to = square(text, last - 2);
+        if (to < 0) {
+            throw notSan(text, start, end);
+        }
+        last -= 2;
+        if (last > i && text.charAt(last - 1) == 'x') {
+            last--;
+        }
+
+        // whatever is left tells candidates apart: a file, a rank or both
+        long fromSquares = board.pieces(toMove, type);
+        boolean fileGiven = false;
+        for (; i < last; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromSquares &= Bitboards.FILE_A << (c - 'a');
+                fileGiven = true;
+            } else if (c >= '1' && c <= '8') {
+                fromSquares &= Bitboards.RANK_1 << (8 * (c - '1'));
+            } else {
+                throw notSan(text, start, end);
+            }
+        }
+        // a pawn named without its file pushes, it doesn't capture
+        if (type == ChessPiece.PieceType.PAWN && !fileGiven) {
+            fromSquares &= Bitboards.FILE_A << (to & 7);
+        }
+
+        int from = -1;
+        long toBit = Bitboards.bit(to);
+        while (fromSquares != 0) {
+            int sq = Long.numberOfTrailingZeros(fromSquares);
+            fromSquares &= fromSquares - 1;
+            if ((generator.targets(sq) & toBit) != 0) {
+                if (from >= 0) {
+                    throw new IllegalArgumentException("Ambiguous move: " + text.subSequence(start, end));
+                }
+                from = sq;
+            }
+        }
+        if (from < 0) {
+            throw new IllegalArgumentException("Illegal move: " + text.subSequence(start, end));
+        }
+        boolean lastRank = (toBit & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0;
+        if (type == ChessPiece.PieceType.PAWN && lastRank != (promotion != null)) {
+            throw new IllegalArgumentException((lastRank ? "Missing promotion piece: " : "Not a promotion: ")
+                    + text.subSequence(start, end));
+        }
+        return board.withFlags(PackedMove.of(from, to, promotion, 0));
+    }
+
+    /**
+     * @return the legal move in SAN, with + or # if it gives check or mate
+     * @throws IllegalArgumentException if the move isn't legal on the board
+     */
+    public static String format(int move, ChessBoard board, ChessGame.TeamColor toMove) {
+        return appendTo(new StringBuilder(8), move, board, toMove, new LegalMoveGenerator()).toString();
+    }
+
+    /**
+     * Writes a legal move in SAN onto the end of a builder, using a generator the caller
+     * keeps so writing a game allocates nothing per move. Other pieces of the same type
+     * are only told apart if the generator's destinations for them hold the same square.
+     * The move is made and taken back on the board to see whether it checks or mates
+     *
+     * @param move      the move, as a {@link PackedMove} with or without its flags
+     * @param generator any generator, it is reset to the board
+     * @return the builder
+     * @throws IllegalArgumentException if the move isn't legal on the board
+     */
+    public static StringBuilder appendTo(StringBuilder out, int move, ChessBoard board, ChessGame.TeamColor toMove,
+                                         LegalMoveGenerator generator) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        long toBit = Bitboards.bit(to);
+        ChessPiece piece = board.pieceAt(from);
+        generator.reset(board, toMove);
+        if (piece == null || piece.getTeamColor() != toMove || (generator.targets(from) & toBit) == 0) {
+            throw new IllegalArgumentException("Illegal move: " + PackedMove.toString(move));
+        }
+        move = board.withFlags(move);
+        ChessPiece.PieceType type = piece.getPieceType();
+        boolean capture = PackedMove.isCapture(move);
+
+        if (PackedMove.isCastle(move)) {
+            out.append(to > from ? "O-O" : "O-O-O");
+        } else if (type == ChessPiece.PieceType.PAWN) {
+            if (capture) {
+                out.append((char) ('a' + (from & 7))).append('x');
+            }
+            appendSquare(out, to);
+            ChessPiece.PieceType promotion = PackedMove.promotion(move);
+            if (promotion != null) {
+                out.append('=').append(PIECE_LETTERS.charAt(promotion.ordinal()));
+            }
+        } else {
+            out.append(PIECE_LETTERS.charAt(type.ordinal()));
+            appendDisambiguation(out, from, toBit, board.pieces(toMove, type) & ~Bitboards.bit(from), generator);
+            if (capture) {
+                out.append('x');
+            }
+            appendSquare(out, to);
+        }
+
+        int undo = board.makeMove(move);
+        generator.reset(board, toMove.opponent());
+        if (generator.inCheck()) {
+            out.append(generator.hasLegalMove(true) ? '+' : '#');
+        }
+        board.unmakeMove(undo);
+        return out;
+    }
+
+    // the file of the start square if that tells the rivals reaching the same square
+    // apart, else the rank, else both
+    private static void appendDisambiguation(StringBuilder out, int from, long toBit, long others,
+                                             LegalMoveGenerator generator) {
+        boolean rival = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        while (others != 0) {
+            int sq = Long.numberOfTrailingZeros(others);
+            others &= others - 1;
+            if ((generator.targets(sq) & toBit) != 0) {
+                rival = true;
+                sameFile |= (sq & 7) == (from & 7);
+                sameRank |= (sq >>> 3) == (from >>> 3);
+            }
+        }
+        if (!rival) {
+            return;
+        }
+        if (!sameFile || sameRank) {
+            out.append((char) ('a' + (from & 7)));
+        }
+        if (sameFile) {
+            out.append((char) ('1' + (from >>> 3)));
+        }
+    }
+
+    private static void appendSquare(StringBuilder out, int sq) {
+        out.append((char) ('a' + (sq & 7))).append((char) ('1' + (sq >>> 3)));
+    }
+
+    // O-O or O-O-O, also written with zeros
+    private static int castle(CharSequence text, int start, int last, int end, ChessBoard board,
+                              ChessGame.TeamColor toMove, LegalMoveGenerator generator) {
+        char o = text.charAt(start);
+        int length = last - start;
+        for (int i = start; i < last; i++) {
+            if (text.charAt(i) != ((i - start) % 2 == 0 ? o : '-')) {
+                throw notSan(text, start, end);
+            }
+        }
+        if (length != 3 && length != 5) {
+            throw notSan(text, start, end);
+        }
+        long king = board.pieces(toMove, ChessPiece.PieceType.KING);
+        if (king == 0) {
+            throw new IllegalArgumentException("Illegal move: " + text.subSequence(start, end));
+        }
+        int from = Long.numberOfTrailingZeros(king);
+        int to = length == 3 ? from + 2 : from - 2;
+        if (to < 0 || to > 63 || (generator.targets(from) & Bitboards.bit(to)) == 0) {
+            throw new IllegalArgumentException("Illegal move: " + text.subSequence(start, end));
+        }
+        return PackedMove.of(from, to) | PackedMove.CASTLE;
+    }
+
+    // the square at index, e.g. e4, or -1 if it isn't one
+    private static int square(CharSequence text, int index) {
+        int file = text.charAt(index) - 'a';
+        int rank = text.charAt(index + 1) - '1';
+        return file < 0 || file > 7 || rank < 0 || rank > 7 ? -1 : rank * 8 + file;
+    }
+
+    private static IllegalArgumentException notSan(CharSequence text, int start, int end) {
+        return new IllegalArgumentException("Not a move in SAN: " + text.subSequence(start, end));
+    }
+}
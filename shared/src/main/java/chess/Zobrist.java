@@ -0,0 +1,63 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the key of every
+ * piece on its square, plus the side-to-move key when black is to move, so moving a
+ * piece updates the key with two XORs instead of rehashing the board. Castling rights
+ * and an en passant file add their own keys, none when there aren't any, so positions
+ * without them keep the keys they always had.
+ * <p>
+ * The keys come from a fixed seed, so a position hashes the same in every process and
+ * keys can be stored or shared between the server and clients.
+ */
+final class Zobrist {
+
+    // indexed by Bitboards.pieceIndex, then square
+    static final long[][] PIECE_KEYS = new long[12][64];
+    static final long BLACK_TO_MOVE;
+    // indexed by the whole set of ChessBoard castling right bits
+    static final long[] CASTLING_KEYS = new long[16];
+    // indexed by the file of the en passant square
+    static final long[] EN_PASSANT_KEYS = new long[8];
+
+    private static long seed = 0x2F0A3C5B7D9E1F35L;
+
+    static {
+        for (long[] pieceKeys : PIECE_KEYS) {
+            for (int sq = 0; sq < 64; sq++) {
+                pieceKeys[sq] = nextKey();
+            }
+        }
+        BLACK_TO_MOVE = nextKey();
+        // drawn after the older keys so those stay the same
+        long[] rightKeys = new long[4];
+        for (int i = 0; i < rightKeys.length; i++) {
+            rightKeys[i] = nextKey();
+        }
+        for (int rights = 0; rights < CASTLING_KEYS.length; rights++) {
+            for (int i = 0; i < rightKeys.length; i++) {
+                if ((rights & (1 << i)) != 0) {
+                    CASTLING_KEYS[rights] ^= rightKeys[i];
+                }
+            }
+        }
+        for (int file = 0; file < EN_PASSANT_KEYS.length; file++) {
+            EN_PASSANT_KEYS[file] = nextKey();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    static long sideKey(ChessGame.TeamColor toMove) {
+        return toMove == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0L;
+    }
+
+    // SplitMix64
+    private static long nextKey() {
+        long z = (seed += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
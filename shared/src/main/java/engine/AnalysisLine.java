@@ -0,0 +1,41 @@
+package engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * One of the lines a {@link Search#analyze MultiPV search} found, or a move taken from
+ * an {@link OpeningBook} without searching
+ *
+ * @param result             the search of this line, whose best move starts it. A book
+ *                           move has a result with no depth, score or nodes
+ * @param principalVariation the moves the search expects both sides to play from the
+ *                           position, starting with the best move
+ * @param bookWeight         the move's weight in the book, 0 if it was searched
+ */
+public record AnalysisLine(SearchResult result, List<ChessMove> principalVariation, int bookWeight) {
+
+    public AnalysisLine(SearchResult result, List<ChessMove> principalVariation) {
+        this(result, principalVariation, 0);
+    }
+
+    /**
+     * @return a line of a single book move
+     */
+    public static AnalysisLine fromBook(OpeningBook.BookMove move) {
+        return new AnalysisLine(new SearchResult(move.move(), 0, 0, 0, 0), List.of(move.chessMove()), move.weight());
+    }
+
+    public boolean isBook() {
+        return bookWeight > 0;
+    }
+
+    public int score() {
+        return result.score();
+    }
+
+    public int depth() {
+        return result.depth();
+    }
+}
@@ -0,0 +1,45 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PieceSquareTables;
+
+/**
+ * Static evaluation of a position by material and piece-square tables. The board keeps
+ * the score up to date as moves are made and unmade, so evaluating a node is a lookup
+ */
+public final class Evaluation {
+
+    // centipawns indexed by PieceType ordinal, the king is never traded so it counts for nothing.
+    // only used to order captures, the evaluation itself comes from PieceSquareTables
+    private static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    private Evaluation() {
+    }
+
+    /**
+     * @return the value of a piece type in centipawns
+     */
+    public static int value(ChessPiece.PieceType type) {
+        return PIECE_VALUES[type.ordinal()];
+    }
+
+    /**
+     * @param toMove the team the score is from the point of view of
+     * @return the board's score in centipawns, positive when toMove is ahead
+     */
+    public static int evaluate(ChessBoard board, ChessGame.TeamColor toMove) {
+        int score = board.getScore();
+        return toMove == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+
+    /**
+     * Same as {@link #evaluate} but adds the board up from scratch instead of reading
+     * its running score, to check the two agree
+     */
+    public static int evaluateFromScratch(ChessBoard board, ChessGame.TeamColor toMove) {
+        int score = PieceSquareTables.score(board);
+        return toMove == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+}
@@ -0,0 +1,133 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * Orders moves so alpha-beta sees the likely best ones first: the move from the last
+ * iteration, then captures by most valuable victim and least valuable attacker
+ * (MVV-LVA), promotions, the killer moves that caused cutoffs at the same ply, and
+ * the remaining quiet moves by their history of causing cutoffs.
+ * <p>
+ * Killers and history belong to one search thread and carry over between
+ * iterations of that thread's search.
+ */
+final class MoveOrdering {
+
+    private static final int HASH_MOVE = 1_000_000;
+    private static final int CAPTURE = 500_000;
+    private static final int PROMOTION = 400_000;
+    private static final int FIRST_KILLER = 300_000;
+    private static final int SECOND_KILLER = 290_000;
+    // history scores are halved before they reach the killers
+    private static final int HISTORY_LIMIT = 200_000;
+
+    private final int[][] killers = new int[SearchLimits.MAX_DEPTH * 2 + 1][2];
+    // indexed by team color ordinal, start square and end square
+    private final int[][][] history = new int[2][64][64];
+    private final int[][] scores = new int[SearchLimits.MAX_DEPTH * 2 + 1][MoveList.DEFAULT_CAPACITY];
+
+    /**
+     * Scores every move in the list so {@link #next} can hand them out best first
+     *
+     * @param hashMove a move to try before all others, or {@link PackedMove#NONE}
+     */
+    void score(MoveList moves, int ply, ChessBoard board, ChessGame.TeamColor color, int hashMove) {
+        if (scores[ply].length < moves.size()) {
+            scores[ply] = new int[moves.size()];
+        }
+        int[] plyScores = scores[ply];
+        int[][] colorHistory = history[color.ordinal()];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score;
+            if (PackedMove.sameMove(move, hashMove)) {
+                score = HASH_MOVE;
+            } else if (PackedMove.isCapture(move)) {
+                // a pawn taken en passant isn't on the square the capture lands on
+                ChessPiece.PieceType victim = PackedMove.isEnPassant(move)
+                        ? ChessPiece.PieceType.PAWN : board.pieceAt(PackedMove.to(move)).getPieceType();
+                ChessPiece attacker = board.pieceAt(PackedMove.from(move));
+                score = CAPTURE + Evaluation.value(victim) * 10 - Evaluation.value(attacker.getPieceType()) / 10;
+            } else if (PackedMove.isPromotion(move)) {
+                score = PROMOTION + Evaluation.value(PackedMove.promotion(move));
+            } else if (move == killers[ply][0]) {
+                score = FIRST_KILLER;
+            } else if (move == killers[ply][1]) {
+                score = SECOND_KILLER;
+            } else {
+                score = colorHistory[PackedMove.from(move)][PackedMove.to(move)];
+            }
+            plyScores[i] = score;
+        }
+    }
+
+    /**
+     * Moves the best scored of the moves from index on into index and returns it, a
+     * selection sort that stops as soon as a cutoff makes the rest unnecessary
+     */
+    int next(MoveList moves, int index, int ply) {
+        int[] plyScores = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (plyScores[i] > plyScores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            moves.swap(index, best);
+            int score = plyScores[index];
+            plyScores[index] = plyScores[best];
+            plyScores[best] = score;
+        }
+        return moves.get(index);
+    }
+
+    /**
+     * Remembers a quiet move that caused a beta cutoff
+     */
+    void cutoff(int move, int ply, int depth, ChessGame.TeamColor color) {
+        if (PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+            return;
+        }
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[][] colorHistory = history[color.ordinal()];
+        colorHistory[PackedMove.from(move)][PackedMove.to(move)] += depth * depth;
+        if (colorHistory[PackedMove.from(move)][PackedMove.to(move)] > HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    private void ageHistory() {
+        for (int[][] colorHistory : history) {
+            for (int[] fromHistory : colorHistory) {
+                for (int to = 0; to < fromHistory.length; to++) {
+                    fromHistory[to] /= 2;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets everything learned, before searching an unrelated position
+     */
+    void clear() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = PackedMove.NONE;
+            plyKillers[1] = PackedMove.NONE;
+        }
+        for (int[][] colorHistory : history) {
+            for (int[] fromHistory : colorHistory) {
+                Arrays.fill(fromHistory, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.LegalMoveGenerator;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Book moves for well-known positions, read straight from a file written by
+ * {@link OpeningBookWriter}.
+ * <p>
+ * The file is a 16 byte header followed by fixed-size entries sorted by position key:
+ * <pre>
+ * header   8 bytes  {@link #MAGIC}
+ *          8 bytes  number of entries
+ * entry    8 bytes  position key, see {@link ChessGame#getPositionKey()}
+ *          2 bytes  the move as a {@link PackedMove} without flags
+ *          2 bytes  the move's weight, unsigned
+ * </pre>
+ * A position's moves sit next to each other, heaviest first. The file is memory-mapped
+ * rather than read, so opening a book costs the same whatever its size, lookups are a
+ * binary search over the mapping and the pages live outside the heap. Lookups don't
+ * move any buffer position, so one book can be shared by every thread.
+ */
+public final class OpeningBook {
+
+    /**
+     * "CHESSBK1", the first bytes of every book file
+     */
+    public static final long MAGIC = 0x4348455353424B31L;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 12;
+    // entries per mapping, each mapping has to stay under 2 GB
+    private static final int ENTRIES_PER_CHUNK = (1 << 30) / ENTRY_BYTES;
+
+    /**
+     * A book without any moves, for when there is no book file
+     */
+    public static final OpeningBook EMPTY = new OpeningBook(new MappedByteBuffer[0], 0);
+
+    /**
+     * A move the book knows for a position
+     *
+     * @param move   the move as a {@link PackedMove} without flags
+     * @param weight how often to play it compared to the position's other book moves
+     */
+    public record BookMove(int move, int weight) {
+
+        public ChessMove chessMove() {
+            return PackedMove.toChessMove(move);
+        }
+    }
+
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    private OpeningBook(MappedByteBuffer[] chunks, long size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Maps a book file. The file can be closed or replaced on disk afterwards without
+     * affecting the book, whose mapping stays valid until it is garbage collected
+     *
+     * @throws IOException if the file can't be read or isn't a complete book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // keep reading until the header is full or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            long size = header.getLong();
+            if (size < 0 || HEADER_BYTES + size * ENTRY_BYTES != channel.size()) {
+                throw new IOException("Opening book is truncated: " + path);
+            }
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + ENTRIES_PER_CHUNK - 1) / ENTRIES_PER_CHUNK)];
+            for (int i = 0; i < chunks.length; i++) {
+                long first = (long) i * ENTRIES_PER_CHUNK;
+                long entries = Math.min(ENTRIES_PER_CHUNK, size - first);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * ENTRY_BYTES, entries * ENTRY_BYTES);
+            }
+            return new OpeningBook(chunks, size);
+        }
+    }
+
+    /**
+     * @return how many moves the book holds across all its positions
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @param positionKey the position's {@link ChessGame#getPositionKey() key}
+     * @return the book moves for the position, heaviest first, or an empty list if the
+     * position isn't in the book
+     */
+    public List<BookMove> moves(long positionKey) {
+        List<BookMove> moves = new ArrayList<>();
+        for (long i = firstEntry(positionKey); i < size && key(i) == positionKey; i++) {
+            moves.add(new BookMove(move(i), weight(i)));
+        }
+        return moves;
+    }
+
+    /**
+     * Picks one of a position's book moves at random, heavier moves more often. Moves
+     * that aren't legal on the board, as happens when two positions share a key, are
+     * never picked
+     *
+     * @return the move with the flags the move generator gives it, or
+     * {@link PackedMove#NONE} if the book has no legal move for the position
+     */
+    public int pick(ChessBoard board, ChessGame.TeamColor toMove, RandomGenerator random) {
+        List<BookMove> legal = legalMoves(board, toMove);
+        int total = 0;
+        for (BookMove move : legal) {
+            total += move.weight();
+        }
+        if (total == 0) {
+            return PackedMove.NONE;
+        }
+        int choice = random.nextInt(total);
+        for (BookMove move : legal) {
+            choice -= move.weight();
+            if (choice < 0) {
+                return move.move();
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    /**
+     * @return the book moves for a board that are legal on it, heaviest first, with the
+     * flags the move generator gives them. Moves with no weight are left out
+     */
+    public List<BookMove> legalMoves(ChessBoard board, ChessGame.TeamColor toMove) {
+        List<BookMove> moves = moves(board.getZobristKey(toMove));
+        if (moves.isEmpty()) {
+            return moves;
+        }
+        MoveList legal = new MoveList();
+        new LegalMoveGenerator(board, toMove).generate(legal);
+        List<BookMove> found = new ArrayList<>(moves.size());
+        for (BookMove move : moves) {
+            int legalMove = legal.find(move.move());
+            if (legalMove != PackedMove.NONE && move.weight() > 0) {
+                found.add(new BookMove(legalMove, move.weight()));
+            }
+        }
+        return found;
+    }
+
+    // binary search for the first entry whose key isn't below positionKey
+    private long firstEntry(long positionKey) {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (key(mid) < positionKey) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long key(long entry) {
+        return chunk(entry).getLong(offset(entry));
+    }
+
+    private int move(long entry) {
+        return chunk(entry).getShort(offset(entry) + 8) & 0xFFFF;
+    }
+
+    private int weight(long entry) {
+        return chunk(entry).getShort(offset(entry) + 10) & 0xFFFF;
+    }
+
+    private MappedByteBuffer chunk(long entry) {
+        return chunks[(int) (entry / ENTRIES_PER_CHUNK)];
+    }
+
+    private static int offset(long entry) {
+        return (int) (entry % ENTRIES_PER_CHUNK) * ENTRY_BYTES;
+    }
+}
@@ -0,0 +1,117 @@
+package engine;
+
+import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an {@link OpeningBook} file. Moves are collected in memory, with the weights
+ * of a move added more than once summed, and written sorted in one go.
+ * <p>
+ * Run it directly to build a book from a text file of opening lines, one line per row
+ * in coordinate notation from the starting position, e.g. {@code e2e4 e7e5 g1f3}. Every
+ * move along a line adds one to its weight, so lines that share a start make that
+ * start the likeliest choice. Blank rows and rows starting with # are skipped.
+ * <pre>
+ * java engine.OpeningBookWriter openings.txt opening.book
+ * </pre>
+ */
+public final class OpeningBookWriter {
+
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final Map<Long, Map<Integer, Integer>> positions = new HashMap<>();
+
+    /**
+     * Adds weight to a book move, flags on the move are ignored
+     */
+    public void add(long positionKey, int move, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Book weights can't be negative: " + weight);
+        }
+        positions.computeIfAbsent(positionKey, key -> new HashMap<>())
+                .merge(PackedMove.withoutFlags(move), weight, Integer::sum);
+    }
+
+    /**
+     * Adds weight to every move of a line played from the starting position
+     *
+     * @param line moves in coordinate notation separated by spaces
+     * @throws IllegalArgumentException if a move can't be read or isn't legal
+     */
+    public void addLine(String line, int weight) {
+        ChessGame game = new ChessGame();
+        for (String text : line.trim().split("\\s+")) {
+            int move = PackedMove.parse(text);
+            add(game.getPositionKey(), move, weight);
+            try {
+                game.makeMove(PackedMove.toChessMove(move));
+            } catch (InvalidMoveException e) {
+                throw new IllegalArgumentException("Illegal move " + text + " in line: " + line, e);
+            }
+        }
+    }
+
+    /**
+     * @return how many moves the book will hold across all its positions
+     */
+    public long size() {
+        long size = 0;
+        for (Map<Integer, Integer> moves : positions.values()) {
+            size += moves.size();
+        }
+        return size;
+    }
+
+    public void write(Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(out);
+        }
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        List<Long> keys = new ArrayList<>(positions.keySet());
+        keys.sort(Long::compare);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeLong(OpeningBook.MAGIC);
+        out.writeLong(size());
+        for (long key : keys) {
+            List<Map.Entry<Integer, Integer>> moves = new ArrayList<>(positions.get(key).entrySet());
+            // heaviest first, ties in move order so the same input always writes the same file
+            moves.sort((a, b) -> a.getValue().equals(b.getValue())
+                    ? Integer.compare(a.getKey(), b.getKey()) : Integer.compare(b.getValue(), a.getValue()));
+            for (Map.Entry<Integer, Integer> move : moves) {
+                out.writeLong(key);
+                out.writeShort(move.getKey());
+                out.writeShort(Math.min(move.getValue(), MAX_WEIGHT));
+            }
+        }
+        out.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: OpeningBookWriter <lines file> <book file>");
+            return;
+        }
+        OpeningBookWriter writer = new OpeningBookWriter();
+        for (String line : Files.readAllLines(Path.of(args[0]))) {
+            if (!line.isBlank() && !line.startsWith("#")) {
+                writer.addLine(line, 1);
+            }
+        }
+        writer.write(Path.of(args[1]));
+        System.out.println("Wrote " + writer.size() + " book moves to " + args[1]);
+    }
+}
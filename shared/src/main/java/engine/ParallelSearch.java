@@ -0,0 +1,195 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.PackedMove;
+import tablebase.Tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches with several threads at once in the Lazy SMP style: every thread runs its
+ * own iterative deepening search of the same position and they share one
+ * {@link TranspositionTable}. Helpers fill the table with results the main thread
+ * then finds instead of searching, and helpers start at staggered depths so they
+ * wander into different parts of the tree.
+ * <p>
+ * The main thread is the caller's. Its move is the one returned, and when it finishes
+ * the helpers are stopped, so a time limit holds however many threads there are.
+ * A node limit counts the main thread only. {@link #analyze MultiPV analysis} searches
+ * each line with every thread in turn.
+ * <p>
+ * One search runs at a time; call {@link #close()} to let the helper threads go.
+ */
+public final class ParallelSearch implements AutoCloseable {
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final TranspositionTable table;
+    private final Search[] searches;
+    private final ExecutorService helperPool;
+    // set by stop(), so a stop between an analysis's lines ends it
+    private volatile boolean cancelled;
+
+    /**
+     * @param threads        how many threads to search with, including the caller's
+     * @param tableMegabytes memory for the shared transposition table
+     */
+    public ParallelSearch(int threads, int tableMegabytes) {
+        this(threads, new TranspositionTable(tableMegabytes));
+    }
+
+    public ParallelSearch(int threads, TranspositionTable table) {
+        this(threads, table, Tablebase.EMPTY);
+    }
+
+    /**
+     * @param tablebase endings every thread looks up instead of searching
+     */
+    public ParallelSearch(int threads, TranspositionTable table, Tablebase tablebase) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread: " + threads);
+        }
+        this.table = table;
+        searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(table, tablebase);
+        }
+        if (threads == 1) {
+            helperPool = null;
+        } else {
+            int pool = POOL_COUNT.incrementAndGet();
+            AtomicInteger helperCount = new AtomicInteger();
+            helperPool = Executors.newFixedThreadPool(threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "search-" + pool + "-helper-" + helperCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int threads() {
+        return searches.length;
+    }
+
+    public TranspositionTable table() {
+        return table;
+    }
+
+    /**
+     * Finds the best move for the team whose turn it is. The game itself isn't changed
+     */
+    public ParallelSearchResult search(ChessGame game, SearchLimits limits) {
+        return search(game.getBoard(), game.getTeamTurn(), limits);
+    }
+
+    /**
+     * Finds the best move for a team on a board. The board itself isn't changed
+     */
+    public synchronized ParallelSearchResult search(ChessBoard position, ChessGame.TeamColor toMove, SearchLimits limits) {
+        cancelled = false;
+        table.newSearch();
+        return run(position, toMove, limits);
+    }
+
+    /**
+     * Finds the best few moves for a team and the line each one leads to, like
+     * {@link Search#analyze}, with every thread searching each line. The board itself
+     * isn't changed
+     *
+     * @param lines how many moves to report at most, fewer come back when the side to
+     *              move doesn't have that many
+     * @return the lines best first
+     */
+    public synchronized List<AnalysisLine> analyze(ChessBoard position, ChessGame.TeamColor toMove, SearchLimits limits,
+                                                   int lines) {
+        if (lines < 1) {
+            throw new IllegalArgumentException("Analysis needs at least one line: " + lines);
+        }
+        cancelled = false;
+        table.newSearch();
+        SearchLimits lineLimits = Search.lineLimits(limits, lines);
+        List<AnalysisLine> found = new ArrayList<>(lines);
+        try {
+            for (int i = 0; i < lines && !cancelled; i++) {
+                SearchResult result = run(position, toMove, lineLimits).main();
+                if (result.bestMove() == PackedMove.NONE) {
+                    break;
+                }
+                found.add(new AnalysisLine(result,
+                        searches[0].principalVariation(position, toMove, result.bestMove(), result.depth())));
+                for (Search search : searches) {
+                    search.excludeRootMove(result.bestMove());
+                }
+            }
+        } finally {
+            for (Search search : searches) {
+                search.clearExcludedRootMoves();
+            }
+        }
+        return found;
+    }
+
+    // one search of the position by every thread, in the table's current generation
+    private ParallelSearchResult run(ChessBoard position, ChessGame.TeamColor toMove, SearchLimits limits) {
+        for (Search search : searches) {
+            search.prepare();
+        }
+
+        List<Future<SearchResult>> helpers = new ArrayList<>();
+        SearchLimits helperLimits = limits.withNodes(0);
+        for (int i = 1; i < searches.length; i++) {
+            Search helper = searches[i];
+            // every helper gets its own copy, the board isn't safe to read from several threads
+            ChessBoard copy = position.clone();
+            int firstDepth = 1 + (i & 1);
+            helpers.add(helperPool.submit(() -> helper.run(copy, toMove, helperLimits, firstDepth)));
+        }
+
+        SearchResult main;
+        try {
+            main = searches[0].run(position, toMove, limits, 1);
+        } finally {
+            for (int i = 1; i < searches.length; i++) {
+                searches[i].stop();
+            }
+        }
+
+        List<SearchResult> helperResults = new ArrayList<>();
+        try {
+            for (Future<SearchResult> helper : helpers) {
+                helperResults.add(helper.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search helper failed", e.getCause());
+        }
+        return new ParallelSearchResult(main, helperResults);
+    }
+
+    /**
+     * Asks a running search to stop and answer with what it has, from any thread
+     */
+    public void stop() {
+        cancelled = true;
+        for (Search search : searches) {
+            search.stop();
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * What a {@link ParallelSearch} found, with each thread's own counts
+ *
+ * @param main    the main thread's result, whose move is the one to play
+ * @param helpers the helper threads' results, in thread order
+ */
+public record ParallelSearchResult(SearchResult main, List<SearchResult> helpers) {
+
+    public int bestMove() {
+        return main.bestMove();
+    }
+
+    public ChessMove bestChessMove() {
+        return main.bestChessMove();
+    }
+
+    public int score() {
+        return main.score();
+    }
+
+    public long totalNodes() {
+        long nodes = main.nodes();
+        for (SearchResult helper : helpers) {
+            nodes += helper.nodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * @return nodes per second of all threads together, over the main thread's time
+     */
+    public long nodesPerSecond() {
+        return main.nanoseconds() == 0 ? 0 : totalNodes() * 1_000_000_000L / main.nanoseconds();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(main.toString());
+        sb.append(" total nodes ").append(totalNodes()).append(" total nps ").append(nodesPerSecond());
+        for (int i = 0; i < helpers.size(); i++) {
+            sb.append("\n  helper ").append(i + 1).append(": depth ").append(helpers.get(i).depth())
+                    .append(" nodes ").append(helpers.get(i).nodes())
+                    .append(" nps ").append(helpers.get(i).nodesPerSecond());
+        }
+        return sb.toString();
+    }
+}
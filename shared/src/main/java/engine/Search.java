@@ -0,0 +1,451 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.LegalMoveGenerator;
+import chess.MoveList;
+import chess.PackedMove;
+import tablebase.Tablebase;
+import tablebase.TablebaseResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chooses a move with a negamax alpha-beta search.
+ * <p>
+ * The search deepens one ply at a time (iterative deepening), trying the previous
+ * iteration's best move first, until it reaches the depth limit or runs out of time
+ * or nodes. Leaf positions are settled with a quiescence search over captures and
+ * promotions so a score is never taken in the middle of an exchange.
+ * <p>
+ * Results are kept in a {@link TranspositionTable}, which several searches may share.
+ * Endings a {@link Tablebase} covers are looked up rather than searched, so they are
+ * played perfectly.
+ * A search works on its own copy of the board and keeps its move lists, killers and
+ * history between calls, so reuse one instance per thread rather than sharing it.
+ */
+public final class Search {
+
+    /**
+     * Score of mating right now; mates further away score one less per ply
+     */
+    public static final int MATE = 30_000;
+    private static final int INFINITY = 32_000;
+    private static final int MAX_PLY = SearchLimits.MAX_DEPTH * 2;
+    // how many nodes go by between looks at the clock
+    private static final int CHECK_INTERVAL = 1024;
+    private static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    private final LegalMoveGenerator generator = new LegalMoveGenerator();
+    private final MoveList[] lists = new MoveList[MAX_PLY + 1];
+    private final MoveOrdering ordering = new MoveOrdering();
+    private final TranspositionTable table;
+    private final Tablebase tablebase;
+
+    private ChessBoard board;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private volatile boolean stopped;
+    // set by stop() only, where stopped is also set when a limit is reached
+    private volatile boolean cancelled;
+    // root moves a MultiPV search has already reported and leaves out of the next line
+    private final MoveList excludedRootMoves = new MoveList();
+    private int rootBestMove;
+    private int rootBestScore;
+    private int completedDepth;
+
+    /**
+     * Creates a search with a transposition table of its own
+     */
+    public Search() {
+        this(new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+    }
+
+    /**
+     * @param table where results are stored, can be shared with other searches
+     */
+    public Search(TranspositionTable table) {
+        this(table, Tablebase.EMPTY);
+    }
+
+    /**
+     * @param table     where results are stored, can be shared with other searches
+     * @param tablebase endings to look up instead of search, can be shared too
+     */
+    public Search(TranspositionTable table, Tablebase tablebase) {
+        this.table = table;
+        this.tablebase = tablebase;
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Finds the best move for the team whose turn it is. The game itself isn't changed
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        return search(game.getBoard(), game.getTeamTurn(), limits);
+    }
+
+    /**
+     * Finds the best move for a team on a board. The board itself isn't changed
+     *
+     * @param toMove the team to find a move for
+     */
+    public SearchResult search(ChessBoard position, ChessGame.TeamColor toMove, SearchLimits limits) {
+        prepare();
+        table.newSearch();
+        return run(position, toMove, limits, 1);
+    }
+
+    /**
+     * Finds the best few moves for a team and the line each one leads to (MultiPV). Each
+     * line is its own search that leaves out the moves of the lines before it, so the
+     * time and node limits are split evenly between the lines. The board itself isn't
+     * changed
+     *
+     * @param lines how many moves to report at most, fewer come back when the side to
+     *              move doesn't have that many
+     * @return the lines best first
+     */
+    public List<AnalysisLine> analyze(ChessBoard position, ChessGame.TeamColor toMove, SearchLimits limits, int lines) {
+        if (lines < 1) {
+            throw new IllegalArgumentException("Analysis needs at least one line: " + lines);
+        }
+        prepare();
+        table.newSearch();
+        SearchLimits lineLimits = lineLimits(limits, lines);
+
+        List<AnalysisLine> found = new ArrayList<>(lines);
+        try {
+            for (int i = 0; i < lines && !cancelled; i++) {
+                // running out of budget ends one line, not the ones after it
+                stopped = false;
+                SearchResult result = run(position, toMove, lineLimits, 1);
+                if (result.bestMove() == PackedMove.NONE) {
+                    break;
+                }
+                found.add(new AnalysisLine(result, principalVariation(position, toMove, result.bestMove(), result.depth())));
+                excludedRootMoves.add(result.bestMove());
+            }
+        } finally {
+            excludedRootMoves.clear();
+        }
+        return found;
+    }
+
+    // an analysis's time and node limits split evenly between its lines
+    static SearchLimits lineLimits(SearchLimits limits, int lines) {
+        SearchLimits lineLimits = limits;
+        if (limits.timeMillis() > 0) {
+            lineLimits = lineLimits.withTime(Math.max(1, limits.timeMillis() / lines));
+        }
+        if (limits.nodes() > 0) {
+            lineLimits = lineLimits.withNodes(Math.max(1, limits.nodes() / lines));
+        }
+        return lineLimits;
+    }
+
+    /**
+     * Leaves a root move out of the searches that follow, until
+     * {@link #clearExcludedRootMoves()}. A {@link ParallelSearch} analysis sets the same
+     * moves on every thread
+     */
+    void excludeRootMove(int move) {
+        excludedRootMoves.add(move);
+    }
+
+    void clearExcludedRootMoves() {
+        excludedRootMoves.clear();
+    }
+
+    /**
+     * Clears an earlier stop request. A {@link ParallelSearch} calls this before handing
+     * the search to a helper thread, so a stop that comes before the helper starts
+     * still counts
+     */
+    void prepare() {
+        stopped = false;
+        cancelled = false;
+    }
+
+    /**
+     * Runs the search without starting a new table generation
+     *
+     * @param firstDepth the depth to start deepening from, helper threads of a
+     *                   {@link ParallelSearch} start at different depths so they don't
+     *                   all search the same tree in step
+     */
+    SearchResult run(ChessBoard position, ChessGame.TeamColor toMove, SearchLimits limits, int firstDepth) {
+        long start = System.nanoTime();
+        board = position.clone();
+        nodes = 0;
+        nodeLimit = limits.nodes() == 0 ? Long.MAX_VALUE : limits.nodes();
+        deadline = limits.timeMillis() == 0 ? Long.MAX_VALUE : start + limits.timeMillis() * 1_000_000L;
+
+        completedDepth = 0;
+        int bestMove = PackedMove.NONE;
+        int bestScore = 0;
+        for (int depth = Math.min(firstDepth, limits.depth()); depth <= limits.depth(); depth++) {
+            rootBestMove = PackedMove.NONE;
+            rootBestScore = -INFINITY;
+            int score = negamax(depth, 0, -INFINITY, INFINITY, toMove, bestMove);
+            if (stopped) {
+                // a partial iteration searched the previous best move first, so any move
+                // it settled on is at least as good as that one
+                if (rootBestMove != PackedMove.NONE) {
+                    bestMove = rootBestMove;
+                    bestScore = rootBestScore;
+                }
+                break;
+            }
+            bestMove = rootBestMove;
+            bestScore = score;
+            completedDepth = depth;
+            // no point searching deeper once a forced mate is found, or without a move to make
+            if (bestMove == PackedMove.NONE || Math.abs(score) >= MATE - MAX_PLY) {
+                break;
+            }
+        }
+        board = null;
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Asks a running search to stop and answer with what it has, from any thread
+     */
+    public void stop() {
+        cancelled = true;
+        stopped = true;
+    }
+
+    /**
+     * Forgets the killers and history learned so far, e.g. when starting a new game
+     */
+    public void clear() {
+        ordering.clear();
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta, ChessGame.TeamColor color, int hashMove) {
+        if (countNode()) {
+            return 0;
+        }
+        // the root still searches, so there is a move to answer with
+        if (ply > 0) {
+            TablebaseResult known = tablebase.probe(board, color);
+            if (known != null) {
+                return tablebaseScore(known, ply);
+            }
+        }
+        generator.reset(board, color);
+        boolean inCheck = generator.inCheck();
+        // look one ply further when in check, so a check never hides a threat past the horizon
+        if (inCheck && ply < MAX_PLY / 2) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta, color);
+        }
+
+        long key = board.getZobristKey(color);
+        long entry = table.probe(key);
+        if (entry != TranspositionTable.MISS) {
+            if (hashMove == PackedMove.NONE) {
+                hashMove = TranspositionTable.move(entry);
+            }
+            // the root always searches, so there is a move to answer with
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = lists[ply];
+        moves.clear();
+        generator.generate(moves);
+        if (moves.isEmpty()) {
+            // checkmate scores prefer the quickest mate, stalemate is a draw
+            return inCheck ? -MATE + ply : 0;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(board, color);
+        }
+
+        ordering.score(moves, ply, board, color, hashMove);
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = ordering.next(moves, i, ply);
+            if (ply == 0 && !excludedRootMoves.isEmpty() && excludedRootMoves.contains(move)) {
+                continue;
+            }
+            int undo = board.makeMove(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha, color.opponent(), PackedMove.NONE);
+            board.unmakeMove(undo);
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (ply == 0) {
+                    rootBestMove = move;
+                    rootBestScore = score;
+                }
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                ordering.cutoff(move, ply, depth, color);
+                break;
+            }
+        }
+
+        // a root with moves left out scored only some of its moves, which isn't worth keeping
+        if (ply > 0 || excludedRootMoves.isEmpty()) {
+            int bound = bestScore >= beta ? TranspositionTable.LOWER
+                    : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+        }
+        return bestScore;
+    }
+
+    // follows the best moves stored in the table from a root move, stopping at a miss,
+    // a move that isn't legal (another position's entry) or after maxLength moves
+    List<ChessMove> principalVariation(ChessBoard position, ChessGame.TeamColor toMove, int firstMove, int maxLength) {
+        ChessBoard line = position.clone();
+        MoveList legal = new MoveList();
+        List<ChessMove> moves = new ArrayList<>();
+        ChessGame.TeamColor color = toMove;
+        int move = firstMove;
+        while (move != PackedMove.NONE && moves.size() < Math.max(1, maxLength)) {
+            generator.reset(line, color);
+            legal.clear();
+            generator.generate(legal);
+            move = legal.find(move);
+            if (move == PackedMove.NONE) {
+                break;
+            }
+            moves.add(PackedMove.toChessMove(move));
+            line.makeMove(move);
+            color = color.opponent();
+            long entry = table.probe(line.getZobristKey(color));
+            move = entry == TranspositionTable.MISS ? PackedMove.NONE : TranspositionTable.move(entry);
+        }
+        return moves;
+    }
+
+    // mates are scored from the root like searched ones, distances past the mate range
+    // are cut short so they still read as mates
+    private static int tablebaseScore(TablebaseResult result, int ply) {
+        int plies = Math.min(ply + result.distance(), MAX_PLY);
+        return switch (result.outcome()) {
+            case WIN -> MATE - plies;
+            case LOSS -> -MATE + plies;
+            case DRAW -> 0;
+        };
+    }
+
+    // mate scores count plies from the root, the table stores them counted from the position itself
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private int quiescence(int ply, int alpha, int beta, ChessGame.TeamColor color) {
+        // the generator was already reset for this position by the caller
+        MoveList moves = lists[ply];
+        moves.clear();
+        boolean inCheck = generator.inCheck();
+        int bestScore;
+        if (inCheck) {
+            // standing pat isn't an option in check, every evasion has to be looked at
+            generator.generate(moves);
+            if (moves.isEmpty()) {
+                return -MATE + ply;
+            }
+            bestScore = -INFINITY;
+        } else {
+            bestScore = Evaluation.evaluate(board, color);
+            if (bestScore >= beta || ply >= MAX_PLY) {
+                return bestScore;
+            }
+            if (bestScore > alpha) {
+                alpha = bestScore;
+            }
+            generator.generateNoisy(moves);
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(board, color);
+        }
+
+        ordering.score(moves, ply, board, color, PackedMove.NONE);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = ordering.next(moves, i, ply);
+            int undo = board.makeMove(move);
+            int score;
+            if (countNode()) {
+                score = 0;
+            } else {
+                generator.reset(board, color.opponent());
+                score = -quiescence(ply + 1, -beta, -alpha, color.opponent());
+            }
+            board.unmakeMove(undo);
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        return bestScore;
+    }
+
+    // counts a node and returns True once the search has to stop
+    private boolean countNode() {
+        nodes++;
+        // always finish the first iteration, so there is a move to answer with
+        if (completedDepth == 0) {
+            return false;
+        }
+        if (nodes >= nodeLimit) {
+            stopped = true;
+        } else if ((nodes & (CHECK_INTERVAL - 1)) == 0 && System.nanoTime() >= deadline) {
+            stopped = true;
+        }
+        return stopped;
+    }
+}
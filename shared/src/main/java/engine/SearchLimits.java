@@ -0,0 +1,50 @@
+package engine;
+
+/**
+ * How far a {@link Search} may go before it has to answer. The search stops at
+ * whichever limit it reaches first and answers with the deepest fully searched
+ * iteration, or the best move so far if it gets stopped partway through one.
+ *
+ * @param depth      deepest iteration to search, in plies
+ * @param timeMillis wall-clock budget in milliseconds, 0 for none
+ * @param nodes      most positions to visit, 0 for none
+ */
+public record SearchLimits(int depth, long timeMillis, long nodes) {
+
+    /**
+     * Deepest any search goes, which also bounds how far quiescence and check
+     * extensions can reach
+     */
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Search depth must be between 1 and " + MAX_DEPTH + ": " + depth);
+        }
+        if (timeMillis < 0 || nodes < 0) {
+            throw new IllegalArgumentException("Search limits can't be negative");
+        }
+    }
+
+    /**
+     * @return limits that search to a fixed depth however long it takes
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    /**
+     * @return limits that search as deep as a time budget allows
+     */
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(MAX_DEPTH, timeMillis, 0);
+    }
+
+    public SearchLimits withTime(long timeMillis) {
+        return new SearchLimits(depth, timeMillis, nodes);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(depth, timeMillis, nodes);
+    }
+}
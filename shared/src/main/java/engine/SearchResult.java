@@ -0,0 +1,51 @@
+package engine;
+
+import chess.ChessMove;
+import chess.PackedMove;
+
+/**
+ * What a {@link Search} found
+ *
+ * @param bestMove    the move to play as a {@link PackedMove}, {@link PackedMove#NONE} if
+ *                    the side to move has no legal move
+ * @param score       centipawns from the side to move's point of view, see {@link #isMate()}
+ * @param depth       deepest iteration that finished
+ * @param nodes       positions visited
+ * @param nanoseconds how long the search took
+ */
+public record SearchResult(int bestMove, int score, int depth, long nodes, long nanoseconds) {
+
+    /**
+     * @return the best move as a {@link ChessMove}, or null if there isn't one
+     */
+    public ChessMove bestChessMove() {
+        return bestMove == PackedMove.NONE ? null : PackedMove.toChessMove(bestMove);
+    }
+
+    /**
+     * @return True if the score is a forced mate, for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - SearchLimits.MAX_DEPTH * 2;
+    }
+
+    /**
+     * @return moves until mate, negative when the side to move is the one getting mated
+     */
+    public int mateIn() {
+        int plies = Search.MATE - Math.abs(score);
+        int moves = (plies + 1) / 2;
+        return score > 0 ? moves : -moves;
+    }
+
+    public long nodesPerSecond() {
+        return nanoseconds == 0 ? 0 : nodes * 1_000_000_000L / nanoseconds;
+    }
+
+    @Override
+    public String toString() {
+        String scoreText = isMate() ? "mate " + mateIn() : "cp " + score;
+        return String.format("bestmove %s %s depth %d nodes %d nps %d",
+                PackedMove.toString(bestMove), scoreText, depth, nodes, nodesPerSecond());
+    }
+}
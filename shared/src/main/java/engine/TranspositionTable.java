@@ -0,0 +1,189 @@
+package engine;
+
+import chess.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results keyed by position, so a position reached
+ * by different move orders is only searched once.
+ * <p>
+ * Entries live in one {@code long[]}, two longs each: the position key XORed with
+ * the entry's data, then the data itself. Several threads can read and write the
+ * table without locks; a reader that catches an entry halfway through being
+ * rewritten sees a key that no longer XORs back to its own and treats it as a miss.
+ * <p>
+ * Entries are grouped into buckets of {@value #BUCKET_SIZE}. A store replaces the
+ * entry for the same position if there is one, otherwise whichever entry in the
+ * bucket is shallowest and oldest, so deep results from the current search survive
+ * the longest.
+ */
+public final class TranspositionTable {
+
+    public static final int EXACT = 1;
+    // the score is at least the stored score, the search failed high
+    public static final int LOWER = 2;
+    // the score is at most the stored score, the search failed low
+    public static final int UPPER = 3;
+
+    /**
+     * Returned by {@link #probe(long)} when the position isn't in the table. Stored data
+     * is never 0 because scores are kept with a positive offset
+     */
+    public static final long MISS = 0L;
+
+    public static final int MAX_MEGABYTES = 8192;
+    private static final int BUCKET_SIZE = 4;
+    private static final int BYTES_PER_ENTRY = 2 * Long.BYTES;
+
+    // data layout: move 0-19, score + 32768 in 20-35, depth 36-43, bound 44-45, generation 46-53
+    private static final long MOVE_MASK = (1L << 20) - 1;
+    private static final int SCORE_SHIFT = 20;
+    private static final int SCORE_OFFSET = 32768;
+    private static final int DEPTH_SHIFT = 36;
+    private static final int BOUND_SHIFT = 44;
+    private static final int GENERATION_SHIFT = 46;
+
+    private final long[] table;
+    private final long bucketMask;
+    private volatile int generation = 0;
+
+    /**
+     * @param megabytes how much memory the table may use, rounded down to a power of two
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1 || megabytes > MAX_MEGABYTES) {
+            throw new IllegalArgumentException("Transposition table size must be between 1 and " + MAX_MEGABYTES + " MB: " + megabytes);
+        }
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / (BYTES_PER_ENTRY * BUCKET_SIZE));
+        table = new long[(int) (buckets * BUCKET_SIZE * 2)];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * @return how many entries the table holds
+     */
+    public int capacity() {
+        return table.length / 2;
+    }
+
+    /**
+     * @return bytes taken by the entries
+     */
+    public long sizeInBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    /**
+     * Marks the start of a new search, so entries left by older searches are replaced first
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table, which must not be in use by a search at the time
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        generation = 0;
+    }
+
+    /**
+     * @return the stored data for the position, or {@link #MISS}. Read it with
+     * {@link #move}, {@link #score}, {@link #depth} and {@link #bound}
+     */
+    public long probe(long key) {
+        int index = bucketIndex(key);
+        for (int i = 0; i < BUCKET_SIZE; i++, index += 2) {
+            long data = table[index + 1];
+            if ((table[index] ^ data) == key && data != MISS) {
+                return data;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * @param move  best move found, or {@link PackedMove#NONE}
+     * @param score score found, mate scores relative to this position
+     * @param depth depth searched below this position
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int bucket = bucketIndex(key);
+        int currentGeneration = generation;
+        int replace = bucket;
+        int replaceWorth = Integer.MAX_VALUE;
+        for (int i = 0, index = bucket; i < BUCKET_SIZE; i++, index += 2) {
+            long data = table[index + 1];
+            if (data == MISS || (table[index] ^ data) == key) {
+                replace = index;
+                if (data != MISS) {
+                    // keep a deeper result for the same position unless the new one is exact
+                    if (bound != EXACT && depth < depth(data) - 2) {
+                        return;
+                    }
+                    if (move == PackedMove.NONE) {
+                        move = move(data);
+                    }
+                }
+                break;
+            }
+            // an entry from an older search counts as much shallower than it is
+            int age = (currentGeneration - generation(data)) & 0xFF;
+            int worth = depth(data) - 4 * age;
+            if (worth < replaceWorth) {
+                replaceWorth = worth;
+                replace = index;
+            }
+        }
+        long data = (move & MOVE_MASK)
+                | ((long) (score + SCORE_OFFSET) << SCORE_SHIFT)
+                | ((long) depth << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) currentGeneration << GENERATION_SHIFT);
+        table[replace] = key ^ data;
+        table[replace + 1] = data;
+    }
+
+    /**
+     * @return roughly how full the table is in permille, from a sample of its entries
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, capacity());
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = table[2 * i + 1];
+            if (data != MISS && generation(data) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    private int bucketIndex(long key) {
+        // the low bits pick the bucket, the whole key is still checked on a probe
+        return (int) (key & bucketMask) * BUCKET_SIZE * 2;
+    }
+
+    public static int move(long data) {
+        return (int) (data & MOVE_MASK);
+    }
+
+    public static int score(long data) {
+        return (int) ((data >>> SCORE_SHIFT) & 0xFFFF) - SCORE_OFFSET;
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 0x3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> GENERATION_SHIFT) & 0xFF);
+    }
+}
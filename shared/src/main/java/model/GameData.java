@@ -21,6 +21,13 @@ public record GameData(int gameID, String whiteUsername, String blackUsername, S
         return new GameData(gameID, whiteUsername, blackUsername, gameName, game);
     }
 
+    /**
+     * @return the username playing a color, or null if the seat is open
+     */
+    public String username(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? whiteUsername : blackUsername;
+    }
+
     @Override
     public String toString() {
         return String.format("Game Name: %s     White: %s     Black: %s", gameName, whiteUsername, blackUsername);
@@ -0,0 +1,69 @@
+package pgn;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a UTF-8 file through memory mappings of up to a gigabyte at a time, so the file
+ * is paged in by the operating system instead of copied through a stream buffer, and
+ * files of any size can be read.
+ * <p>
+ * A character split across the end of one mapping is left undecoded and the next
+ * mapping starts at its first byte. Bytes that aren't UTF-8 are read as U+FFFD.
+ */
+final class MappedFileReader extends Reader {
+
+    private static final long MAX_MAPPING = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer mapping = ByteBuffer.allocate(0);
+    // file offset just past the current mapping
+    private long mappingEnd = 0;
+
+    MappedFileReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(chars, offset, length);
+        while (true) {
+            boolean last = mappingEnd == size;
+            CoderResult result = decoder.decode(mapping, out, last);
+            if (out.position() > offset) {
+                return out.position() - offset;
+            }
+            if (result.isOverflow()) {
+                throw new IOException("No room to read a character into");
+            }
+            if (last) {
+                return -1;
+            }
+            long start = mappingEnd - mapping.remaining();
+            mappingEnd = Math.min(size, start + MAX_MAPPING);
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, start, mappingEnd - start);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,100 @@
+package pgn;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+import chess.PackedMove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One game read from PGN: its tags, its moves checked for legality and its result.
+ * Comments, variations and annotations aren't kept.
+ */
+public final class PgnGame {
+
+    /**
+     * The game result markers PGN allows
+     */
+    public static final String WHITE_WINS = "1-0";
+    public static final String BLACK_WINS = "0-1";
+    public static final String DRAW = "1/2-1/2";
+    public static final String UNFINISHED = "*";
+
+    private final Map<String, String> tags;
+    private final int[] moves;
+    private final String result;
+
+    PgnGame(Map<String, String> tags, int[] moves, String result) {
+        this.tags = Collections.unmodifiableMap(tags);
+        this.moves = moves;
+        this.result = result;
+    }
+
+    /**
+     * @return every tag in the order the game lists them, e.g. Event, White and Black
+     */
+    public Map<String, String> tags() {
+        return tags;
+    }
+
+    /**
+     * @return the tag's value, or null if the game doesn't have it
+     */
+    public String tag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * @return the result marker that ended the movetext, or the Result tag if it had none
+     */
+    public String result() {
+        return result;
+    }
+
+    public int moveCount() {
+        return moves.length;
+    }
+
+    /**
+     * @return the move at a ply counting from 0, as a {@link PackedMove} with its flags set
+     */
+    public int move(int ply) {
+        return moves[ply];
+    }
+
+    public int[] moves() {
+        return Arrays.copyOf(moves, moves.length);
+    }
+
+    public List<ChessMove> chessMoves() {
+        List<ChessMove> chessMoves = new ArrayList<>(moves.length);
+        for (int move : moves) {
+            chessMoves.add(PackedMove.toChessMove(move));
+        }
+        return chessMoves;
+    }
+
+    /**
+     * @return a new game at the position the moves start from: the FEN tag's if there is
+     * one, otherwise the starting position
+     */
+    public ChessGame startPosition() {
+        return startPosition(tags);
+    }
+
+    static ChessGame startPosition(Map<String, String> tags) {
+        String fen = tags.get("FEN");
+        return fen == null ? new ChessGame() : Fen.parse(fen);
+    }
+
+    @Override
+    public String toString() {
+        return tags.getOrDefault("White", "?") + " - " + tags.getOrDefault("Black", "?") + ", "
+                + moves.length + " plies, " + result;
+    }
+}
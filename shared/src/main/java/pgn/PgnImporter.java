@@ -0,0 +1,219 @@
+package pgn;
+
+import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import engine.OpeningBookWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Reads every game of a PGN file with several threads at once. The calling thread
+ * splits the file into games with a {@link PgnReader} and hands them out in batches
+ * to worker threads, each parsing with its own {@link PgnParser}. The queue between
+ * them is bounded, so memory stays the same however large the file is: the reader
+ * waits when the workers fall behind.
+ * <p>
+ * Games reach the consumer from the worker threads as they finish, not in file order,
+ * so the consumer has to be thread-safe. Games that aren't valid PGN or have an
+ * illegal move are skipped and counted. Run it directly to time an import, optionally
+ * building an opening book from the games' first moves:
+ * <pre>
+ * java pgn.PgnImporter games.pgn [threads] [book=opening.book]
+ * </pre>
+ */
+public final class PgnImporter {
+
+    // games per batch, enough that handing a batch over costs little next to parsing it
+    private static final int BATCH_SIZE = 64;
+    // plies of each game main adds to a book
+    private static final int BOOK_PLIES = 16;
+    // taken by a worker once the reader is done, and put back for the next worker
+    private static final List<String> END = List.of();
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    /**
+     * @param games       games read and passed to the consumer
+     * @param plies       moves in those games
+     * @param rejected    games skipped as invalid
+     * @param nanoseconds how long the import took
+     */
+    public record Stats(long games, long plies, long rejected, long nanoseconds) {
+        public long gamesPerSecond() {
+            return nanoseconds == 0 ? 0 : games * 1_000_000_000L / nanoseconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games (%d plies, %d rejected) in %.3f s (%d games/s)",
+                    games, plies, rejected, nanoseconds / 1e9, gamesPerSecond());
+        }
+    }
+
+    private final int threads;
+
+    /**
+     * @param threads how many threads parse games, besides the one reading the file
+     */
+    public PgnImporter(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("An import needs at least one thread: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    public Stats importFile(Path file, Consumer<PgnGame> consumer) throws IOException {
+        try (PgnReader reader = PgnReader.open(file)) {
+            return importGames(reader, consumer);
+        }
+    }
+
+    /**
+     * Reads every game left in the reader and passes each valid one to the consumer
+     *
+     * @throws IllegalStateException if the consumer throws, after the other games are read
+     */
+    public Stats importGames(PgnReader reader, Consumer<PgnGame> consumer) throws IOException {
+        long start = System.nanoTime();
+        BlockingQueue<List<String>> batches = new ArrayBlockingQueue<>(threads * 2);
+        LongAdder games = new LongAdder();
+        LongAdder plies = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        int pool = POOL_COUNT.incrementAndGet();
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pgn-import-" + pool + "-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                running.add(workers.submit(() -> {
+                    work(batches, consumer, games, plies, rejected);
+                    return null;
+                }));
+            }
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            for (String text = reader.nextGameText(); text != null; text = reader.nextGameText()) {
+                batch.add(text);
+                if (batch.size() == BATCH_SIZE) {
+                    batches.put(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.put(batch);
+            }
+            batches.put(END);
+            for (Future<?> worker : running) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The import was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The import failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        return new Stats(games.sum(), plies.sum(), rejected.sum(), System.nanoTime() - start);
+    }
+
+    // parses batches until the end marker, and keeps taking them after a failure so the
+    // reader is never left waiting on a full queue
+    private static void work(BlockingQueue<List<String>> batches, Consumer<PgnGame> consumer,
+                             LongAdder games, LongAdder plies, LongAdder rejected) throws InterruptedException {
+        PgnParser parser = new PgnParser();
+        RuntimeException failure = null;
+        for (List<String> batch = batches.take(); batch != END; batch = batches.take()) {
+            for (String text : batch) {
+                PgnGame game;
+                try {
+                    game = parser.parse(text);
+                } catch (IllegalArgumentException e) {
+                    rejected.increment();
+                    continue;
+                } catch (RuntimeException e) {
+                    failure = failure == null ? e : failure;
+                    continue;
+                }
+                if (failure != null) {
+                    continue;
+                }
+                try {
+                    consumer.accept(game);
+                } catch (RuntimeException e) {
+                    failure = e;
+                    continue;
+                }
+                games.increment();
+                plies.add(game.moveCount());
+            }
+        }
+        batches.put(END);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.out.println("Usage: PgnImporter <pgn file> [threads] [book=<book file>]");
+            return;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path book = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("book=")) {
+                book = Path.of(args[i].substring("book=".length()));
+            } else {
+                threads = Integer.parseInt(args[i]);
+            }
+        }
+
+        OpeningBookWriter writer = new OpeningBookWriter();
+        Consumer<PgnGame> consumer = book == null ? game -> { } : game -> addToBook(game, writer);
+        Stats stats = new PgnImporter(threads).importFile(Path.of(args[0]), consumer);
+        System.out.println("Imported " + stats + " with " + threads + " threads");
+        if (book != null) {
+            writer.write(book);
+            System.out.println("Wrote " + writer.size() + " book moves to " + book);
+        }
+    }
+
+    // replays the opening on the worker's thread, only adding to the shared writer is locked
+    private static void addToBook(PgnGame game, OpeningBookWriter writer) {
+        if (game.tag("FEN") != null) {
+            return;
+        }
+        int plies = Math.min(BOOK_PLIES, game.moveCount());
+        long[] keys = new long[plies];
+        ChessGame replay = new ChessGame();
+        try {
+            for (int ply = 0; ply < plies; ply++) {
+                keys[ply] = replay.getPositionKey();
+                replay.makeMove(PackedMove.toChessMove(game.move(ply)));
+            }
+        } catch (InvalidMoveException e) {
+            throw new IllegalStateException("A parsed move didn't replay: " + game, e);
+        }
+        synchronized (writer) {
+            for (int ply = 0; ply < plies; ply++) {
+                writer.add(keys[ply], game.move(ply), 1);
+            }
+        }
+    }
+}
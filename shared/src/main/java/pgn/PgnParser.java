@@ -0,0 +1,225 @@
+package pgn;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.LegalMoveGenerator;
+import chess.San;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the text of one PGN game: tag pairs, then movetext of SAN moves, with move
+ * numbers, comments in braces or after a semicolon, variations in parentheses and
+ * numeric annotations skipped. Every move is checked to be legal on the board it is
+ * played on.
+ * <p>
+ * A parser keeps its generator and move buffer between games, so each thread reading
+ * games should have its own.
+ */
+public final class PgnParser {
+
+    private static final String[] RESULTS = {PgnGame.WHITE_WINS, PgnGame.BLACK_WINS, PgnGame.DRAW, PgnGame.UNFINISHED};
+
+    private final LegalMoveGenerator generator = new LegalMoveGenerator();
+    private int[] moves = new int[256];
+
+    /**
+     * @throws IllegalArgumentException if the text isn't a game or a move is illegal
+     */
+    public PgnGame parse(CharSequence text) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        int length = text.length();
+        int i = 0;
+        ChessBoard board = null;
+        ChessGame.TeamColor toMove = null;
+        int count = 0;
+        String result = null;
+        while (i < length && result == null) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (c == '[' && board == null) {
+                i = tag(text, i, tags);
+                continue;
+            }
+            if (board == null) {
+                ChessGame game = start(tags);
+                board = game.getBoard();
+                toMove = game.getTeamTurn();
+            }
+            switch (c) {
+                case '{' -> i = skipPast(text, i, '}');
+                case ';', '%' -> i = skipPast(text, i, '\n');
+                case '(' -> i = skipVariation(text, i);
+                // dots left over from a move number written apart from it, as in 12. ... Nf6
+                case '.' -> i++;
+                case '$' -> {
+                    i++;
+                    while (i < length && Character.isDigit(text.charAt(i))) {
+                        i++;
+                    }
+                }
+                default -> {
+                    int end = tokenEnd(text, i);
+                    result = result(text, i, end);
+                    if (result == null && !isMoveNumber(text, i, end)) {
+                        int move;
+                        try {
+                            move = San.parse(text, i, end, board, toMove, generator);
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalArgumentException("Move " + (count / 2 + 1) + " of " + describe(tags)
+                                    + ": " + e.getMessage(), e);
+                        }
+                        board.makeMove(move);
+                        toMove = toMove.opponent();
+                        if (count == moves.length) {
+                            moves = Arrays.copyOf(moves, count * 2);
+                        }
+                        moves[count++] = move;
+                    }
+                    // move numbers run straight into the move after them, as in 1.e4
+                    i = isMoveNumber(text, i, end) ? numberEnd(text, i) : end;
+                }
+            }
+        }
+        if (board == null) {
+            if (tags.isEmpty()) {
+                throw new IllegalArgumentException("No game in the text");
+            }
+            start(tags);
+        }
+        if (result == null) {
+            result = tags.getOrDefault("Result", PgnGame.UNFINISHED);
+        }
+        return new PgnGame(tags, Arrays.copyOf(moves, count), result);
+    }
+
+    private static ChessGame start(Map<String, String> tags) {
+        try {
+            return PgnGame.startPosition(tags);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Bad FEN tag in " + describe(tags) + ": " + e.getMessage(), e);
+        }
+    }
+
+    // [Name "value"], with \" and \\ escaped in the value
+    private static int tag(CharSequence text, int i, Map<String, String> tags) {
+        int length = text.length();
+        int nameStart = ++i;
+        while (i < length && !Character.isWhitespace(text.charAt(i)) && text.charAt(i) != '"' && text.charAt(i) != ']') {
+            i++;
+        }
+        String name = text.subSequence(nameStart, i).toString();
+        i = skipWhitespace(text, i);
+        if (name.isEmpty() || i >= length || text.charAt(i) != '"') {
+            throw new IllegalArgumentException("Bad tag at character " + nameStart + ": expected [Name \"value\"]");
+        }
+        StringBuilder value = new StringBuilder();
+        for (i++; i < length && text.charAt(i) != '"'; i++) {
+            if (text.charAt(i) == '\\' && i + 1 < length) {
+                i++;
+            }
+            value.append(text.charAt(i));
+        }
+        i = skipWhitespace(text, i + 1);
+        if (i >= length || text.charAt(i) != ']') {
+            throw new IllegalArgumentException("Tag " + name + " isn't closed");
+        }
+        tags.put(name, value.toString());
+        return i + 1;
+    }
+
+    private static int skipWhitespace(CharSequence text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipPast(CharSequence text, int i, char end) {
+        while (i < text.length() && text.charAt(i) != end) {
+            i++;
+        }
+        return i + 1;
+    }
+
+    // variations nest, and a comment inside one may hold parentheses of its own
+    private static int skipVariation(CharSequence text, int i) {
+        int depth = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                i = skipPast(text, i, '}');
+                continue;
+            }
+            if (c == ';') {
+                i = skipPast(text, i, '\n');
+                continue;
+            }
+            i++;
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static int tokenEnd(CharSequence text, int i) {
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || "{}();$[]".indexOf(c) >= 0) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    // digits then dots, 12. or 12...
+    private static boolean isMoveNumber(CharSequence text, int start, int end) {
+        int digitsEnd = start;
+        while (digitsEnd < end && Character.isDigit(text.charAt(digitsEnd))) {
+            digitsEnd++;
+        }
+        return digitsEnd > start && (digitsEnd == end || text.charAt(digitsEnd) == '.');
+    }
+
+    private static int numberEnd(CharSequence text, int i) {
+        while (i < text.length() && (Character.isDigit(text.charAt(i)) || text.charAt(i) == '.')) {
+            i++;
+        }
+        return i;
+    }
+
+    // the result marker the token is, or null
+    private static String result(CharSequence text, int start, int end) {
+        for (String result : RESULTS) {
+            if (matches(text, start, end, result)) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(CharSequence text, int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String describe(Map<String, String> tags) {
+        return tags.getOrDefault("White", "?") + " - " + tags.getOrDefault("Black", "?");
+    }
+}
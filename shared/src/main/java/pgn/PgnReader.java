@@ -0,0 +1,94 @@
+package pgn;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+
+/**
+ * Reads the games of a PGN file one at a time, holding only the game being read in
+ * memory however large the file is.
+ * <p>
+ * A game ends where the next one's tags start: a line beginning with [ once moves have
+ * been read, outside any comment. {@link #nextGameText()} only finds where games start
+ * and end, which is quick, so the slower work of {@link PgnParser parsing} the moves
+ * can be spread over threads, see {@link PgnImporter}.
+ */
+public final class PgnReader implements Closeable {
+
+    private final BufferedReader reader;
+    private final PgnParser parser = new PgnParser();
+    private final StringBuilder game = new StringBuilder();
+    // the tag line that ended the last game and starts the next
+    private String pendingLine;
+
+    public PgnReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 1 << 16);
+    }
+
+    /**
+     * Reads a file through memory mappings rather than a stream
+     */
+    public static PgnReader open(Path file) throws IOException {
+        return new PgnReader(new MappedFileReader(file));
+    }
+
+    /**
+     * @return the text of the next game, or null when there are no more
+     */
+    public String nextGameText() throws IOException {
+        game.setLength(0);
+        boolean moves = false;
+        boolean inComment = false;
+        boolean empty = true;
+        String line = pendingLine != null ? pendingLine : reader.readLine();
+        pendingLine = null;
+        for (; line != null; line = reader.readLine()) {
+            boolean tagLine = line.startsWith("[");
+            if (tagLine && moves && !inComment) {
+                pendingLine = line;
+                break;
+            }
+            boolean blank = line.isBlank();
+            if (!blank && !tagLine && !inComment && !line.startsWith("%")) {
+                moves = true;
+            }
+            empty &= blank;
+            inComment = endsInComment(line, inComment);
+            game.append(line).append('\n');
+        }
+        return empty ? null : game.toString();
+    }
+
+    /**
+     * @return the next game, or null when there are no more
+     * @throws IllegalArgumentException if the game isn't valid PGN or has an illegal
+     *                                  move. The reader can go on to the games after it
+     */
+    public PgnGame next() throws IOException {
+        String text = nextGameText();
+        return text == null ? null : parser.parse(text);
+    }
+
+    // whether a brace comment is still open at the end of the line
+    private static boolean endsInComment(String line, boolean inComment) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inComment) {
+                inComment = c != '}';
+            } else if (c == '{') {
+                inComment = true;
+            } else if (c == ';') {
+                // the rest of the line is a comment that ends with it
+                break;
+            }
+        }
+        return inComment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,159 @@
+package pgn;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.Fen;
+import chess.GameStatus;
+import chess.LegalMoveGenerator;
+import chess.San;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes a game's moves as PGN, in SAN, from the moves the {@link ChessGame} recorded.
+ * The moves are replayed from {@link ChessGame#getStartFen() the game's start} on a board
+ * of the writer's own, with one {@link LegalMoveGenerator} kept for every move, so the
+ * game itself isn't touched and a writer can be reused for any number of games.
+ * <p>
+ * A game saved before games recorded their moves has an empty record that doesn't lead
+ * to its position. Such a game is written from its current position, with a FEN tag and
+ * no moves, rather than with moves that are wrong.
+ */
+public final class PgnWriter {
+
+    // the tags every PGN game has, in the order it lists them
+    private static final String[] SEVEN_TAG_ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+    // PGN lines are kept to 80 characters
+    private static final int LINE_LENGTH = 80;
+
+    private final LegalMoveGenerator generator = new LegalMoveGenerator();
+    private final StringBuilder movetext = new StringBuilder(1024);
+    private final StringBuilder token = new StringBuilder(16);
+    // characters on the last line of movetext
+    private int lineLength;
+
+    /**
+     * Writes the game with its tags. Seven tag roster tags it isn't given are written as
+     * ?, the Result tag always comes from the game, and the SetUp and FEN tags are added
+     * when the game doesn't start from the usual position
+     *
+     * @param tags tags to write, e.g. Event, White and Black
+     * @throws IOException if writing to out fails
+     */
+    public void write(Map<String, String> tags, ChessGame game, Appendable out) throws IOException {
+        String result = result(game);
+        String startFen = appendMoves(game);
+        for (String name : SEVEN_TAG_ROSTER) {
+            String value = name.equals("Result") ? result : tags.get(name);
+            appendTag(out, name, value != null ? value : "?");
+        }
+        if (!startFen.equals(Fen.START)) {
+            appendTag(out, "SetUp", "1");
+            appendTag(out, "FEN", startFen);
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!isWrittenTag(tag.getKey())) {
+                appendTag(out, tag.getKey(), tag.getValue());
+            }
+        }
+        out.append('\n');
+        appendToken(result);
+        out.append(movetext).append("\n\n");
+    }
+
+    /**
+     * @return the PGN result marker for where the game stands: a win for the other
+     * team after a checkmate or resignation, a draw for any other finished game, and *
+     * while it is still being played
+     */
+    public static String result(ChessGame game) {
+        ChessGame.TeamColor resigned = game.getResigned();
+        if (resigned != null) {
+            return resigned == ChessGame.TeamColor.WHITE ? PgnGame.BLACK_WINS : PgnGame.WHITE_WINS;
+        }
+        GameStatus status = game.getStatus();
+        if (status == GameStatus.CHECKMATE) {
+            return game.getTeamTurn() == ChessGame.TeamColor.WHITE ? PgnGame.BLACK_WINS : PgnGame.WHITE_WINS;
+        }
+        // the server also ends games it knows are drawn before the rules do
+        return status.isGameOver() || game.gameOver ? PgnGame.DRAW : PgnGame.UNFINISHED;
+    }
+
+    /**
+     * Replays the game's moves into movetext
+     *
+     * @return the FEN the moves start from
+     */
+    private String appendMoves(ChessGame game) {
+        movetext.setLength(0);
+        lineLength = 0;
+        String startFen = game.getStartFen();
+        ChessGame replay = Fen.parse(startFen);
+        ChessBoard board = replay.getBoard();
+        ChessGame.TeamColor turn = replay.getTeamTurn();
+        int moveNumber = replay.getFullmoveNumber();
+        int[] moves = game.getMoves();
+        try {
+            for (int i = 0; i < moves.length; i++) {
+                token.setLength(0);
+                if (turn == ChessGame.TeamColor.WHITE) {
+                    token.append(moveNumber).append(". ");
+                } else if (i == 0) {
+                    token.append(moveNumber).append("... ");
+                }
+                San.appendTo(token, moves[i], board, turn, generator);
+                appendToken(token);
+                board.makeMove(moves[i]);
+                if (turn == ChessGame.TeamColor.BLACK) {
+                    moveNumber++;
+                }
+                turn = turn.opponent();
+            }
+        } catch (IllegalArgumentException e) {
+            // a move that doesn't replay means the record is wrong, handled just below
+            turn = null;
+        }
+        if (turn != game.getTeamTurn() || board.getZobristKey(turn) != game.getPositionKey()) {
+            movetext.setLength(0);
+            lineLength = 0;
+            return Fen.format(game);
+        }
+        return startFen;
+    }
+
+    // adds a token to the movetext, on a new line if it doesn't fit on this one
+    private void appendToken(CharSequence text) {
+        if (lineLength > 0 && lineLength + 1 + text.length() > LINE_LENGTH) {
+            movetext.append('\n');
+            lineLength = 0;
+        } else if (lineLength > 0) {
+            movetext.append(' ');
+            lineLength++;
+        }
+        movetext.append(text);
+        lineLength += text.length();
+    }
+
+    private static boolean isWrittenTag(String name) {
+        for (String rosterTag : SEVEN_TAG_ROSTER) {
+            if (rosterTag.equals(name)) {
+                return true;
+            }
+        }
+        return name.equals("SetUp") || name.equals("FEN");
+    }
+
+    private static void appendTag(Appendable out, String name, String value) throws IOException {
+        out.append('[').append(name).append(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            // a tag has to stay on one line
+            out.append(c == '\n' || c == '\r' ? ' ' : c);
+        }
+        out.append("\"]\n");
+    }
+}
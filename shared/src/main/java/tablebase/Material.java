@@ -0,0 +1,221 @@
+package tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The pieces on the board besides the kings, e.g. KQvKR. Each ending has one table,
+ * kept with the stronger side as white, so a position where black is the stronger side
+ * is looked up with the colors swapped (see {@link #flipped()}).
+ *
+ * @param white   white's pieces besides its king, strongest first
+ * @param black   black's pieces besides its king, strongest first
+ * @param flipped True if the board this was read from has the colors the other way
+ *                around, so black on the board is white here
+ */
+public record Material(List<ChessPiece.PieceType> white, List<ChessPiece.PieceType> black, boolean flipped) {
+
+    // strongest first, the order pieces are listed and indexed in
+    private static final ChessPiece.PieceType[] ORDER = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.PAWN};
+    private static final int[] VALUES = {9, 5, 3, 3, 1};
+
+    public Material {
+        white = List.copyOf(white);
+        black = List.copyOf(black);
+    }
+
+    /**
+     * @return the ending a board is in, with the stronger side as white
+     */
+    public static Material of(ChessBoard board) {
+        return of(pieces(board, ChessGame.TeamColor.WHITE), pieces(board, ChessGame.TeamColor.BLACK));
+    }
+
+    /**
+     * @return the ending with these pieces, with the stronger side as white
+     */
+    public static Material of(List<ChessPiece.PieceType> white, List<ChessPiece.PieceType> black) {
+        List<ChessPiece.PieceType> sortedWhite = sorted(white);
+        List<ChessPiece.PieceType> sortedBlack = sorted(black);
+        if (compare(sortedWhite, sortedBlack) < 0) {
+            return new Material(sortedBlack, sortedWhite, true);
+        }
+        return new Material(sortedWhite, sortedBlack, false);
+    }
+
+    /**
+     * Reads a name like KQvKR or KPvK
+     *
+     * @throws IllegalArgumentException if the name isn't an ending
+     */
+    public static Material parse(String name) {
+        String[] sides = name.split("v");
+        if (sides.length != 2 || !sides[0].startsWith("K") || !sides[1].startsWith("K")) {
+            throw new IllegalArgumentException("Not an ending: " + name);
+        }
+        return of(parseSide(sides[0]), parseSide(sides[1]));
+    }
+
+    /**
+     * @return every ending with this many pieces on the board, kings included
+     */
+    public static List<Material> all(int pieces) {
+        List<Material> all = new ArrayList<>();
+        for (int whiteCount = pieces - 2; whiteCount >= 0; whiteCount--) {
+            for (List<ChessPiece.PieceType> white : combinations(whiteCount)) {
+                for (List<ChessPiece.PieceType> black : combinations(pieces - 2 - whiteCount)) {
+                    Material material = of(white, black);
+                    if (!material.flipped() && !all.contains(material)) {
+                        all.add(material);
+                    }
+                }
+            }
+        }
+        return all;
+    }
+
+    /**
+     * @return pieces on the board, kings included
+     */
+    public int pieceCount() {
+        return white.size() + black.size() + 2;
+    }
+
+    public boolean hasPawns() {
+        return white.contains(ChessPiece.PieceType.PAWN) || black.contains(ChessPiece.PieceType.PAWN);
+    }
+
+    /**
+     * @return the same ending without the note of which way round it was read
+     */
+    public Material canonical() {
+        return flipped ? new Material(white, black, false) : this;
+    }
+
+    /**
+     * @return the pieces in the order their squares are indexed: white king, white's
+     * pieces, black king, black's pieces
+     */
+    List<ChessPiece> indexOrder() {
+        List<ChessPiece> order = new ArrayList<>();
+        order.add(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        for (ChessPiece.PieceType type : white) {
+            order.add(ChessPiece.of(ChessGame.TeamColor.WHITE, type));
+        }
+        order.add(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        for (ChessPiece.PieceType type : black) {
+            order.add(ChessPiece.of(ChessGame.TeamColor.BLACK, type));
+        }
+        return order;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Material that && white.equals(that.white) && black.equals(that.black);
+    }
+
+    @Override
+    public int hashCode() {
+        return white.hashCode() * 31 + black.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "K" + letters(white) + "vK" + letters(black);
+    }
+
+    private static List<ChessPiece.PieceType> pieces(ChessBoard board, ChessGame.TeamColor color) {
+        List<ChessPiece.PieceType> pieces = new ArrayList<>();
+        for (ChessPiece.PieceType type : ORDER) {
+            for (int i = Long.bitCount(board.pieces(color, type)); i > 0; i--) {
+                pieces.add(type);
+            }
+        }
+        return pieces;
+    }
+
+    private static List<ChessPiece.PieceType> sorted(List<ChessPiece.PieceType> pieces) {
+        List<ChessPiece.PieceType> sorted = new ArrayList<>(pieces);
+        sorted.sort((a, b) -> Integer.compare(rank(a), rank(b)));
+        return sorted;
+    }
+
+    // more material wins, then the stronger pieces in order
+    private static int compare(List<ChessPiece.PieceType> a, List<ChessPiece.PieceType> b) {
+        int difference = Integer.compare(value(a), value(b));
+        if (difference != 0) {
+            return difference;
+        }
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            if (a.get(i) != b.get(i)) {
+                return Integer.compare(rank(b.get(i)), rank(a.get(i)));
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    private static int value(List<ChessPiece.PieceType> pieces) {
+        int value = 0;
+        for (ChessPiece.PieceType type : pieces) {
+            value += VALUES[rank(type)];
+        }
+        return value;
+    }
+
+    private static int rank(ChessPiece.PieceType type) {
+        int rank = Arrays.asList(ORDER).indexOf(type);
+        if (rank < 0) {
+            throw new IllegalArgumentException("Kings aren't counted in an ending's material");
+        }
+        return rank;
+    }
+
+    private static List<List<ChessPiece.PieceType>> combinations(int count) {
+        List<List<ChessPiece.PieceType>> combinations = new ArrayList<>();
+        addCombinations(new ArrayList<>(), 0, count, combinations);
+        return combinations;
+    }
+
+    private static void addCombinations(List<ChessPiece.PieceType> prefix, int from, int count,
+                                        List<List<ChessPiece.PieceType>> combinations) {
+        if (count == 0) {
+            combinations.add(List.copyOf(prefix));
+            return;
+        }
+        for (int i = from; i < ORDER.length; i++) {
+            prefix.add(ORDER[i]);
+            addCombinations(prefix, i, count - 1, combinations);
+            prefix.remove(prefix.size() - 1);
+        }
+    }
+
+    private static List<ChessPiece.PieceType> parseSide(String side) {
+        List<ChessPiece.PieceType> pieces = new ArrayList<>();
+        for (char c : side.substring(1).toCharArray()) {
+            pieces.add(switch (c) {
+                case 'Q' -> ChessPiece.PieceType.QUEEN;
+                case 'R' -> ChessPiece.PieceType.ROOK;
+                case 'B' -> ChessPiece.PieceType.BISHOP;
+                case 'N' -> ChessPiece.PieceType.KNIGHT;
+                case 'P' -> ChessPiece.PieceType.PAWN;
+                default -> throw new IllegalArgumentException("Not a piece: " + c);
+            });
+        }
+        return pieces;
+    }
+
+    private static String letters(List<ChessPiece.PieceType> pieces) {
+        StringBuilder sb = new StringBuilder();
+        for (ChessPiece.PieceType type : pieces) {
+            sb.append(type == ChessPiece.PieceType.KNIGHT ? 'N' : type.name().charAt(0));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package tablebase;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.util.List;
+
+/**
+ * Numbers the positions of one ending so each has a slot in its table.
+ * <p>
+ * Squares are listed in {@link Material#indexOrder()} order. Boards are mirrored left
+ * to right so the white king is always on files a-d, which halves the table (there is
+ * no castling in these endings, so the mirror image plays the same). Identical pieces
+ * are listed in ascending square order, so swapping them doesn't give a second slot.
+ * The index is then the side to move, the white king's square among its 32, and every
+ * other piece's square, each a digit of a mixed-radix number.
+ */
+final class TableIndex {
+
+    private final ChessPiece[] pieces;
+    // index of the first piece identical to each piece, itself if there is none before it
+    private final int[] groupStart;
+    private final long half;
+    private final long size;
+
+    TableIndex(Material material) {
+        List<ChessPiece> order = material.indexOrder();
+        pieces = order.toArray(new ChessPiece[0]);
+        groupStart = new int[pieces.length];
+        for (int i = 0; i < pieces.length; i++) {
+            groupStart[i] = i > 0 && pieces[i] == pieces[i - 1] ? groupStart[i - 1] : i;
+        }
+        long positions = 32;
+        for (int i = 1; i < pieces.length; i++) {
+            positions *= 64;
+        }
+        half = positions;
+        size = positions * 2;
+    }
+
+    /**
+     * @return slots in the table, for both sides to move
+     */
+    long size() {
+        return size;
+    }
+
+    int pieceCount() {
+        return pieces.length;
+    }
+
+    ChessPiece piece(int i) {
+        return pieces[i];
+    }
+
+    /**
+     * @param squares every piece's square in index order, left unchanged
+     */
+    long index(int[] squares, ChessGame.TeamColor toMove) {
+        int[] canonical = squares.clone();
+        if ((canonical[0] & 7) >= 4) {
+            for (int i = 0; i < canonical.length; i++) {
+                canonical[i] ^= 7;
+            }
+        }
+        // insertion sort within each group of identical pieces, the groups are tiny
+        for (int i = 1; i < canonical.length; i++) {
+            for (int j = i; j > groupStart[i] && canonical[j - 1] > canonical[j]; j--) {
+                int swap = canonical[j];
+                canonical[j] = canonical[j - 1];
+                canonical[j - 1] = swap;
+            }
+        }
+        long index = (canonical[0] >>> 3) * 4L + (canonical[0] & 7);
+        for (int i = 1; i < canonical.length; i++) {
+            index = index * 64 + canonical[i];
+        }
+        return toMove == ChessGame.TeamColor.WHITE ? index : index + half;
+    }
+
+    /**
+     * Fills in the squares of the position in a slot
+     *
+     * @return the side to move, or null if no board is stored in the slot because its
+     * identical pieces are out of order or share a square
+     */
+    ChessGame.TeamColor decode(long index, int[] squares) {
+        ChessGame.TeamColor toMove = index < half ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        long rest = index < half ? index : index - half;
+        for (int i = pieces.length - 1; i > 0; i--) {
+            squares[i] = (int) (rest & 63);
+            rest >>>= 6;
+        }
+        squares[0] = (int) ((rest >>> 2) * 8 + (rest & 3));
+        for (int i = 1; i < pieces.length; i++) {
+            if (groupStart[i] != i && squares[i - 1] >= squares[i]) {
+                return null;
+            }
+        }
+        return toMove;
+    }
+}
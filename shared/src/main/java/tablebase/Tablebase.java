@@ -0,0 +1,171 @@
+package tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Perfect play for endings with few pieces, looked up instead of searched.
+ * <p>
+ * Each ending has a table file named after it, e.g. KQvKR.tb, written by
+ * {@link TablebaseGenerator}: an 8 byte {@link #MAGIC} followed by one byte per
+ * {@link TableIndex slot} holding the result for the side to move and the distance
+ * to mate. Files are memory-mapped, so opening a directory of tables is quick and the
+ * tables stay out of the heap. Lookups don't move any buffer position, so one
+ * tablebase can be shared by every thread.
+ * <p>
+ * The tables assume neither side can castle or capture en passant, so boards where
+ * either is possible are never looked up.
+ */
+public final class Tablebase {
+
+    /**
+     * "CHESSTB1", the first bytes of every table file
+     */
+    public static final long MAGIC = 0x4348455353544231L;
+    static final int HEADER_BYTES = 8;
+    static final String EXTENSION = ".tb";
+
+    /**
+     * A tablebase without any tables, for when there are none on disk
+     */
+    public static final Tablebase EMPTY = new Tablebase(Map.of());
+
+    // the index is kept with its table so lookups don't rebuild it
+    private record Table(TableIndex index, ByteBuffer values) {
+    }
+
+    private final Map<Material, Table> tables;
+    private final int maxPieces;
+
+    private Tablebase(Map<Material, Table> tables) {
+        this.tables = tables;
+        int max = 0;
+        for (Material material : tables.keySet()) {
+            max = Math.max(max, material.pieceCount());
+        }
+        this.maxPieces = max;
+    }
+
+    /**
+     * Maps every table file in a directory
+     *
+     * @throws IOException if a table can't be read or doesn't fit its ending
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        Map<Material, Table> tables = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Material material = Material.parse(name.substring(0, name.length() - EXTENSION.length())).canonical();
+                TableIndex index = new TableIndex(material);
+                tables.put(material, new Table(index, map(file, material, index)));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Not a tablebase file: " + e.getMessage(), e);
+        }
+        return new Tablebase(tables);
+    }
+
+    /**
+     * @return a tablebase with every table of this one plus another
+     */
+    public Tablebase with(Material material, ByteBuffer table) {
+        Map<Material, Table> more = new HashMap<>(tables);
+        more.put(material.canonical(), new Table(new TableIndex(material.canonical()), table));
+        return new Tablebase(more);
+    }
+
+    public boolean contains(Material material) {
+        return tables.containsKey(material.canonical());
+    }
+
+    /**
+     * @return the most pieces, kings included, any table covers. Boards with more are
+     * never found
+     */
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Looks up a position. Two bare kings are always a draw, even without any tables
+     *
+     * @return the result for the side to move, or null if there is no table for the
+     * board's ending or the board has castling rights or an en passant square
+     */
+    public TablebaseResult probe(ChessBoard board, ChessGame.TeamColor toMove) {
+        int pieceCount = Long.bitCount(board.occupancy());
+        if (pieceCount > Math.max(2, maxPieces)
+                || board.getCastlingRights() != 0 || board.getEnPassantSquare() != ChessBoard.NO_SQUARE
+                || Long.bitCount(board.pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING)) != 1
+                || Long.bitCount(board.pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING)) != 1) {
+            return null;
+        }
+        if (pieceCount == 2) {
+            return TablebaseResult.DRAW;
+        }
+        Material material = Material.of(board);
+        Table table = tables.get(material.canonical());
+        if (table == null) {
+            return null;
+        }
+        TableIndex index = table.index();
+        int[] squares = new int[index.pieceCount()];
+        // the table's white is whichever side is stronger on the board
+        boolean flipped = material.flipped();
+        for (int i = 0; i < squares.length; i++) {
+            ChessPiece piece = index.piece(i);
+            ChessGame.TeamColor color = flipped ? piece.getTeamColor().opponent() : piece.getTeamColor();
+            // identical pieces take the squares in turn, the index puts them in order anyway
+            long bits = board.pieces(color, piece.getPieceType());
+            for (int j = i; j > 0 && index.piece(j - 1) == piece; j--) {
+                bits &= bits - 1;
+            }
+            int sq = Long.numberOfTrailingZeros(bits);
+            squares[i] = flipped ? sq ^ 56 : sq;
+        }
+        ChessGame.TeamColor tableToMove = flipped ? toMove.opponent() : toMove;
+        return TablebaseResult.decode(table.values().get(HEADER_BYTES + (int) index.index(squares, tableToMove)));
+    }
+
+    static void write(Path file, byte[] values) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(ByteBuffer.allocate(HEADER_BYTES).putLong(MAGIC).array());
+            out.write(values);
+        }
+    }
+
+    /**
+     * @return the table with its header, as mapped from a file
+     */
+    static ByteBuffer wrap(byte[] values) {
+        ByteBuffer table = ByteBuffer.allocate(HEADER_BYTES + values.length);
+        table.putLong(MAGIC).put(values);
+        return table.clear();
+    }
+
+    private static ByteBuffer map(Path file, Material material, TableIndex index) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_BYTES + index.size()) {
+                throw new IOException("Table is the wrong size for " + material + ": " + file);
+            }
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (table.getLong(0) != MAGIC) {
+                throw new IOException("Not a tablebase file: " + file);
+            }
+            return table;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.LegalMoveGenerator;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Works out the tables for a {@link Tablebase} by retrograde analysis.
+ * <p>
+ * Every position of an ending is first looked at once: mates are lost right away,
+ * stalemates drawn, and captures or promotions, which leave the ending, are looked up
+ * in the smaller tables already made. Results then spread backwards one ply at a
+ * time, nearest mates first. A position with a move to a lost position is won one ply
+ * later, and a position whose every move reaches a won position is lost one ply after
+ * the slowest of them. Whatever is left when nothing more spreads is a draw.
+ * <p>
+ * Tables are built in an order where every table a capture or promotion can reach is
+ * done first. Up to four pieces fit, a five piece table would need more slots than an
+ * array holds. Run it directly to write tables to a directory:
+ * <pre>
+ * java tablebase.TablebaseGenerator tablebases 4
+ * </pre>
+ */
+public final class TablebaseGenerator {
+
+    /**
+     * Most pieces, kings included, a table can be made for
+     */
+    public static final int MAX_PIECES = 4;
+
+    private static final byte PENDING = 0;
+    private static final byte DONE = 1;
+    // a slot without a board, or a board the side not to move is in check on
+    private static final byte INVALID = 2;
+
+    private final Tablebase subtables;
+    private final ChessBoard board = new ChessBoard();
+    private final LegalMoveGenerator generator = new LegalMoveGenerator();
+    private final MoveList moves = new MoveList();
+
+    // per slot, sized for the table being made
+    private byte[] values;
+    private byte[] state;
+    // moves not yet known to lose, plus moves that leave the ending for a draw
+    private byte[] remaining;
+    // slowest mate among the captures and promotions that lose
+    private byte[] lossDistance;
+    // result waiting in a bucket, the quickest win found so far
+    private byte[] scheduled;
+    private int[][] buckets;
+    private int[] bucketSizes;
+
+    /**
+     * @param subtables tables for every ending a capture or promotion can lead to
+     */
+    public TablebaseGenerator(Tablebase subtables) {
+        this.subtables = subtables;
+    }
+
+    /**
+     * Makes the table for an ending
+     *
+     * @return one result per slot, encoded as in {@link TablebaseResult#decode}
+     * @throws IllegalStateException if a table it depends on is missing
+     */
+    public byte[] generate(Material material) {
+        Material ending = material.canonical();
+        if (ending.pieceCount() > MAX_PIECES) {
+            throw new IllegalArgumentException("Tables go up to " + MAX_PIECES + " pieces: " + ending);
+        }
+        TableIndex index = new TableIndex(ending);
+        int size = (int) index.size();
+        values = new byte[size];
+        state = new byte[size];
+        remaining = new byte[size];
+        lossDistance = new byte[size];
+        scheduled = new byte[size];
+        buckets = new int[TablebaseResult.MAX_DISTANCE + 1][];
+        bucketSizes = new int[TablebaseResult.MAX_DISTANCE + 1];
+
+        int[] squares = new int[index.pieceCount()];
+        for (int slot = 0; slot < size; slot++) {
+            ChessGame.TeamColor toMove = index.decode(slot, squares);
+            if (toMove == null || !place(index, squares) || board.isInCheck(toMove.opponent())) {
+                state[slot] = INVALID;
+            } else {
+                initialize(slot, toMove);
+            }
+            clear(squares);
+        }
+
+        int[] childSquares = new int[index.pieceCount()];
+        for (int distance = 0; distance <= TablebaseResult.MAX_DISTANCE; distance++) {
+            // the bucket can grow while it is worked through, wins land in the next one
+            for (int i = 0; i < bucketSizes[distance]; i++) {
+                int slot = buckets[distance][i];
+                if (state[slot] == DONE) {
+                    continue;
+                }
+                state[slot] = DONE;
+                values[slot] = scheduled[slot];
+                retract(index, slot, distance, childSquares);
+            }
+            buckets[distance] = null;
+        }
+
+        byte[] table = values;
+        values = state = remaining = lossDistance = scheduled = null;
+        buckets = null;
+        return table;
+    }
+
+    /**
+     * Makes every table with up to maxPieces pieces, writing each to the directory and
+     * mapping it back in before the tables that depend on it are made
+     *
+     * @return the tablebase of everything written
+     */
+    public static Tablebase generateAll(int maxPieces, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Tablebase tablebase = Tablebase.EMPTY;
+        for (Material material : endings(maxPieces)) {
+            byte[] table = new TablebaseGenerator(tablebase).generate(material);
+            Path file = directory.resolve(material + Tablebase.EXTENSION);
+            Tablebase.write(file, table);
+            tablebase = tablebase.with(material, Tablebase.wrap(table));
+        }
+        return Tablebase.open(directory);
+    }
+
+    /**
+     * @return every ending from three pieces up, in an order that makes each table after
+     * the ones it depends on: fewer pieces first, then fewer pawns, since a pawn can only
+     * promote to something stronger
+     */
+    static List<Material> endings(int maxPieces) {
+        List<Material> endings = new ArrayList<>();
+        for (int pieces = 3; pieces <= maxPieces; pieces++) {
+            List<Material> sameCount = Material.all(pieces);
+            sameCount.sort(Comparator.comparingInt(TablebaseGenerator::pawns));
+            endings.addAll(sameCount);
+        }
+        return endings;
+    }
+
+    private static int pawns(Material material) {
+        int pawns = 0;
+        for (List<ChessPiece.PieceType> side : List.of(material.white(), material.black())) {
+            for (ChessPiece.PieceType type : side) {
+                if (type == ChessPiece.PieceType.PAWN) {
+                    pawns++;
+                }
+            }
+        }
+        return pawns;
+    }
+
+    // scores a position's moves, leaving moves that stay in the ending to the later passes
+    private void initialize(int slot, ChessGame.TeamColor toMove) {
+        generator.reset(board, toMove);
+        moves.clear();
+        generator.generate(moves);
+        if (moves.isEmpty()) {
+            if (generator.inCheck()) {
+                schedule(slot, TablebaseResult.encodeLoss(0), 0);
+            } else {
+                // stalemate, a draw
+                state[slot] = DONE;
+            }
+            return;
+        }
+        int pieceCount = Long.bitCount(board.occupancy());
+        int bestWin = Integer.MAX_VALUE;
+        int slowestLoss = 0;
+        int open = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int undo = board.makeMove(move);
+            if (Long.bitCount(board.occupancy()) == pieceCount && !PackedMove.isPromotion(move)) {
+                open++;
+            } else {
+                TablebaseResult result = subtables.probe(board, toMove.opponent());
+                if (result == null) {
+                    board.unmakeMove(undo);
+                    throw new IllegalStateException("No table for " + Material.of(board) + " after a capture or promotion");
+                }
+                switch (result.outcome()) {
+                    case LOSS -> bestWin = Math.min(bestWin, result.distance() + 1);
+                    case WIN -> slowestLoss = Math.max(slowestLoss, result.distance() + 1);
+                    case DRAW -> open++;
+                }
+            }
+            board.unmakeMove(undo);
+        }
+        remaining[slot] = (byte) open;
+        lossDistance[slot] = (byte) slowestLoss;
+        if (bestWin != Integer.MAX_VALUE) {
+            schedule(slot, TablebaseResult.encodeWin(bestWin), bestWin);
+        } else if (open == 0) {
+            schedule(slot, TablebaseResult.encodeLoss(slowestLoss), slowestLoss);
+        }
+    }
+
+    // passes a finished result on to every position that could have moved into it
+    private void retract(TableIndex index, int slot, int distance, int[] squares) {
+        ChessGame.TeamColor toMove = index.decode(slot, squares);
+        place(index, squares);
+        boolean lost = values[slot] < 0;
+        ChessGame.TeamColor mover = toMove.opponent();
+        long empty = ~board.occupancy();
+        int[] parent = new int[squares.length];
+        for (int i = 0; i < squares.length; i++) {
+            ChessPiece piece = index.piece(i);
+            if (piece.getTeamColor() != mover) {
+                continue;
+            }
+            long origins = piece.getPieceType() == ChessPiece.PieceType.PAWN
+                    ? pawnOrigins(squares[i], mover, empty) : board.attacks(piece, squares[i]) & empty;
+            while (origins != 0) {
+                int from = Long.numberOfTrailingZeros(origins);
+                origins &= origins - 1;
+                System.arraycopy(squares, 0, parent, 0, squares.length);
+                parent[i] = from;
+                int parentSlot = (int) index.index(parent, mover);
+                if (state[parentSlot] != PENDING) {
+                    continue;
+                }
+                if (lost) {
+                    int win = distance + 1;
+                    if (scheduled[parentSlot] <= 0 || scheduled[parentSlot] > win) {
+                        schedule(parentSlot, TablebaseResult.encodeWin(win), win);
+                    }
+                } else if (--remaining[parentSlot] == 0 && scheduled[parentSlot] <= 0) {
+                    // wins are finished nearest first, so this move is the slowest in the ending
+                    int loss = Math.max(lossDistance[parentSlot], distance + 1);
+                    schedule(parentSlot, TablebaseResult.encodeLoss(loss), loss);
+                }
+            }
+        }
+        clear(squares);
+    }
+
+    // squares a pawn could have pushed from, captures and promotions leave the ending
+    private static long pawnOrigins(int sq, ChessGame.TeamColor color, long empty) {
+        int step = color == ChessGame.TeamColor.WHITE ? -8 : 8;
+        int from = sq + step;
+        int row = from >> 3;
+        if (row == 0 || row == 7 || (empty & (1L << from)) == 0) {
+            return 0L;
+        }
+        long origins = 1L << from;
+        int doubleRow = color == ChessGame.TeamColor.WHITE ? 3 : 4;
+        if (sq >> 3 == doubleRow && (empty & (1L << (from + step))) != 0) {
+            origins |= 1L << (from + step);
+        }
+        return origins;
+    }
+
+    private void schedule(int slot, byte value, int distance) {
+        scheduled[slot] = value;
+        if (buckets[distance] == null) {
+            buckets[distance] = new int[64];
+        } else if (bucketSizes[distance] == buckets[distance].length) {
+            buckets[distance] = Arrays.copyOf(buckets[distance], buckets[distance].length * 2);
+        }
+        buckets[distance][bucketSizes[distance]++] = slot;
+    }
+
+    /**
+     * Puts the pieces on the board
+     *
+     * @return False if the squares can't hold a position: two pieces share a square, a
+     * pawn is on its first or last rank, or the side not to move is in check
+     */
+    private boolean place(TableIndex index, int[] squares) {
+        long used = 0L;
+        for (int i = 0; i < squares.length; i++) {
+            long bit = 1L << squares[i];
+            int row = squares[i] >> 3;
+            if ((used & bit) != 0 || (index.piece(i).getPieceType() == ChessPiece.PieceType.PAWN && (row == 0 || row == 7))) {
+                return false;
+            }
+            used |= bit;
+        }
+        for (int i = 0; i < squares.length; i++) {
+            board.addPiece(position(squares[i]), index.piece(i));
+        }
+        return true;
+    }
+
+    private void clear(int[] squares) {
+        for (int sq : squares) {
+            board.addPiece(position(sq), null);
+        }
+    }
+
+    private static ChessPosition position(int sq) {
+        return ChessPosition.of((sq >> 3) + 1, (sq & 7) + 1);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: TablebaseGenerator <directory> [max pieces, default " + MAX_PIECES + "]");
+            return;
+        }
+        int maxPieces = args.length == 2 ? Integer.parseInt(args[1]) : MAX_PIECES;
+        long start = System.currentTimeMillis();
+        Tablebase tablebase = generateAll(maxPieces, Path.of(args[0]));
+        System.out.println("Wrote tables up to " + tablebase.maxPieces() + " pieces to " + args[0]
+                + " in " + (System.currentTimeMillis() - start) / 1000 + "s");
+    }
+}
@@ -0,0 +1,49 @@
+package tablebase;
+
+/**
+ * What a tablebase knows about a position with best play from both sides
+ *
+ * @param outcome  the result for the side to move
+ * @param distance plies until mate, 0 for a draw or when the side to move is already mated
+ */
+public record TablebaseResult(Outcome outcome, int distance) {
+
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * Longest distance a table can store, in plies
+     */
+    static final int MAX_DISTANCE = 127;
+
+    static final TablebaseResult DRAW = new TablebaseResult(Outcome.DRAW, 0);
+
+    /**
+     * Tables store one byte per position: 0 for a draw, the distance for a win and
+     * -(distance + 1) for a loss
+     */
+    static TablebaseResult decode(byte value) {
+        if (value == 0) {
+            return DRAW;
+        }
+        return value > 0 ? new TablebaseResult(Outcome.WIN, value) : new TablebaseResult(Outcome.LOSS, -value - 1);
+    }
+
+    static byte encodeWin(int distance) {
+        return (byte) checkDistance(distance);
+    }
+
+    static byte encodeLoss(int distance) {
+        return (byte) -(checkDistance(distance) + 1);
+    }
+
+    private static int checkDistance(int distance) {
+        if (distance > MAX_DISTANCE) {
+            throw new IllegalStateException("Mate is too far away to store: " + distance + " plies");
+        }
+        return distance;
+    }
+}
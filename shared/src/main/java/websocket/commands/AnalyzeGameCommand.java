@@ -0,0 +1,25 @@
+package websocket.commands;
+
+public class AnalyzeGameCommand extends UserGameCommand {
+
+    private final int depth;
+    private final int lines;
+
+    /**
+     * @param depth how many plies deep to search
+     * @param lines how many of the best moves to report
+     */
+    public AnalyzeGameCommand(String authToken, Integer gameID, int depth, int lines) {
+        super(CommandType.ANALYZE, authToken, gameID);
+        this.depth = depth;
+        this.lines = lines;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+}
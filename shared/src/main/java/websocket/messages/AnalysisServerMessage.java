@@ -0,0 +1,41 @@
+package websocket.messages;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import engine.AnalysisLine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AnalysisServerMessage extends ServerMessage {
+
+    /**
+     * One analyzed move and where it leads
+     *
+     * @param score  centipawns, positive when white is ahead
+     * @param mateIn moves until mate, positive when white mates, or null without a forced mate
+     * @param depth      how deep the line was searched
+     * @param moves      the line, starting with the move it analyzes
+     * @param bookWeight the move's weight in the opening book, or null if it was searched
+     */
+    public record Line(int score, Integer mateIn, int depth, List<ChessMove> moves, Integer bookWeight) {
+    }
+
+    public final int gameID;
+    public final List<Line> lines;
+
+    /**
+     * @param toMove the team the analysis was for, whose scores are turned to white's point of view
+     */
+    public AnalysisServerMessage(int gameID, ChessGame.TeamColor toMove, List<AnalysisLine> analysis) {
+        super(ServerMessageType.ANALYSIS);
+        this.gameID = gameID;
+        this.lines = new ArrayList<>();
+        int sign = toMove == ChessGame.TeamColor.WHITE ? 1 : -1;
+        for (AnalysisLine line : analysis) {
+            Integer mateIn = line.result().isMate() ? sign * line.result().mateIn() : null;
+            Integer bookWeight = line.isBook() ? line.bookWeight() : null;
+            lines.add(new Line(sign * line.score(), mateIn, line.depth(), line.principalVariation(), bookWeight));
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package websocket.messages;
 
 
+import chess.ChessGame;
+import engine.Evaluation;
 import model.GameData;
 
 public class LoadGameMessage extends ServerMessage {
 
     public final GameData game;
+    // static score of the position in centipawns, positive when white is ahead
+    public final int evaluation;
 
     public LoadGameMessage(GameData game) {
         super(ServerMessageType.LOAD_GAME);
         this.game = game;
+        this.evaluation = Evaluation.evaluate(game.game().getBoard(), ChessGame.TeamColor.WHITE);
     }
 }
@@ -0,0 +1,116 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FenTests {
+
+    @Test
+    @DisplayName("Starting Position")
+    public void startPosition() {
+        ChessGame game = Fen.parse(Fen.START);
+        Assertions.assertEquals(new ChessGame(), game);
+        Assertions.assertEquals(new ChessGame().getPositionKey(), game.getPositionKey());
+        Assertions.assertEquals(Fen.START, Fen.format(new ChessGame()));
+    }
+
+    @Test
+    @DisplayName("Reference Positions Read And Write Back The Same")
+    public void roundTrip() {
+        for (Perft.ReferencePosition position : Perft.ReferencePosition.values()) {
+            Assertions.assertEquals(position.fen(), Fen.format(position.newGame()), position.name());
+        }
+        ChessGame kiwipete = Perft.ReferencePosition.KIWIPETE.newGame();
+        Assertions.assertEquals(ChessBoard.ALL_CASTLING, kiwipete.getBoard().getCastlingRights());
+    }
+
+    @Test
+    @DisplayName("Moves Update Every Field")
+    public void followsMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4");
+        // no black pawn can take on e3, so the square is left out
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1", Fen.format(game));
+        play(game, "c7c5", "e4e5", "d7d5");
+        String fen = "rnbqkbnr/pp2pppp/8/2ppP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3";
+        Assertions.assertEquals(fen, Fen.format(game));
+        play(game, "g1f3", "b8c6", "f1e2", "g8f6", "e1g1");
+        Assertions.assertEquals("r1bqkb1r/pp2pppp/2n2n2/2ppP3/8/5N2/PPPPBPPP/RNBQ1RK1 b kq - 5 5", Fen.format(game));
+
+        ChessGame parsed = Fen.parse(fen);
+        Assertions.assertEquals(Bitboards.square(6, 4), parsed.getBoard().getEnPassantSquare());
+        Assertions.assertEquals(3, parsed.getFullmoveNumber());
+        play(parsed, "e5d6");
+        Assertions.assertNull(parsed.getBoard().getPiece(ChessPosition.of(5, 4)));
+    }
+
+    @Test
+    @DisplayName("Clocks Are Read And Kept Going")
+    public void clocks() throws InvalidMoveException {
+        ChessGame game = Fen.parse("8/6k1/6p1/3r4/R7/8/5PP1/6K1 w - - 37 60");
+        Assertions.assertEquals(37, game.getHalfmoveClock());
+        Assertions.assertEquals(60, game.getFullmoveNumber());
+        play(game, "a4a5", "d5d1");
+        Assertions.assertEquals(39, game.getHalfmoveClock());
+        Assertions.assertEquals(61, game.getFullmoveNumber());
+        Assertions.assertEquals("8/6k1/6p1/R7/8/8/5PP1/3r2K1 w - - 39 61", Fen.format(game));
+
+        // without the clocks, as in EPD
+        ChessGame noClocks = Fen.parse("8/6k1/6p1/3r4/R7/8/5PP1/6K1 b -  - ");
+        Assertions.assertEquals(0, noClocks.getHalfmoveClock());
+        Assertions.assertEquals(1, noClocks.getFullmoveNumber());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, noClocks.getTeamTurn());
+
+        // repetitions count from the FEN's position, however long the clock
+        ChessGame repeated = Fen.parse("8/6k1/6p1/3r4/R7/8/5PP1/6K1 w - - 90 60");
+        play(repeated, "a4a5", "d5d6", "a5a4", "d6d5");
+        Assertions.assertEquals(94, repeated.getHalfmoveClock());
+        Assertions.assertEquals(2, repeated.getRepetitionCount());
+        ChessGame longClock = Fen.parse("8/6k1/6p1/3r4/R7/8/5PP1/6K1 w - - 999999 60");
+        Assertions.assertEquals(999999, longClock.getHalfmoveClock());
+        Assertions.assertEquals(1, longClock.getRepetitionCount());
+        Assertions.assertEquals(GameStatus.FIFTY_MOVE_RULE, longClock.getStatus());
+    }
+
+    @Test
+    @DisplayName("Rights And Squares Nobody Can Use Are Dropped")
+    public void normalizes() {
+        // the h1 rook is gone and no white pawn stands beside e5
+        ChessGame game = Fen.parse("r3k2r/8/8/4p3/8/8/8/R3K3 w KQkq e6 0 1");
+        Assertions.assertEquals("r3k2r/8/8/4p3/8/8/8/R3K3 w Qkq - 0 1", Fen.format(game));
+    }
+
+    @Test
+    @DisplayName("Bad Text Is Rejected And Leaves The Game Alone")
+    public void rejectsBadText() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "e7e5");
+        String before = Fen.format(game);
+        String[] bad = {
+                "",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNRR w KQkq - 0 1",
+                "rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "Pnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KKq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e3 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 0",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 extra",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - x 1",
+        };
+        for (String fen : bad) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.parse(fen, game), fen);
+            Assertions.assertEquals(before, Fen.format(game), fen);
+        }
+    }
+
+    private static void play(ChessGame game, String... moves) throws InvalidMoveException {
+        for (String move : moves) {
+            game.makeMove(PackedMove.toChessMove(PackedMove.parse(move)));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class InterningTests {
+
+    @Test
+    @DisplayName("Factories Share Instances")
+    public void sharedInstances() {
+        Assertions.assertSame(ChessPosition.of(4, 5), ChessPosition.of(4, 5));
+        Assertions.assertEquals(new ChessPosition(4, 5), ChessPosition.of(4, 5));
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+
+        // positions off the board still work, they just aren't shared
+        ChessPosition offBoard = ChessPosition.of(0, 9);
+        Assertions.assertEquals(0, offBoard.getRow());
+        Assertions.assertEquals(9, offBoard.getColumn());
+    }
+
+    @Test
+    @DisplayName("Generated Moves Use Shared Positions")
+    public void generatedMoves() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        for (ChessMove move : board.getPiece(ChessPosition.of(1, 2)).pieceMoves(board, ChessPosition.of(1, 2))) {
+            ChessPosition end = move.getEndPosition();
+            Assertions.assertSame(ChessPosition.of(end.getRow(), end.getColumn()), end);
+        }
+    }
+
+    @Test
+    @DisplayName("Json Keeps Its Shape And Shares Instances")
+    public void serialization() {
+        Gson gson = new Gson();
+        Assertions.assertEquals("{\"row\":2,\"col\":7}", gson.toJson(ChessPosition.of(2, 7)));
+        Assertions.assertEquals("{\"pieceColor\":\"WHITE\",\"type\":\"QUEEN\"}",
+                gson.toJson(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN)));
+
+        ChessGame game = new ChessGame();
+        ChessGame copy = gson.fromJson(gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals(game.getBoard(), copy.getBoard());
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                copy.getBoard().getPiece(ChessPosition.of(1, 5)));
+
+        ChessMove move = new ChessMove(ChessPosition.of(7, 1), ChessPosition.of(8, 1), ChessPiece.PieceType.QUEEN);
+        ChessMove moveCopy = gson.fromJson(gson.toJson(move), ChessMove.class);
+        Assertions.assertEquals(move, moveCopy);
+        Assertions.assertSame(move.getEndPosition(), moveCopy.getEndPosition());
+    }
+}
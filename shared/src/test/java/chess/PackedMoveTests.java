@@ -0,0 +1,67 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class PackedMoveTests {
+
+    @Test
+    @DisplayName("Round Trips Through ChessMove")
+    public void roundTrip() {
+        ChessMove promotion = new ChessMove(ChessPosition.of(7, 2), ChessPosition.of(8, 1), ChessPiece.PieceType.KNIGHT);
+        int packed = PackedMove.of(promotion);
+        Assertions.assertEquals(promotion, PackedMove.toChessMove(packed));
+        Assertions.assertEquals("b7a8n", PackedMove.toString(packed));
+        Assertions.assertTrue(PackedMove.sameMove(packed, packed | PackedMove.CAPTURE));
+
+        ChessMove quiet = new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null);
+        Assertions.assertEquals(quiet, PackedMove.toChessMove(PackedMove.of(quiet)));
+        Assertions.assertNull(PackedMove.promotion(PackedMove.of(quiet)));
+
+        Assertions.assertEquals(packed, PackedMove.parse("b7a8n"));
+        Assertions.assertEquals(PackedMove.of(quiet), PackedMove.parse("g1f3"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PackedMove.parse("g1f9"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PackedMove.parse("b7a8k"));
+    }
+
+    @Test
+    @DisplayName("Flags Come From The Board")
+    public void flags() {
+        MoveList moves = new MoveList();
+        new LegalMoveGenerator(new ChessGame().getBoard(), ChessGame.TeamColor.WHITE).generate(moves);
+        Assertions.assertEquals(20, moves.size());
+        int doublePush = moves.find(PackedMove.of(Bitboards.square(2, 5), Bitboards.square(4, 5)));
+        Assertions.assertNotEquals(0, doublePush & PackedMove.DOUBLE_PUSH);
+        Assertions.assertFalse(PackedMove.isCapture(doublePush));
+    }
+
+    @Test
+    @DisplayName("Packed Make And Unmake Restore The Board")
+    public void makeUnmake() {
+        ChessBoard board = new ChessGame().getBoard();
+        ChessGame.TeamColor toMove = ChessGame.TeamColor.WHITE;
+        LegalMoveGenerator generator = new LegalMoveGenerator();
+        MoveList moves = new MoveList();
+        Random random = new Random(240);
+        for (int ply = 0; ply < 80; ply++) {
+            moves.clear();
+            generator.reset(board, toMove).generate(moves);
+            if (moves.isEmpty()) {
+                break;
+            }
+            // every move must come back out exactly, then play a random one to move on
+            ChessBoard before = board.clone();
+            for (int i = 0; i < moves.size(); i++) {
+                int undo = board.makeMove(moves.get(i));
+                board.unmakeMove(undo);
+                Assertions.assertEquals(before, board);
+                Assertions.assertEquals(before.getZobristKey(), board.getZobristKey());
+            }
+            board.makeMove(moves.get(random.nextInt(moves.size())));
+            toMove = toMove.opponent();
+        }
+    }
+}
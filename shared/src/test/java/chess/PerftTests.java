@@ -0,0 +1,66 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+public class PerftTests {
+
+    @Test
+    @DisplayName("Starting Position")
+    public void startPosition() {
+        assertNodeCounts(Perft.ReferencePosition.START, 4);
+    }
+
+    @Test
+    @DisplayName("Castling, En Passant And Pins")
+    public void kiwipete() {
+        assertNodeCounts(Perft.ReferencePosition.KIWIPETE, 3);
+    }
+
+    @Test
+    @DisplayName("Sparse Endgame")
+    public void endgame() {
+        // en passant captures first show up at depth 3, including one that uncovers a check
+        assertNodeCounts(Perft.ReferencePosition.ENDGAME, 5);
+    }
+
+    @Test
+    @DisplayName("Symmetric Middlegame")
+    public void middlegame() {
+        assertNodeCounts(Perft.ReferencePosition.MIDDLEGAME, 3);
+    }
+
+    @Test
+    @DisplayName("Promotions")
+    public void promotions() {
+        assertNodeCounts(Perft.ReferencePosition.PROMOTIONS, 4);
+    }
+
+    @Test
+    @DisplayName("Divide Adds Up")
+    public void divideMatchesTotal() {
+        ChessGame game = Perft.ReferencePosition.START.newGame();
+        Map<ChessMove, Long> divide = Perft.divide(game, 3);
+        Assertions.assertEquals(20, divide.size());
+        Assertions.assertEquals(8_902L, divide.values().stream().mapToLong(Long::longValue).sum());
+        Assertions.assertEquals(Perft.ReferencePosition.START.newGame(), game, "Perft changed the board");
+    }
+
+    @Test
+    @DisplayName("Parallel Matches Serial")
+    public void parallelMatchesSerial() {
+        ChessGame game = Perft.ReferencePosition.MIDDLEGAME.newGame();
+        Assertions.assertEquals(Perft.perft(game, 3), Perft.perftParallel(game, 3, 4));
+    }
+
+    private static void assertNodeCounts(Perft.ReferencePosition position, int maxDepth) {
+        ChessGame game = position.newGame();
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            Assertions.assertEquals(position.expectedNodes(depth), Perft.perft(game, depth),
+                    "Wrong node count for " + position + " at depth " + depth);
+        }
+    }
+}
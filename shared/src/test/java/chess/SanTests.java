@@ -0,0 +1,124 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class SanTests {
+
+    @Test
+    @DisplayName("Pawn And Piece Moves")
+    public void simpleMoves() {
+        ChessGame game = new ChessGame();
+        int push = parse(game, "e4");
+        Assertions.assertEquals("e2e4", PackedMove.toString(push));
+        Assertions.assertTrue((push & PackedMove.DOUBLE_PUSH) != 0);
+        Assertions.assertEquals("g1f3", PackedMove.toString(parse(game, "Nf3+!?")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> parse(game, "Ke2"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> parse(game, "e5"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> parse(game, "Zf3"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> parse(game, "N"));
+    }
+
+    @Test
+    @DisplayName("Captures Take A Pawn's File")
+    public void pawnCaptures() {
+        ChessGame game = Fen.parse("4k3/8/8/8/4n3/3P1P2/8/4K3 w - - 0 1");
+        Assertions.assertEquals("d3e4", PackedMove.toString(parse(game, "dxe4")));
+        Assertions.assertEquals("f3e4", PackedMove.toString(parse(game, "fxe4")));
+        Assertions.assertTrue(PackedMove.isCapture(parse(game, "fe4")));
+        // without a file it would be a push, and the knight blocks it
+        Assertions.assertThrows(IllegalArgumentException.class, () -> parse(game, "e4"));
+    }
+
+    @Test
+    @DisplayName("Files And Ranks Tell Pieces Apart")
+    public void disambiguation() {
+        ChessGame files = Fen.parse("4k3/8/8/8/8/8/4K3/R6R w - - 0 1");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> parse(files, "Rd1"));
+        Assertions.assertEquals("a1d1", PackedMove.toString(parse(files, "Rad1")));
+        Assertions.assertEquals("h1d1", PackedMove.toString(parse(files, "Rhd1")));
+
+        ChessGame ranks = Fen.parse("4k3/8/8/R7/8/8/4K3/R7 w - - 0 1");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> parse(ranks, "Ra3"));
+        Assertions.assertEquals("a1a3", PackedMove.toString(parse(ranks, "R1a3")));
+        Assertions.assertEquals("a5a3", PackedMove.toString(parse(ranks, "Ra5a3")));
+    }
+
+    @Test
+    @DisplayName("Promotions Name Their Piece")
+    public void promotions() {
+        ChessGame game = Fen.parse("3r4/4P1k1/8/8/8/8/8/4K3 w - - 0 1");
+        Assertions.assertEquals("e7e8q", PackedMove.toString(parse(game, "e8=Q")));
+        Assertions.assertEquals("e7e8n", PackedMove.toString(parse(game, "e8N+")));
+        Assertions.assertEquals("e7d8r", PackedMove.toString(parse(game, "exd8=R")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> parse(game, "e8"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> parse(game, "e8=K"));
+    }
+
+    @Test
+    @DisplayName("Castling And En Passant")
+    public void specialMoves() {
+        ChessGame kiwipete = Perft.ReferencePosition.KIWIPETE.newGame();
+        int kingside = parse(kiwipete, "O-O");
+        Assertions.assertEquals("e1g1", PackedMove.toString(kingside));
+        Assertions.assertTrue(PackedMove.isCastle(kingside));
+        Assertions.assertEquals("e1c1", PackedMove.toString(parse(kiwipete, "0-0-0")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> parse(kiwipete, "O-O-O-O"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> parse(new ChessGame(), "O-O"));
+
+        ChessGame enPassant = Fen.parse("rnbqkbnr/pp2pppp/8/2ppP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3");
+        int capture = parse(enPassant, "exd6");
+        Assertions.assertTrue(PackedMove.isEnPassant(capture));
+        Assertions.assertTrue(PackedMove.isCapture(capture));
+    }
+
+    private static int parse(ChessGame game, String san) {
+        return San.parse(san, game.getBoard(), game.getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("Moves Are Written With Just Enough To Tell Them Apart")
+    public void format() {
+        ChessGame files = Fen.parse("4k3/8/8/8/8/8/4K3/R6R w - - 0 1");
+        Assertions.assertEquals("Rad1", format(files, "a1d1"));
+        Assertions.assertEquals("Ra2", format(files, "a1a2"));
+        ChessGame ranks = Fen.parse("4k3/8/8/R7/8/8/4K3/R7 w - - 0 1");
+        Assertions.assertEquals("R1a3", format(ranks, "a1a3"));
+        ChessGame queens = Fen.parse("1k6/8/8/8/7Q/8/8/K3Q2Q w - - 0 1");
+        Assertions.assertEquals("Qh1e4", format(queens, "h1e4"));
+        Assertions.assertEquals("Q1h3", format(queens, "h1h3"));
+        Assertions.assertEquals("Qee4", format(queens, "e1e4"));
+
+        ChessGame pawns = Fen.parse("3r2k1/4P3/8/8/4n3/3P1P2/8/4K3 w - - 0 1");
+        Assertions.assertEquals("dxe4", format(pawns, "d3e4"));
+        Assertions.assertEquals("exd8=N", format(pawns, "e7d8n"));
+        Assertions.assertEquals("e8=Q+", format(pawns, "e7e8q"));
+        Assertions.assertEquals("Rd8#", format(Fen.parse("6k1/5ppp/8/8/8/8/8/3R2K1 w - - 0 1"), "d1d8"));
+        Assertions.assertEquals("O-O-O", format(Perft.ReferencePosition.KIWIPETE.newGame(), "e1c1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> format(new ChessGame(), "e2e5"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> format(new ChessGame(), "e7e5"));
+    }
+
+    @Test
+    @DisplayName("Every Legal Move Reads Back As Written")
+    public void roundTrip() {
+        for (Perft.ReferencePosition position : Perft.ReferencePosition.values()) {
+            ChessGame game = position.newGame();
+            ChessBoard board = game.getBoard();
+            MoveList moves = new MoveList();
+            new LegalMoveGenerator(board, game.getTeamTurn()).generate(moves);
+            long key = board.getZobristKey(game.getTeamTurn());
+            for (int i = 0; i < moves.size(); i++) {
+                String san = San.format(moves.get(i), board, game.getTeamTurn());
+                int parsed = parse(game, san);
+                Assertions.assertTrue(PackedMove.sameMove(moves.get(i), parsed), position + " " + san);
+            }
+            Assertions.assertEquals(key, board.getZobristKey(game.getTeamTurn()), "the board is left as it was");
+        }
+    }
+
+    private static String format(ChessGame game, String move) {
+        return San.format(PackedMove.parse(move), game.getBoard(), game.getTeamTurn());
+    }
+}
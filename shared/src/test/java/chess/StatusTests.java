@@ -0,0 +1,167 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class StatusTests {
+
+    @Test
+    @DisplayName("Status Follows The Moves")
+    public void followsMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(GameStatus.NORMAL, game.getStatus());
+        play(game, "f2f3", "e7e5", "g2g4");
+        Assertions.assertEquals(GameStatus.NORMAL, game.getStatus());
+        play(game, "d8h4");
+        Assertions.assertEquals(GameStatus.CHECKMATE, game.getStatus());
+        Assertions.assertTrue(game.getStatus().isGameOver());
+        Assertions.assertFalse(game.getStatus().isDraw());
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Changing The Board Refreshes The Status")
+    public void boardChanges() {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(GameStatus.NORMAL, game.getStatus());
+        game.setBoard(TestUtilities.loadBoard("""
+                |k| | | | | | | |
+                | | | | | | | | |
+                | |Q| | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | |K|
+                """));
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(GameStatus.STALEMATE, game.getStatus());
+        Assertions.assertTrue(game.isInStalemate(ChessGame.TeamColor.BLACK));
+
+        // pieces put straight on the board count too
+        game.getBoard().addPiece(ChessPosition.of(1, 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        game.getBoard().addPiece(ChessPosition.of(6, 2), null);
+        Assertions.assertEquals(GameStatus.CHECK, game.getStatus());
+    }
+
+    @Test
+    @DisplayName("Lone Minor Pieces Can't Mate")
+    public void insufficientMaterial() {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |N| | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """));
+        Assertions.assertEquals(GameStatus.INSUFFICIENT_MATERIAL, game.getStatus());
+        Assertions.assertTrue(game.getStatus().isDraw());
+
+        game.getBoard().addPiece(ChessPosition.of(2, 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        Assertions.assertEquals(GameStatus.NORMAL, game.getStatus());
+    }
+
+    @Test
+    @DisplayName("Status Is Left Out Of Json")
+    public void serialization() throws InvalidMoveException {
+        Gson gson = new Gson();
+        ChessGame game = new ChessGame();
+        play(game, "e2e4");
+        Assertions.assertEquals(GameStatus.NORMAL, game.getStatus());
+        String json = gson.toJson(game);
+        Assertions.assertFalse(json.contains("status"));
+        Assertions.assertEquals(GameStatus.NORMAL, gson.fromJson(json, ChessGame.class).getStatus());
+    }
+
+    @Test
+    @DisplayName("Threefold Repetition Is A Draw")
+    public void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(1, game.getRepetitionCount());
+        play(game, "g1f3", "g8f6", "f3g1", "f6g8");
+        Assertions.assertEquals(2, game.getRepetitionCount());
+        Assertions.assertEquals(4, game.getHalfmoveClock());
+        Assertions.assertEquals(GameStatus.NORMAL, game.getStatus());
+        play(game, "g1f3", "g8f6", "f3g1");
+        Assertions.assertEquals(GameStatus.NORMAL, game.getStatus());
+        play(game, "f6g8");
+        Assertions.assertEquals(3, game.getRepetitionCount());
+        Assertions.assertEquals(GameStatus.THREEFOLD_REPETITION, game.getStatus());
+        Assertions.assertTrue(game.getStatus().isDraw());
+
+        // the history is saved with the game
+        ChessGame loaded = new Gson().fromJson(new Gson().toJson(game), ChessGame.class);
+        Assertions.assertEquals(3, loaded.getRepetitionCount());
+        Assertions.assertEquals(GameStatus.THREEFOLD_REPETITION, loaded.getStatus());
+    }
+
+    @Test
+    @DisplayName("Fifty Moves Without A Capture Or Pawn Move Is A Draw")
+    public void fiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "e7e5");
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+        // knights and bishops wander without ever going back to a position
+        Set<Long> seen = new HashSet<>();
+        seen.add(game.getPositionKey());
+        while (game.getHalfmoveClock() < 99) {
+            game.makeMove(unseenQuietMove(game, seen));
+        }
+        Assertions.assertNotEquals(GameStatus.FIFTY_MOVE_RULE, game.getStatus());
+        game.makeMove(unseenQuietMove(game, seen));
+        Assertions.assertEquals(100, game.getHalfmoveClock());
+        Assertions.assertEquals(GameStatus.FIFTY_MOVE_RULE, game.getStatus());
+    }
+
+    @Test
+    @DisplayName("Pawn Moves Start The History Over")
+    public void irreversibleMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "g1f3", "g8f6", "f3g1", "f6g8");
+        Assertions.assertEquals(2, game.getRepetitionCount());
+        play(game, "e2e4");
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+        Assertions.assertEquals(1, game.getRepetitionCount());
+    }
+
+    // a move that isn't a capture or a pawn move and reaches a position not seen before
+    private static ChessMove unseenQuietMove(ChessGame game, Set<Long> seen) {
+        ChessBoard board = game.getBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(ChessPosition.of(row, col));
+                if (piece == null || piece.getTeamColor() != game.getTeamTurn()
+                        || piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+                    continue;
+                }
+                for (ChessMove move : game.validMoves(ChessPosition.of(row, col))) {
+                    if (board.getPiece(move.getEndPosition()) != null) {
+                        continue;
+                    }
+                    ChessBoard after = board.clone();
+                    after.movePiece(move);
+                    if (seen.add(after.getZobristKey(game.getTeamTurn().opponent()))) {
+                        return move;
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("No quiet move reaches a new position");
+    }
+
+    private static void play(ChessGame game, String... moves) throws InvalidMoveException {
+        for (String move : moves) {
+            game.makeMove(PackedMove.toChessMove(PackedMove.parse(move)));
+        }
+    }
+}
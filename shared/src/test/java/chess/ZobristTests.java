@@ -0,0 +1,83 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ZobristTests {
+
+    @Test
+    @DisplayName("Incremental Key Matches Fresh Board")
+    public void incrementalKeyMatchesRebuild() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Random random = new Random(240);
+        for (int ply = 0; ply < 60; ply++) {
+            List<ChessMove> moves = new ArrayList<>(new LegalMoveGenerator(game.getBoard(), game.getTeamTurn()).allMoves());
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+
+            // a board built piece by piece from scratch must land on the same key
+            ChessGame rebuilt = new ChessGame();
+            rebuilt.setBoard(game.getBoard());
+            rebuilt.setTeamTurn(game.getTeamTurn());
+            rebuilt.getBoard().setCastlingRights(game.getBoard().getCastlingRights());
+            rebuilt.getBoard().setEnPassantSquare(game.getBoard().getEnPassantSquare());
+            Assertions.assertEquals(rebuilt.getPositionKey(), game.getPositionKey());
+        }
+    }
+
+    @Test
+    @DisplayName("Key Covers Side To Move")
+    public void sideToMove() {
+        ChessGame game = new ChessGame();
+        long whiteToMove = game.getPositionKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertNotEquals(whiteToMove, game.getPositionKey());
+        Assertions.assertEquals(whiteToMove, game.getBoard().getZobristKey(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Key Covers Castling And En Passant")
+    public void castlingAndEnPassant() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessBoard board = game.getBoard();
+        long allRights = game.getPositionKey();
+        board.setCastlingRights(ChessBoard.ALL_CASTLING & ~ChessBoard.BLACK_QUEENSIDE);
+        Assertions.assertNotEquals(allRights, game.getPositionKey());
+        board.setCastlingRights(0);
+        // without rights or an en passant square only the pieces and turn count
+        Assertions.assertEquals(board.getZobristKey(), game.getPositionKey());
+        board.setCastlingRights(ChessBoard.ALL_CASTLING);
+
+        // a double push only sets the square when a pawn could take en passant
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        Assertions.assertEquals(ChessBoard.NO_SQUARE, board.getEnPassantSquare());
+        game.makeMove(new ChessMove(new ChessPosition(7, 1), new ChessPosition(6, 1), null));
+        game.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null));
+        Assertions.assertNotEquals(ChessBoard.NO_SQUARE, board.getEnPassantSquare());
+        long withEnPassant = game.getPositionKey();
+        board.setEnPassantSquare(ChessBoard.NO_SQUARE);
+        Assertions.assertNotEquals(withEnPassant, game.getPositionKey());
+    }
+
+    @Test
+    @DisplayName("Key Survives Serialization")
+    public void serializedKey() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        Gson gson = new Gson();
+        ChessGame copy = gson.fromJson(gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals(game.getPositionKey(), copy.getPositionKey());
+        Assertions.assertEquals(game.getBoard(), copy.getBoard());
+        Assertions.assertEquals(game.getBoard().hashCode(), copy.getBoard().hashCode());
+        Assertions.assertEquals(game.getBoard().getCastlingRights(), copy.getBoard().getCastlingRights());
+    }
+}
@@ -0,0 +1,66 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.LegalMoveGenerator;
+import chess.MoveList;
+import chess.Perft;
+import chess.PieceSquareTables;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class EvaluationTests {
+
+    @Test
+    @DisplayName("Starting Position Is Even")
+    public void symmetric() {
+        ChessBoard board = new ChessGame().getBoard();
+        Assertions.assertEquals(0, board.getScore());
+        Assertions.assertEquals(PieceSquareTables.MAX_PHASE, board.getPhase());
+        Assertions.assertEquals(0, Evaluation.evaluate(board, ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Running Score Matches A Full Recount")
+    public void incrementalMatchesScratch() {
+        for (Perft.ReferencePosition position : Perft.ReferencePosition.values()) {
+            ChessGame game = position.newGame();
+            ChessBoard board = game.getBoard();
+            ChessGame.TeamColor toMove = game.getTeamTurn();
+            LegalMoveGenerator generator = new LegalMoveGenerator();
+            MoveList moves = new MoveList();
+            SplittableRandom random = new SplittableRandom(position.ordinal());
+            int[] undos = new int[200];
+            int played = 0;
+            for (; played < undos.length; played++) {
+                Assertions.assertEquals(Evaluation.evaluateFromScratch(board, toMove), Evaluation.evaluate(board, toMove));
+                generator.reset(board, toMove);
+                moves.clear();
+                generator.generate(moves);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                undos[played] = board.makeMove(moves.get(random.nextInt(moves.size())));
+                toMove = toMove.opponent();
+            }
+            // taking every move back has to land on the original score again
+            int original = PieceSquareTables.score(position.newGame().getBoard());
+            while (played > 0) {
+                board.unmakeMove(undos[--played]);
+            }
+            Assertions.assertEquals(original, board.getScore());
+        }
+    }
+
+    @Test
+    @DisplayName("Score Survives Serialization")
+    public void serialized() {
+        ChessGame game = Perft.ReferencePosition.KIWIPETE.newGame();
+        ChessBoard copy = new Gson().fromJson(new Gson().toJson(game.getBoard()), ChessBoard.class);
+        Assertions.assertEquals(game.getBoard().getScore(), copy.getScore());
+    }
+}
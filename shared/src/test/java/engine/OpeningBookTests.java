@@ -0,0 +1,91 @@
+package engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class OpeningBookTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Lines Become Weighted Book Moves")
+    public void readsWhatWasWritten() throws IOException, InvalidMoveException {
+        OpeningBook book = write(
+                "e2e4 e7e5 g1f3",
+                "e2e4 c7c5",
+                "d2d4 d7d5");
+        Assertions.assertEquals(6, book.size());
+
+        ChessGame game = new ChessGame();
+        List<OpeningBook.BookMove> moves = book.moves(game.getPositionKey());
+        Assertions.assertEquals(2, moves.size());
+        // the move two lines start with comes first
+        Assertions.assertEquals(new OpeningBook.BookMove(PackedMove.parse("e2e4"), 2), moves.get(0));
+        Assertions.assertEquals(new OpeningBook.BookMove(PackedMove.parse("d2d4"), 1), moves.get(1));
+
+        game.makeMove(PackedMove.toChessMove(PackedMove.parse("e2e4")));
+        Assertions.assertEquals(2, book.moves(game.getPositionKey()).size());
+        game.makeMove(PackedMove.toChessMove(PackedMove.parse("a7a6")));
+        Assertions.assertTrue(book.moves(game.getPositionKey()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Picks Only Book Moves, Heavier Ones More Often")
+    public void picksByWeight() throws IOException {
+        OpeningBook book = write("e2e4", "e2e4", "e2e4", "d2d4");
+        ChessGame game = new ChessGame();
+        SplittableRandom random = new SplittableRandom(7);
+        int e4 = 0;
+        for (int i = 0; i < 400; i++) {
+            ChessMove move = PackedMove.toChessMove(book.pick(game.getBoard(), game.getTeamTurn(), random));
+            Assertions.assertTrue(game.validMoves(move.getStartPosition()).contains(move));
+            if (move.getEndPosition().getRow() == 4 && move.getEndPosition().getColumn() == 5) {
+                e4++;
+            }
+        }
+        Assertions.assertTrue(e4 > 250 && e4 < 350, "e4 picked " + e4 + " times");
+        Assertions.assertEquals(PackedMove.NONE, OpeningBook.EMPTY.pick(game.getBoard(), game.getTeamTurn(), random));
+    }
+
+    @Test
+    @DisplayName("Rejects Files That Aren't Books")
+    public void rejectsBadFiles() throws IOException {
+        Path notABook = tempDir.resolve("not.book");
+        Files.writeString(notABook, "definitely not an opening book");
+        Assertions.assertThrows(IOException.class, () -> OpeningBook.open(notABook));
+
+        Path book = tempDir.resolve("truncated.book");
+        OpeningBookWriter writer = new OpeningBookWriter();
+        writer.addLine("e2e4 e7e5", 1);
+        writer.write(book);
+        byte[] bytes = Files.readAllBytes(book);
+        Files.write(book, Arrays.copyOf(bytes, bytes.length - 1));
+        Assertions.assertThrows(IOException.class, () -> OpeningBook.open(book));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> writer.addLine("e2e5", 1));
+    }
+
+    private OpeningBook write(String... lines) throws IOException {
+        OpeningBookWriter writer = new OpeningBookWriter();
+        for (String line : lines) {
+            writer.addLine(line, 1);
+        }
+        Path path = tempDir.resolve("test.book");
+        writer.write(path);
+        return OpeningBook.open(path);
+    }
+}
@@ -0,0 +1,82 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Perft;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+import java.util.List;
+
+public class ParallelSearchTests {
+
+    @Test
+    @DisplayName("Helpers Agree On A Forced Mate")
+    public void mateInOne() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                | | | |R| | |K| |
+                """);
+        try (ParallelSearch search = new ParallelSearch(4, 8)) {
+            ParallelSearchResult result = search.search(board, ChessGame.TeamColor.WHITE, SearchLimits.depth(5));
+            Assertions.assertEquals(new ChessMove(ChessPosition.of(1, 4), ChessPosition.of(8, 4), null), result.bestChessMove());
+            Assertions.assertEquals(3, result.helpers().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Every Thread Stops On Time")
+    public void timeBudget() {
+        ChessGame game = Perft.ReferencePosition.KIWIPETE.newGame();
+        try (ParallelSearch search = new ParallelSearch(3, 8)) {
+            for (int i = 0; i < 3; i++) {
+                long start = System.nanoTime();
+                ParallelSearchResult result = search.search(game, SearchLimits.time(150));
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                Assertions.assertNotNull(result.bestChessMove());
+                Assertions.assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+                for (SearchResult helper : result.helpers()) {
+                    Assertions.assertTrue(helper.nodes() > 0);
+                }
+                Assertions.assertTrue(result.totalNodes() > result.main().nodes());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Single Thread Matches Plain Search")
+    public void singleThread() {
+        try (ParallelSearch search = new ParallelSearch(1, 8)) {
+            ParallelSearchResult parallel = search.search(new ChessGame(), SearchLimits.depth(4));
+            SearchResult plain = new Search().search(new ChessGame(), SearchLimits.depth(4));
+            Assertions.assertEquals(plain.bestMove(), parallel.bestMove());
+            Assertions.assertEquals(plain.score(), parallel.score());
+            Assertions.assertTrue(parallel.helpers().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Analysis Lines Start With Different Moves")
+    public void analyze() {
+        try (ParallelSearch search = new ParallelSearch(3, 8)) {
+            List<AnalysisLine> lines = search.analyze(new ChessGame().getBoard(), ChessGame.TeamColor.WHITE,
+                    SearchLimits.depth(4), 3);
+            Assertions.assertEquals(3, lines.size());
+            Assertions.assertEquals(3, lines.stream().map(line -> line.principalVariation().get(0)).distinct().count());
+            for (AnalysisLine line : lines) {
+                Assertions.assertEquals(4, line.depth());
+            }
+            Assertions.assertTrue(lines.get(0).score() >= lines.get(2).score());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.PackedMove;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class SearchTests {
+
+    @Test
+    @DisplayName("Finds Mate In One")
+    public void mateInOne() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                | | | |R| | |K| |
+                """);
+        SearchResult result = new Search().search(board, ChessGame.TeamColor.WHITE, SearchLimits.depth(4));
+        Assertions.assertEquals(new ChessMove(ChessPosition.of(1, 4), ChessPosition.of(8, 4), null), result.bestChessMove());
+        Assertions.assertTrue(result.isMate());
+        Assertions.assertEquals(1, result.mateIn());
+    }
+
+    @Test
+    @DisplayName("Takes A Hanging Queen")
+    public void winsMaterial() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |q| | | | |
+                | | | | | | | | |
+                | | | | |N| | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        SearchResult result = new Search().search(board, ChessGame.TeamColor.WHITE, SearchLimits.depth(3));
+        Assertions.assertEquals(new ChessMove(ChessPosition.of(3, 5), ChessPosition.of(5, 4), null), result.bestChessMove());
+        Assertions.assertTrue(result.score() > 200);
+    }
+
+    @Test
+    @DisplayName("Quiescence Sees The Recapture")
+    public void avoidsLosingExchange() {
+        // the pawn on d5 is defended, so taking it with the queen loses the queen
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | |p| | | |
+                | | | |p| | | | |
+                | | | | | | | | |
+                | | | |Q| | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        SearchResult result = new Search().search(board, ChessGame.TeamColor.WHITE, SearchLimits.depth(1));
+        Assertions.assertNotEquals(new ChessMove(ChessPosition.of(3, 4), ChessPosition.of(5, 4), null), result.bestChessMove());
+    }
+
+    @Test
+    @DisplayName("No Move When Mated")
+    public void noLegalMoves() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | |R| | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                | | | | | | |K| |
+                """);
+        SearchResult result = new Search().search(board, ChessGame.TeamColor.BLACK, SearchLimits.depth(3));
+        Assertions.assertEquals(PackedMove.NONE, result.bestMove());
+        Assertions.assertNull(result.bestChessMove());
+    }
+
+    @Test
+    @DisplayName("Respects Budgets And Leaves The Game Alone")
+    public void budgets() {
+        ChessGame game = new ChessGame();
+        ChessGame before = new ChessGame();
+        Search search = new Search();
+
+        SearchResult byNodes = search.search(game, SearchLimits.time(0).withNodes(20_000));
+        Assertions.assertNotNull(byNodes.bestChessMove());
+        Assertions.assertTrue(byNodes.nodes() <= 20_000 + 100, "searched " + byNodes.nodes() + " nodes");
+
+        long start = System.nanoTime();
+        SearchResult byTime = search.search(game, SearchLimits.time(200));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        Assertions.assertNotNull(byTime.bestChessMove());
+        Assertions.assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+        Assertions.assertEquals(before, game);
+    }
+
+    @Test
+    @DisplayName("MultiPV Reports Distinct Lines Best First")
+    public void multiPv() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                | | | |R| | |K| |
+                """);
+        List<AnalysisLine> lines = new Search().analyze(board, ChessGame.TeamColor.WHITE, SearchLimits.depth(4), 3);
+        Assertions.assertEquals(3, lines.size());
+        Assertions.assertEquals(new ChessMove(ChessPosition.of(1, 4), ChessPosition.of(8, 4), null),
+                lines.get(0).principalVariation().get(0));
+        Assertions.assertTrue(lines.get(0).result().isMate());
+        Set<ChessMove> firstMoves = new HashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            AnalysisLine line = lines.get(i);
+            Assertions.assertEquals(line.result().bestChessMove(), line.principalVariation().get(0));
+            Assertions.assertTrue(firstMoves.add(line.principalVariation().get(0)));
+            if (i > 0) {
+                Assertions.assertTrue(line.score() <= lines.get(i - 1).score());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("MultiPV Stops At The Number Of Legal Moves")
+    public void multiPvFewMoves() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                |k| | | | | | | |
+                | | | | | | | | |
+                | |K| | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | |R|
+                """);
+        // the black king on a8 only has b8 left
+        List<AnalysisLine> lines = new Search().analyze(board, ChessGame.TeamColor.BLACK, SearchLimits.depth(3), 5);
+        Assertions.assertEquals(1, lines.size());
+    }
+}
@@ -0,0 +1,98 @@
+package engine;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TranspositionTableTests {
+
+    @Test
+    @DisplayName("Stores And Reads Back Entries")
+    public void roundTrip() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = PackedMove.of(12, 28) | PackedMove.DOUBLE_PUSH;
+        table.store(0x1234_5678_9ABC_DEF0L, move, -Search.MATE + 3, 7, TranspositionTable.UPPER);
+
+        long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+        Assertions.assertNotEquals(TranspositionTable.MISS, entry);
+        Assertions.assertEquals(move, TranspositionTable.move(entry));
+        Assertions.assertEquals(-Search.MATE + 3, TranspositionTable.score(entry));
+        Assertions.assertEquals(7, TranspositionTable.depth(entry));
+        Assertions.assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(entry));
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(0x1234_5678_9ABC_DEF1L));
+    }
+
+    @Test
+    @DisplayName("Size Is Configurable")
+    public void sizing() {
+        TranspositionTable table = new TranspositionTable(4);
+        Assertions.assertEquals(4L * 1024 * 1024, table.sizeInBytes());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(TranspositionTable.MAX_MEGABYTES + 1));
+    }
+
+    @Test
+    @DisplayName("Shallow Results Don't Replace Deep Ones")
+    public void replacement() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(42L, PackedMove.of(1, 18), 50, 10, TranspositionTable.LOWER);
+        table.store(42L, PackedMove.NONE, 10, 2, TranspositionTable.LOWER);
+        Assertions.assertEquals(10, TranspositionTable.depth(table.probe(42L)));
+
+        // without a move of its own, a new result keeps the old best move
+        table.store(42L, PackedMove.NONE, 20, 12, TranspositionTable.EXACT);
+        long entry = table.probe(42L);
+        Assertions.assertEquals(12, TranspositionTable.depth(entry));
+        Assertions.assertEquals(PackedMove.of(1, 18), TranspositionTable.move(entry));
+    }
+
+    @Test
+    @DisplayName("Concurrent Writers Never Produce A Torn Entry")
+    public void concurrentAccess() throws InterruptedException {
+        // a tiny table so the threads keep overwriting each other's buckets
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicInteger torn = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            threads.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 500_000; i++) {
+                    long key = random.nextLong(1 << 20) * 0x9E3779B97F4A7C15L;
+                    long entry = table.probe(key);
+                    // every writer derives the score from the key, so a hit must match it
+                    if (entry != TranspositionTable.MISS && TranspositionTable.score(entry) != scoreFor(key)) {
+                        torn.incrementAndGet();
+                    }
+                    table.store(key, PackedMove.NONE, scoreFor(key), random.nextInt(1, 30), TranspositionTable.EXACT);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(0, torn.get());
+    }
+
+    @Test
+    @DisplayName("Shared Table Speeds Up A Repeat Search")
+    public void reuse() {
+        TranspositionTable table = new TranspositionTable(16);
+        Search search = new Search(table);
+        SearchResult first = search.search(new ChessGame(), SearchLimits.depth(5));
+        SearchResult second = new Search(table).search(new ChessGame(), SearchLimits.depth(5));
+        Assertions.assertTrue(second.nodes() < first.nodes(), first.nodes() + " then " + second.nodes());
+    }
+
+    private static int scoreFor(long key) {
+        return (int) (key >>> 50) - 5000;
+    }
+}
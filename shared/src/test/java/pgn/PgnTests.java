@@ -0,0 +1,205 @@
+package pgn;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.GameStatus;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class PgnTests {
+
+    private static final String OPERA_GAME = """
+            [Event "Paris"]
+            [Site "Paris FRA"]
+            [Date "1858.??.??"]
+            [White "Paul Morphy"]
+            [Black "Duke Karl / Count Isouard"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7
+            8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7
+            14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0
+            """;
+
+    private static final String ANNOTATED = """
+            [White "Réti"]
+            [Black "?"]
+            [Result "*"]
+
+            1.e4 {The most [popular] move} 1...d5 2. e5 $1 f5 (2... d4 {or} (2... c5))
+            3. exf6 ; en passant
+            % an escaped line
+            3. ... Nxf6 4. d4 *
+            """;
+
+    private static final String ILLEGAL = """
+            [White "A"]
+            [Black "B"]
+
+            1. e4 e5 2. Ke3 Nc6 0-1
+            """;
+
+    @Test
+    @DisplayName("A Whole Game Is Read And Checked")
+    public void wholeGame() throws InvalidMoveException {
+        PgnGame game = new PgnParser().parse(OPERA_GAME);
+        Assertions.assertEquals("Paul Morphy", game.tag("White"));
+        Assertions.assertEquals(6, game.tags().size());
+        Assertions.assertEquals(PgnGame.WHITE_WINS, game.result());
+        Assertions.assertEquals(33, game.moveCount());
+
+        ChessGame replay = game.startPosition();
+        for (ChessMove move : game.chessMoves()) {
+            replay.makeMove(move);
+        }
+        Assertions.assertEquals(GameStatus.CHECKMATE, replay.getStatus());
+    }
+
+    @Test
+    @DisplayName("Comments, Variations And Annotations Are Skipped")
+    public void annotations() {
+        PgnGame game = new PgnParser().parse(ANNOTATED);
+        Assertions.assertEquals("Réti", game.tag("White"));
+        Assertions.assertEquals(PgnGame.UNFINISHED, game.result());
+        Assertions.assertEquals(7, game.moveCount());
+        Assertions.assertTrue(chess.PackedMove.isEnPassant(game.move(4)));
+    }
+
+    @Test
+    @DisplayName("Games Can Start From A FEN Tag")
+    public void fenTag() {
+        String fen = "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1";
+        PgnGame game = new PgnParser().parse("[FEN \"" + fen + "\"]\n[SetUp \"1\"]\n\n1. e4 Kd7 2. e5 1/2-1/2\n");
+        Assertions.assertEquals(3, game.moveCount());
+        Assertions.assertEquals(fen, Fen.format(game.startPosition()));
+        Assertions.assertEquals(PgnGame.DRAW, game.result());
+    }
+
+    @Test
+    @DisplayName("Illegal Moves Are Reported")
+    public void illegalMove() {
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new PgnParser().parse(ILLEGAL));
+        Assertions.assertTrue(e.getMessage().contains("Move 2"), e.getMessage());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PgnParser().parse("[White \"A\"\n\n1. e4 *"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PgnParser().parse("  \n"));
+    }
+
+    @Test
+    @DisplayName("The Reader Splits Games And Goes On Past Bad Ones")
+    public void reader() throws IOException {
+        try (PgnReader reader = new PgnReader(new StringReader(ANNOTATED + "\n" + ILLEGAL + "\n" + OPERA_GAME))) {
+            Assertions.assertEquals(7, reader.next().moveCount());
+            Assertions.assertThrows(IllegalArgumentException.class, reader::next);
+            Assertions.assertEquals(33, reader.next().moveCount());
+            Assertions.assertNull(reader.next());
+            Assertions.assertNull(reader.nextGameText());
+        }
+    }
+
+    @Test
+    @DisplayName("A Large File Is Imported In Parallel")
+    public void parallelImport(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("games.pgn");
+        int copies = 300;
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < copies; i++) {
+            text.append(OPERA_GAME).append('\n').append(ANNOTATED).append('\n').append(ILLEGAL).append('\n');
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+
+        Queue<PgnGame> games = new ConcurrentLinkedQueue<>();
+        PgnImporter.Stats stats = new PgnImporter(4).importFile(file, games::add);
+        Assertions.assertEquals(2L * copies, stats.games());
+        Assertions.assertEquals(copies, stats.rejected());
+        Assertions.assertEquals(40L * copies, stats.plies());
+        Assertions.assertEquals(2 * copies, games.size());
+        Assertions.assertEquals(copies, games.stream().filter(game -> "Réti".equals(game.tag("White"))).count());
+
+        Assertions.assertThrows(IllegalStateException.class, () -> new PgnImporter(2).importFile(file, game -> {
+            throw new UnsupportedOperationException("No room");
+        }));
+    }
+
+    @Test
+    @DisplayName("A Played Game Is Written Back As It Was Read")
+    public void writeRoundTrip() throws IOException, InvalidMoveException {
+        PgnGame read = new PgnParser().parse(OPERA_GAME);
+        ChessGame game = read.startPosition();
+        for (ChessMove move : read.chessMoves()) {
+            game.makeMove(move);
+        }
+        Assertions.assertEquals(33, game.getMoveCount());
+        Assertions.assertEquals(Fen.START, game.getStartFen());
+
+        StringBuilder text = new StringBuilder();
+        new PgnWriter().write(read.tags(), game, text);
+        String pgn = text.toString();
+        Assertions.assertTrue(pgn.startsWith("[Event \"Paris\"]\n[Site \"Paris FRA\"]\n[Date \"1858.??.??\"]\n"
+                + "[Round \"?\"]\n[White \"Paul Morphy\"]\n"), pgn);
+        Assertions.assertTrue(pgn.contains(" 12. O-O-O Rd8 "), pgn);
+        Assertions.assertTrue(pgn.endsWith(" 17. Rd8# 1-0\n\n"), pgn);
+        Assertions.assertTrue(pgn.lines().allMatch(line -> line.length() <= 80), pgn);
+
+        PgnGame reread = new PgnParser().parse(pgn);
+        Assertions.assertArrayEquals(read.moves(), reread.moves());
+        Assertions.assertEquals(PgnGame.WHITE_WINS, reread.result());
+    }
+
+    @Test
+    @DisplayName("Set Up Positions, Resignations And Unrecorded Games")
+    public void writeSpecialGames() throws IOException, InvalidMoveException {
+        String fen = "4k3/8/8/8/8/8/4P3/4K3 b - - 0 7";
+        ChessGame setUp = Fen.parse(fen);
+        setUp.makeMove(new ChessMove(ChessPosition.of(8, 5), ChessPosition.of(7, 4), null));
+        setUp.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        setUp.resign(ChessGame.TeamColor.BLACK);
+        String pgn = write(setUp);
+        Assertions.assertTrue(pgn.contains("[Result \"1-0\"]\n[SetUp \"1\"]\n[FEN \"" + fen + "\"]\n"), pgn);
+        Assertions.assertTrue(pgn.endsWith("\n7... Kd7 8. e4 1-0\n\n"), pgn);
+
+        // a game saved before moves were recorded is written from where it stands
+        JsonObject json = new Gson().toJsonTree(setUp).getAsJsonObject();
+        json.remove("moves");
+        json.remove("moveCount");
+        json.remove("startFen");
+        ChessGame unrecorded = new Gson().fromJson(json, ChessGame.class);
+        pgn = write(unrecorded);
+        Assertions.assertTrue(pgn.contains("[FEN \"" + Fen.format(setUp) + "\"]\n"), pgn);
+        Assertions.assertTrue(pgn.endsWith("\n\n1-0\n\n"), pgn);
+
+        // pieces moved by hand start the record over
+        ChessGame edited = new ChessGame();
+        edited.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        edited.getBoard().addPiece(ChessPosition.of(8, 4), null);
+        Assertions.assertEquals(Fen.format(edited), edited.getStartFen());
+        Assertions.assertEquals(0, edited.getMoveCount());
+        edited.makeMove(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        Assertions.assertTrue(write(edited).endsWith("\n1... e5 *\n\n"));
+        Assertions.assertNull(edited.getBoard().getPiece(ChessPosition.of(8, 4)));
+        Assertions.assertEquals(ChessPiece.PieceType.PAWN, edited.getBoard().getPiece(ChessPosition.of(5, 5)).getPieceType());
+    }
+
+    private static String write(ChessGame game) throws IOException {
+        StringBuilder text = new StringBuilder();
+        new PgnWriter().write(Map.of("White", "A", "Black", "B"), game, text);
+        return text.toString();
+    }
+}
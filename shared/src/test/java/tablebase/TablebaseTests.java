@@ -0,0 +1,177 @@
+package tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.TranspositionTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import passoff.chess.TestUtilities;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TablebaseTests {
+
+    @TempDir
+    static Path tempDir;
+
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        tablebase = TablebaseGenerator.generateAll(3, tempDir);
+    }
+
+    @Test
+    @DisplayName("Endings Are Named With The Stronger Side As White")
+    public void materialNames() {
+        Material material = Material.parse("KvKQ");
+        Assertions.assertTrue(material.flipped());
+        Assertions.assertEquals("KQvK", material.toString());
+        Assertions.assertEquals(Material.parse("KQvK"), material);
+        Assertions.assertEquals(5, Material.all(3).size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Material.parse("QvK"));
+    }
+
+    @Test
+    @DisplayName("Tables Are Written For Every Ending")
+    public void writesTables() {
+        Assertions.assertEquals(3, tablebase.maxPieces());
+        for (String name : new String[]{"KQvK", "KRvK", "KBvK", "KNvK", "KPvK"}) {
+            Assertions.assertTrue(Files.exists(tempDir.resolve(name + ".tb")), name);
+            Assertions.assertTrue(tablebase.contains(Material.parse(name)), name);
+        }
+    }
+
+    @Test
+    @DisplayName("Mates Are Found With Their Distance")
+    public void mateDistances() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                |k| | | | | | | |
+                | | | | | | | | |
+                | |K| | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | |Q| | | | | |
+                """);
+        Assertions.assertEquals(new TablebaseResult(TablebaseResult.Outcome.WIN, 1),
+                tablebase.probe(board, ChessGame.TeamColor.WHITE));
+
+        ChessBoard mated = TestUtilities.loadBoard("""
+                |k| | | | | | | |
+                | |Q| | | | | | |
+                | |K| | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """);
+        Assertions.assertEquals(new TablebaseResult(TablebaseResult.Outcome.LOSS, 0),
+                tablebase.probe(mated, ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Black's Pieces Are Looked Up With The Colors Swapped")
+    public void flippedColors() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | |q| | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | |k| | | | | | |
+                | | | | | | | | |
+                |K| | | | | | | |
+                """);
+        Assertions.assertEquals(new TablebaseResult(TablebaseResult.Outcome.WIN, 1),
+                tablebase.probe(board, ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Draws Are Recognized")
+    public void draws() {
+        ChessBoard bishop = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |B| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        Assertions.assertEquals(TablebaseResult.DRAW, tablebase.probe(bishop, ChessGame.TeamColor.WHITE));
+
+        // a rook pawn can't win once the defending king reaches the corner
+        ChessBoard rookPawn = TestUtilities.loadBoard("""
+                |k| | | | | | | |
+                | | | | | | | | |
+                |K| | | | | | | |
+                |P| | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """);
+        Assertions.assertEquals(TablebaseResult.DRAW, tablebase.probe(rookPawn, ChessGame.TeamColor.WHITE));
+
+        // with the king in front of its pawn on the sixth rank, the pawn queens either way
+        ChessBoard centerPawn = TestUtilities.loadBoard("""
+                | | | |k| | | | |
+                | | | | | | | | |
+                | | | |K| | | | |
+                | | | |P| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """);
+        Assertions.assertEquals(TablebaseResult.Outcome.WIN, tablebase.probe(centerPawn, ChessGame.TeamColor.WHITE).outcome());
+        Assertions.assertEquals(TablebaseResult.Outcome.LOSS, tablebase.probe(centerPawn, ChessGame.TeamColor.BLACK).outcome());
+    }
+
+    @Test
+    @DisplayName("Search Follows The Table To Mate")
+    public void searchPlaysPerfectly() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | |K| | | | | |
+                | | | | | | | | |
+                | | | | | | | |R|
+                """);
+        TablebaseResult start = tablebase.probe(board, ChessGame.TeamColor.WHITE);
+        Assertions.assertEquals(TablebaseResult.Outcome.WIN, start.outcome());
+
+        // both sides look one move ahead, the winner hurrying and the loser holding out
+        Search search = new Search(new TranspositionTable(1), tablebase);
+        ChessGame.TeamColor toMove = ChessGame.TeamColor.WHITE;
+        int plies = 0;
+        TablebaseResult mated = new TablebaseResult(TablebaseResult.Outcome.LOSS, 0);
+        while (!mated.equals(tablebase.probe(board, toMove))) {
+            SearchResult result = search.search(board, toMove, SearchLimits.depth(1));
+            if (plies == 0) {
+                Assertions.assertEquals(Search.MATE - start.distance(), result.score());
+            }
+            board.movePiece(result.bestChessMove());
+            toMove = toMove.opponent();
+            plies++;
+            Assertions.assertTrue(plies <= start.distance(), "Mate took longer than the table said");
+        }
+        Assertions.assertEquals(start.distance(), plies);
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, toMove);
+    }
+}